@@ -0,0 +1,46 @@
+package com.example.onseinippou.application.controller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * スプレッドシートURLからIDを取り出す処理.
+ * 呼び出しごとに正規表現をコンパイルしていた以前の実装を基準として並べる.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractSheetIdBenchmark {
+
+	@Param({
+			"https://docs.google.com/spreadsheets/d/1BxiMVs0XRA5nFMdKvBdBZjgmUUqptlbs74OgvE2upms/edit#gid=0",
+			"https://docs.google.com/spreadsheets/u/0/?tgif=d" })
+	private String url;
+
+	@Benchmark
+	public String compilePerCallBaseline() {
+		Pattern pattern = Pattern.compile("/d/([a-zA-Z0-9-_]+)");
+		Matcher matcher = pattern.matcher(url);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	@Benchmark
+	public String extractSheetId() {
+		return RegisterSheetController.extractSheetId(url);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.onseinippou.application.socket;
+
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.example.onseinippou.infra.stt.BenchmarkSpeechToTextClient;
+import com.example.onseinippou.service.AudioService;
+import com.example.onseinippou.service.AudioServiceBenchmarkSupport;
+
+/**
+ * WebSocket で受信した音声メッセージ1件の処理（ペイロードのコピー → セッションの検索 → メトリクス → STT への送信）.
+ * 1回の呼び出しで、接続から切断までの1ストリーム分（100ms × 3,000メッセージ）を流す.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscriptionSocketHandlerBenchmark {
+
+	private static final int MESSAGES_PER_STREAM = 3_000;
+
+	/** メッセージのバイト数（3200 = 100ms, 8192 = ブラウザの既定バッファ 4096 サンプル）. */
+	@Param({ "3200", "8192" })
+	private int payloadBytes;
+
+	private TranscriptionSocketHandler handler;
+	private WebSocketSession session;
+	private byte[] payload;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		AudioService audioService = AudioServiceBenchmarkSupport.audioService(new BenchmarkSpeechToTextClient(blackhole));
+		handler = new TranscriptionSocketHandler(audioService);
+		// 呼び出しを記録しないモック（長時間の計測でメモリを消費しない）
+		session = mock(WebSocketSession.class, withSettings().stubOnly());
+		when(session.getId()).thenReturn("benchmark");
+		when(session.isOpen()).thenReturn(true);
+		payload = new byte[payloadBytes];
+		ThreadLocalRandom.current().nextBytes(payload);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES_PER_STREAM)
+	public void handleBinaryMessage() {
+		handler.afterConnectionEstablished(session);
+		for (int i = 0; i < MESSAGES_PER_STREAM; i++) {
+			handler.handleBinaryMessage(session, new BinaryMessage(payload));
+		}
+		handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+	}
+}
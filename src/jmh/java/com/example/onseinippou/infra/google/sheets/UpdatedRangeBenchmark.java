@@ -0,0 +1,40 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * append のレスポンスの updatedRange から先頭行の行番号を取り出す処理.
+ * 呼び出しごとに正規表現をコンパイルしていた以前の実装（replaceAll）を基準として並べる.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdatedRangeBenchmark {
+
+	@Param({ "Sheet1!A12:B14", "'日報 2025!'!A10234:B10333" })
+	private String updatedRange;
+
+	@Benchmark
+	public int replaceAllBaseline() {
+		return Integer.parseInt(updatedRange.replaceAll(".*!(?:[A-Z]+)(\\d+):.*", "$1"));
+	}
+
+	@Benchmark
+	public int firstRowNumber() {
+		return GoogleSheetsClient.firstRowNumber(updatedRange);
+	}
+}
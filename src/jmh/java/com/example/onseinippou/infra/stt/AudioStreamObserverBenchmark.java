@@ -0,0 +1,58 @@
+package com.example.onseinippou.infra.stt;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.onseinippou.infra.stt.SpeechToTextClient.AudioStreamObserver;
+
+/**
+ * 音声フレーム1件を StreamingRecognizeRequest に組み立てて送る処理（遅延計測の記録を含む）.
+ * STT ストリームは5分で張り替わるため、1回の呼び出しで1ストリーム分（100ms × 3,000フレーム）を送る.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioStreamObserverBenchmark {
+
+	private static final int FRAMES_PER_STREAM = 3_000;
+
+	/** フレームのバイト数（3200 = 100ms, 8192 = ブラウザの既定バッファ 4096 サンプル）. */
+	@Param({ "3200", "8192" })
+	private int frameBytes;
+
+	private byte[] frame;
+	private Blackhole blackhole;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		this.blackhole = blackhole;
+		this.frame = new byte[frameBytes];
+		ThreadLocalRandom.current().nextBytes(frame);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES_PER_STREAM)
+	public void sendAudio() {
+		AudioStreamObserver observer = BenchmarkSpeechToTextClient.newObserver(blackhole);
+		for (int i = 0; i < FRAMES_PER_STREAM; i++) {
+			observer.sendAudio(frame);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.onseinippou.infra.stt;
+
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.cloud.speech.v1.StreamingRecognizeRequest;
+
+/**
+ * Google に接続せず、組み立てたリクエストを Blackhole に捨てる SpeechToTextClient.
+ * 文字起こし結果・完了のコールバックを保持し、ベンチマークから呼び出せるようにする.
+ */
+public class BenchmarkSpeechToTextClient extends SpeechToTextClient {
+
+	/** LINEAR16 / 16kHz / モノラル. */
+	static final int BYTES_PER_SECOND = 32_000;
+
+	private final Blackhole blackhole;
+	private Consumer<FinalResult> onResult;
+	private Runnable onStreamCompleted;
+
+	public BenchmarkSpeechToTextClient(Blackhole blackhole) {
+		this.blackhole = blackhole;
+	}
+
+	@Override
+	public AudioStreamObserver startStreamingRecognize(Consumer<FinalResult> onResult, Runnable onIdleTimeout,
+			Consumer<Throwable> onError, Runnable onStreamCompleted) {
+		this.onResult = onResult;
+		this.onStreamCompleted = onStreamCompleted;
+		return newObserver(blackhole);
+	}
+
+	/** 送信したリクエストを Blackhole に捨てる AudioStreamObserver. */
+	public static AudioStreamObserver newObserver(Blackhole blackhole) {
+		return new AudioStreamObserver(new ApiStreamObserver<StreamingRecognizeRequest>() {
+			@Override
+			public void onNext(StreamingRecognizeRequest request) {
+				blackhole.consume(request);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+			}
+		}, new AudioLagTracker(BYTES_PER_SECOND));
+	}
+
+	/** 最後に開いたストリームへ確定結果を渡す. */
+	public void emitResult(FinalResult result) {
+		onResult.accept(result);
+	}
+
+	/** 最後に開いたストリームの完了を通知する. */
+	public void completeStream() {
+		onStreamCompleted.run();
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.onseinippou.service;
+
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.example.onseinippou.infra.stt.BenchmarkSpeechToTextClient;
+import com.example.onseinippou.infra.stt.SpeechToTextClient.FinalResult;
+
+/**
+ * AudioService の文字起こし結果の蓄積と、最終メッセージ（JSON）の組み立て.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioServiceBenchmark {
+
+	/** 1時間の録音で届く確定結果の数（5秒に1件）. */
+	private static final int RESULTS_PER_HOUR = 720;
+	private static final String SENTENCE = "本日は新規顧客への提案資料を作成し、午後は定例会議に参加しました。";
+
+	/** 最終メッセージに遅延の統計を付けるか（app.transcription.report-lag）. */
+	@Param({ "false", "true" })
+	private boolean reportLag;
+
+	private AudioService audioService;
+	private BenchmarkSpeechToTextClient speechToTextClient;
+	private WebSocketSession session;
+	private FinalResult result;
+	private String transcript;
+	private String lagJson;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		speechToTextClient = new BenchmarkSpeechToTextClient(blackhole);
+		audioService = AudioServiceBenchmarkSupport.audioService(speechToTextClient);
+		ReflectionTestUtils.setField(audioService, "reportLagToClient", reportLag);
+
+		// 呼び出しを記録しないモック（長時間の計測でメモリを消費しない）
+		session = mock(WebSocketSession.class, withSettings().stubOnly());
+		when(session.getId()).thenReturn("benchmark");
+		when(session.isOpen()).thenReturn(true);
+
+		result = new FinalResult(SENTENCE, Duration.ofMillis(420));
+		transcript = SENTENCE.repeat(RESULTS_PER_HOUR);
+		AudioService.LagStats stats = new AudioService.LagStats();
+		for (int i = 0; i < RESULTS_PER_HOUR; i++) {
+			stats.record(Duration.ofMillis(300 + i % 400));
+		}
+		lagJson = stats.toJson();
+	}
+
+	/**
+	 * 1時間分の確定結果を受け取り、停止して最終メッセージを送るまで（セッション開始・終了を含む）.
+	 */
+	@Benchmark
+	public void transcribeOneHourSession() {
+		audioService.startStreamingTranscription(session);
+		for (int i = 0; i < RESULTS_PER_HOUR; i++) {
+			speechToTextClient.emitResult(result);
+		}
+		audioService.stopAndFinalizeTranscription(session);
+		speechToTextClient.completeStream();
+	}
+
+	/**
+	 * 1時間分の全文から最終メッセージを組み立てる.
+	 */
+	@Benchmark
+	public String buildFinalMessage() {
+		return audioService.finalMessage(transcript, lagJson);
+	}
+}
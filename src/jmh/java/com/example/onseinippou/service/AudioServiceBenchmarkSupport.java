@@ -0,0 +1,21 @@
+package com.example.onseinippou.service;
+
+import com.example.onseinippou.infra.stt.SpeechToTextClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 他のパッケージのベンチマークから、Spring を起動せずに AudioService を組み立てる.
+ */
+public final class AudioServiceBenchmarkSupport {
+
+	private AudioServiceBenchmarkSupport() {
+	}
+
+	public static AudioService audioService(SpeechToTextClient speechToTextClient) {
+		AudioService audioService = new AudioService(speechToTextClient,
+				new TranscriptionMetrics(new SimpleMeterRegistry()));
+		audioService.bindMetrics();
+		return audioService;
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.onseinippou.application.controller;
+
+import jakarta.validation.Valid;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.onseinippou.application.dto.onboarding.OnboardingJobResponse;
+import com.example.onseinippou.application.dto.onboarding.OnboardingRequest;
+import com.example.onseinippou.service.TeamOnboardingService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * チーム一括オンボーディング（管理者用）.
+ */
+@RestController
+@RequestMapping("/api/admin/onboarding-jobs")
+@RequiredArgsConstructor
+public class OnboardingController {
+
+	private final TeamOnboardingService teamOnboardingService;
+
+	/** ジョブを開始し、進捗確認用のジョブIDを返す */
+	@PostMapping
+	public ResponseEntity<OnboardingJobResponse> start(@RequestBody @Valid OnboardingRequest request) {
+		return ResponseEntity.accepted().body(teamOnboardingService.start(request));
+	}
+
+	/** ジョブの進捗を返す */
+	@GetMapping("/{jobId}")
+	public ResponseEntity<OnboardingJobResponse> progress(@PathVariable String jobId) {
+		return teamOnboardingService.find(jobId)
+				.map(ResponseEntity::ok)
+				.orElseGet(() -> ResponseEntity.notFound().build());
+	}
+}
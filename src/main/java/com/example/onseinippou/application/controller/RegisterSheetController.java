@@ -15,6 +15,9 @@ import com.example.onseinippou.service.RegisterSheetService;
 @RestController
 @RequestMapping("/api")
 public class RegisterSheetController {
+
+	/** スプレッドシートURL（https://docs.google.com/spreadsheets/d/{ID}/edit ...）からIDを取り出すパターン. */
+	private static final Pattern SHEET_ID_PATTERN = Pattern.compile("/d/([a-zA-Z0-9-_]+)");
 	
 	@Autowired
 	private RegisterSheetService registerSheetService;
@@ -36,9 +39,8 @@ public class RegisterSheetController {
 		return ResponseEntity.ok("シート登録が完了しました！");
 	}
 	
-	private String extractSheetId(String url) {
-		Pattern pattern = Pattern.compile("/d/([a-zA-Z0-9-_]+)");
-		Matcher matcher = pattern.matcher(url);
+	static String extractSheetId(String url) {
+		Matcher matcher = SHEET_ID_PATTERN.matcher(url);
 		return matcher.find() ? matcher.group(1) : null;
 	}
 	
@@ -1,15 +1,30 @@
 package com.example.onseinippou.application.controller;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import jakarta.validation.Valid;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.onseinippou.application.dto.report.BulkReportRequest;
+import com.example.onseinippou.application.dto.report.BulkReportResponse;
+import com.example.onseinippou.application.dto.report.ReportPage;
 import com.example.onseinippou.application.dto.report.ReportRequest;
+import com.example.onseinippou.application.dto.report.ReportResponse;
+import com.example.onseinippou.service.ReportSearchService;
 import com.example.onseinippou.service.ReportService;
+import com.example.onseinippou.service.ReportService.BulkItem;
+import com.example.onseinippou.service.ReportService.BulkItemResult;
+import com.example.onseinippou.service.ReportService.SubmitResult;
+import com.example.onseinippou.service.ReportSubmissionGuard;
 
 import lombok.RequiredArgsConstructor;
 
@@ -19,12 +34,69 @@ import lombok.RequiredArgsConstructor;
 public class ReportController {
 
 	private final ReportService reportService;
+	private final ReportSearchService reportSearchService;
+	private final ReportSubmissionGuard reportSubmissionGuard;
 
-	/** テキストをスプレッドシートへ送信 */
+	/**
+	 * テキストを受け付け、スプレッドシートへの送信を予約する（送信完了は待たない）.
+	 * Idempotency-Key ヘッダを付けた再送は重複として扱い、Idempotent-Replayed: true を返す.
+	 */
 	@PostMapping("/submit-report")
-	public ResponseEntity<String> submitReport(@RequestBody @Valid ReportRequest reportRequest) {
-		reportService.sendToSheets(reportRequest.text());
-		return ResponseEntity.ok("スプレッドシートに送信しました！");
+	public ResponseEntity<String> submitReport(
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody @Valid ReportRequest reportRequest) {
+		SubmitResult result = reportSubmissionGuard.submit(reportRequest.text(), idempotencyKey);
+		return ResponseEntity.accepted()
+				.header("Idempotent-Replayed", String.valueOf(result.replayed()))
+				.body("日報を受け付けました。スプレッドシートへ順次送信します。");
+	}
+
+	/**
+	 * 複数の日報をまとめて受け付ける. 本文・冪等キーの形式や件数が不正なら全体を 400 で断る.
+	 * 受付済みのキーや1回の送信の中で重複したキーの日報だけを除いて受け付け、1件ごとの結果を返す.
+	 */
+	@PostMapping("/submit-reports")
+	public ResponseEntity<BulkReportResponse> submitReports(@RequestBody @Valid BulkReportRequest request) {
+		List<BulkItem> items = request.reports().stream()
+				.map(item -> new BulkItem(item.text(), item.idempotencyKey()))
+				.toList();
+		List<BulkItemResult> results = reportSubmissionGuard.submitAll(items);
+
+		List<BulkReportResponse.ItemResult> body = new ArrayList<>(results.size());
+		int accepted = 0, duplicates = 0, rejected = 0;
+		for (int i = 0; i < results.size(); i++) {
+			BulkItemResult r = results.get(i);
+			String status;
+			if (r.error() != null) {
+				status = "REJECTED";
+				rejected++;
+			} else if (r.replayed()) {
+				status = "DUPLICATE";
+				duplicates++;
+			} else {
+				status = "ACCEPTED";
+				accepted++;
+			}
+			body.add(new BulkReportResponse.ItemResult(i, status, r.reportId(), r.error()));
+		}
+		return ResponseEntity.accepted().body(new BulkReportResponse(accepted, duplicates, rejected, body));
+	}
+
+	/** ログインユーザーの日報履歴（新しい順）. Sheets ではなく手元の DB から返す. 続きは nextCursor を cursor に渡して取得する */
+	@GetMapping("/history")
+	public ResponseEntity<ReportPage> history(
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int size) {
+		return ResponseEntity.ok(reportService.findHistory(cursor, size));
+	}
+
+	/** 日報本文の部分一致検索（新しい順）. scope は user（自分の日報）か team（同じシートのチーム） */
+	@GetMapping("/search")
+	public ResponseEntity<List<ReportResponse>> search(
+			@RequestParam String q,
+			@RequestParam(defaultValue = "user") String scope,
+			@RequestParam(defaultValue = "20") int limit) {
+		return ResponseEntity.ok(reportSearchService.search(q, ReportSearchService.parseScope(scope), limit));
 	}
 
 	/* 応答 DTO */
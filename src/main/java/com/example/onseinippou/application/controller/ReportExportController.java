@@ -0,0 +1,59 @@
+package com.example.onseinippou.application.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.onseinippou.service.ReportExportService;
+import com.example.onseinippou.service.ReportExportService.Format;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 日報の一括エクスポート（管理者用）.
+ */
+@RestController
+@RequestMapping("/api/admin/reports")
+@RequiredArgsConstructor
+public class ReportExportController {
+
+	/** 書き出しの打ち切りまでの時間. 件数が多いと数十分かかるため、アプリ全体の既定値より長くする. */
+	private static final Duration EXPORT_TIMEOUT = Duration.ofHours(1);
+
+	private final ReportExportService reportExportService;
+
+	/** 期間内（from〜to 日、両端を含む）の日報を CSV / NDJSON でダウンロードさせる */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> export(
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(defaultValue = "csv") String format,
+			HttpServletRequest request) {
+		// 書き出し開始後はステータスを変えられないため、パラメータはここで検証する
+		Format f = ReportExportService.parseFormat(format);
+		ReportExportService.validatePeriod(from, to);
+
+		String filename = "reports_" + from + "_" + to + "." + f.extension();
+		StreamingResponseBody body = out -> reportExportService.export(from, to, f, out);
+		// StreamingResponseBody はこのリクエストの非同期処理のタイムアウトで打ち切られるため、このリクエストだけ延ばす
+		WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(EXPORT_TIMEOUT.toMillis());
+		return ResponseEntity.ok()
+				.contentType(new MediaType(MediaType.parseMediaType(f.contentType()), StandardCharsets.UTF_8))
+				.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+				.body(body);
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.onseinippou.application.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.onseinippou.service.ReportSearchService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 日報の全文検索インデックスの管理（管理者用）.
+ */
+@RestController
+@RequestMapping("/api/admin/search-index")
+@RequiredArgsConstructor
+public class SearchIndexController {
+
+	private final ReportSearchService reportSearchService;
+
+	/** インデックスの状態を返す */
+	@GetMapping
+	public ResponseEntity<IndexStatus> status() {
+		return ResponseEntity.ok(new IndexStatus(reportSearchService.indexedCount(), reportSearchService.isRebuilding()));
+	}
+
+	/** DB からインデックスを作り直す（完了は待たない） */
+	@PostMapping("/rebuild")
+	public ResponseEntity<IndexStatus> rebuild() {
+		reportSearchService.requestRebuild();
+		return ResponseEntity.accepted()
+				.body(new IndexStatus(reportSearchService.indexedCount(), reportSearchService.isRebuilding()));
+	}
+
+	/* 応答 DTO */
+	public record IndexStatus(int indexedReports, boolean rebuilding) {
+	}
+}
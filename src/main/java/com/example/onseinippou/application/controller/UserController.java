@@ -4,12 +4,15 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.onseinippou.security.PasswordHashingBusyException;
 import com.example.onseinippou.service.UserService;
 
 import lombok.Data;
@@ -49,6 +52,11 @@ public class UserController {
             return ResponseEntity.ok("ユーザー登録が完了しました。");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (PasswordHashingBusyException e) {
+            // 登録が集中してハッシュ計算の待ち行列が満杯
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(PasswordHashingBusyException.RETRY_AFTER_SECONDS))
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("予期しないエラーが発生しました。");
         }
@@ -0,0 +1,28 @@
+// application/dto/onboarding/OnboardingJobResponse.java
+package com.example.onseinippou.application.dto.onboarding;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record OnboardingJobResponse(
+        String jobId,
+        String status,
+        int teamsTotal,
+        int teamsCompleted,
+        int membersGranted,
+        int membersAlreadyShared,
+        int membersFailed,
+        List<TeamResult> teams,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+    /* チーム1つ分の結果（処理中は sheetId が null） */
+    public record TeamResult(
+            String title,
+            String status,
+            String sheetId,
+            String webViewLink,
+            List<String> failedMembers,
+            String error
+    ) {}
+}
@@ -0,0 +1,20 @@
+// application/dto/onboarding/OnboardingRequest.java
+package com.example.onseinippou.application.dto.onboarding;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+public record OnboardingRequest(
+        @NotEmpty List<@Valid Team> teams
+) {
+    /* チーム1つ分: 作成するスプレッドシート名・格納フォルダ・共有するメンバー */
+    public record Team(
+            @NotBlank String title,
+            String parentFolderId,
+            @NotEmpty List<@Email String> members
+    ) {}
+}
@@ -0,0 +1,27 @@
+// application/dto/report/BulkReportRequest.java
+package com.example.onseinippou.application.dto.report;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import com.example.onseinippou.service.ReportSubmissionGuard;
+
+/**
+ * 日報の一括送信. オフラインで書き溜めた日報をまとめて送る.
+ */
+public record BulkReportRequest(
+        @NotEmpty @Size(max = ReportSubmissionGuard.MAX_BULK_SIZE) List<@NotNull @Valid Item> reports
+) {
+
+    /* 1件分. idempotencyKey は再送時の重複判定用（任意） */
+    public record Item(
+            @NotBlank String text,
+            @Pattern(regexp = ReportSubmissionGuard.KEY_REGEX, message = ReportSubmissionGuard.INVALID_KEY_MESSAGE) String idempotencyKey
+    ) {}
+}
@@ -0,0 +1,23 @@
+// application/dto/report/BulkReportResponse.java
+package com.example.onseinippou.application.dto.report;
+
+import java.util.List;
+
+/**
+ * 日報の一括送信の結果. results は送信された順.
+ */
+public record BulkReportResponse(
+        int accepted,
+        int duplicates,
+        int rejected,
+        List<ItemResult> results
+) {
+
+    /* 1件分の結果. status は ACCEPTED / DUPLICATE / REJECTED */
+    public record ItemResult(
+            int index,
+            String status,
+            Long reportId,
+            String error
+    ) {}
+}
@@ -0,0 +1,11 @@
+package com.example.onseinippou.application.dto.report;
+
+import java.util.List;
+
+/**
+ * 日報履歴の1ページ分. nextCursor を次の要求の cursor に渡すと続きを取得できる（最後のページでは null）.
+ */
+public record ReportPage(
+        List<ReportResponse> items,
+        String nextCursor
+) {}
@@ -7,5 +7,7 @@ public record ReportResponse(
         Long id,
         Long userId,
         String text,
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+        String deliveryStatus,
+        Integer sheetRow
 ) {}
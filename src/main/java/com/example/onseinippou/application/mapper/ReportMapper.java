@@ -1,6 +1,7 @@
 package com.example.onseinippou.application.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
 import com.example.onseinippou.application.dto.report.ReportResponse;
@@ -8,5 +9,7 @@ import com.example.onseinippou.domain.model.report.ReportMeta;
 
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
 public interface ReportMapper {
+    // user はLAZYだが、IDの参照だけならプロキシの初期化（追加のSELECT）は発生しない
+    @Mapping(target = "userId", source = "user.id")
     ReportResponse toResponse(ReportMeta entity);
 }
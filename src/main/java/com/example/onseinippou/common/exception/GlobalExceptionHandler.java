@@ -5,6 +5,8 @@ import java.time.OffsetDateTime;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
@@ -26,6 +28,22 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, ex, req);
     }
 
+    /** @Valid を付けたリクエストボディの検証エラー. 最初の項目のエラーをメッセージにする */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<ApiError> handleInvalidBody(MethodArgumentNotValidException ex, WebRequest req) {
+        FieldError error = ex.getBindingResult().getFieldError();
+        String message = error != null
+                ? error.getField() + ": " + error.getDefaultMessage()
+                : "リクエストの内容が不正です。";
+        return build(HttpStatus.BAD_REQUEST, message, req);
+    }
+
+    /** スプレッドシート未登録. ユーザーが先にシートを登録すれば解消する */
+    @ExceptionHandler(SheetNotRegisteredException.class)
+    public ResponseEntity<ApiError> handleSheetNotRegistered(SheetNotRegisteredException ex, WebRequest req) {
+        return build(HttpStatus.CONFLICT, ex, req);
+    }
+
     /** 最後の砦 (想定外) */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneric(Exception ex, WebRequest req) {
@@ -34,10 +52,14 @@ public class GlobalExceptionHandler {
 
     /* 共通ビルダ */
     private ResponseEntity<ApiError> build(HttpStatus status, Exception ex, WebRequest req) {
+        return build(status, ex.getMessage(), req);
+    }
+
+    private ResponseEntity<ApiError> build(HttpStatus status, String message, WebRequest req) {
         ApiError body = new ApiError(
                 status.value(),
                 status.getReasonPhrase(),
-                ex.getMessage(),
+                message,
                 req.getDescription(false).replace("uri=", ""),   // "/api/upload-audio" など
                 OffsetDateTime.now()
         );
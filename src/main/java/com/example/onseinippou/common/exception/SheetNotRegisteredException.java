@@ -0,0 +1,17 @@
+package com.example.onseinippou.common.exception;
+
+import java.io.Serial;
+
+/**
+ * ログインユーザーがスプレッドシートを登録していないため、シートを必要とする操作を行えないことを表す例外.
+ * サーバーの障害ではなくユーザーの状態によるものなので、GlobalExceptionHandler が 409 に変換する.
+ */
+public class SheetNotRegisteredException extends RuntimeException {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	public SheetNotRegisteredException() {
+		super("スプレッドシートが登録されていません。");
+	}
+}
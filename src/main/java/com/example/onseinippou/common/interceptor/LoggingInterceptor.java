@@ -5,11 +5,14 @@ import java.io.IOException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import com.example.onseinippou.domain.model.user.User;
 import com.example.onseinippou.security.CurrentUserProvider;
+import com.example.onseinippou.security.CustomUserDetails;
+import com.example.onseinippou.security.UserSnapshot;
 
 import lombok.RequiredArgsConstructor;
 
@@ -23,14 +26,22 @@ public class LoggingInterceptor implements HandlerInterceptor{
 	public boolean preHandle(HttpServletRequest request,
 			HttpServletResponse response,
 			Object handler) throws IOException {
-		User user = currentUserProvider.getCurrentUser();
-		
-		if (user.getSheetId() == null) {
-			 // sheetId が無い ⇒ /register-sheet-page へ 302
-			response.sendRedirect("/register-sheet-page");
-			return false; // これ以上のハンドラ呼び出しは行わない
+		// ログイン時点（またはシート登録時）の状態で判定し、DB は読まない
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		if (auth != null && auth.getPrincipal() instanceof CustomUserDetails details && details.hasSheet()) {
+			return true;
 		}
-		return true; // sheetIdあり ⇒ 通常処理
+
+		// 未登録と記録されている場合だけ、他の端末や管理者による登録が無いか確かめる（通常はキャッシュで済む）
+		UserSnapshot user = currentUserProvider.getCurrentUserSnapshot();
+		if (user.hasSheet()) {
+			currentUserProvider.refreshPrincipalSheet(user.sheetId());
+			return true; // sheetIdあり ⇒ 通常処理
+		}
+
+		// sheetId が無い ⇒ /register-sheet-page へ 302
+		response.sendRedirect("/register-sheet-page");
+		return false; // これ以上のハンドラ呼び出しは行わない
 	}
 	
 	
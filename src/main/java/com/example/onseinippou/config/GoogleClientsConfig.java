@@ -1,14 +1,31 @@
 package com.example.onseinippou.config;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.GoogleUtils;
 import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.SslUtils;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.auth.http.HttpCredentialsAdapter;
@@ -20,6 +37,11 @@ public class GoogleClientsConfig {
     /** Cloud Console で登録しているアプリ名（任意） */
     private static final String APP_NAME = "OnseiNippou_app";
 
+    /**
+     * User-Agent に "gzip" を含めないと Google API は gzip 圧縮したレスポンスを返さないため付与する.
+     */
+    private static final String USER_AGENT = APP_NAME + " (gzip)";
+
     /** シート書き込み＋ファイル操作に必要な最小スコープ */
     private static final List<String> SCOPES = List.of(
             "https://www.googleapis.com/auth/drive",
@@ -33,13 +55,83 @@ public class GoogleClientsConfig {
     /**
      * Application Default Credentials を取得し、
      * Drive・Sheets 両方のスコープでラップして返す。
+     * 接続・読み取りのタイムアウトもここで各リクエストに設定する。
      * Spring が DI コンテナに 1 つだけ保持する。
      */
     @Bean
-    public HttpRequestInitializer googleCredential() throws IOException {
+    public HttpRequestInitializer googleCredential(
+            @Value("${app.google.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${app.google.http.read-timeout-ms:20000}") int readTimeoutMs) throws IOException {
         GoogleCredentials cred = GoogleCredentials.getApplicationDefault()
                 .createScoped(SCOPES);
-        return new HttpCredentialsAdapter(cred);
+        return withTimeouts(new HttpCredentialsAdapter(cred), connectTimeoutMs, readTimeoutMs);
+    }
+
+    /**
+     * 認証などの初期化に続けて、接続・読み取りのタイムアウトを設定する初期化処理を返す。
+     * google-http-client はリクエストごとのタイムアウト（既定は 20 秒ずつ）で Apache HttpClient の RequestConfig を作り直し、
+     * HttpClient 側の既定の RequestConfig を置き換えるため、HttpClient ではなくリクエストに設定する。
+     */
+    static HttpRequestInitializer withTimeouts(HttpRequestInitializer delegate, int connectTimeoutMs, int readTimeoutMs) {
+        return request -> {
+            delegate.initialize(request);
+            request.setConnectTimeout(connectTimeoutMs);
+            request.setReadTimeout(readTimeoutMs);
+        };
+    }
+
+    // ---------------------------------------------------------------------
+    // 共通 HTTP トランスポート
+    // ---------------------------------------------------------------------
+
+    /**
+     * Sheets・Drive で共有する、コネクションプール付きの HTTP トランスポート。
+     * Keep-Alive で TLS ハンドシェイクを使い回し、プールの上限で同時接続数を抑える。
+     * プールが埋まっているときに空きを待つ時間は pool-timeout-ms で打ち切る。
+     * コンテナ終了時に shutdown でプールを閉じる。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public HttpTransport googleHttpTransport(
+            @Value("${app.google.http.max-connections:64}") int maxConnections,
+            @Value("${app.google.http.max-connections-per-route:32}") int maxPerRoute,
+            @Value("${app.google.http.pool-timeout-ms:5000}") int poolTimeoutMs)
+            throws GeneralSecurityException, IOException {
+        // Google の証明書ストアで TLS を構成（GoogleNetHttpTransport と同じ信頼設定）
+        SSLContext sslContext = SslUtils.getTlsSslContext();
+        SslUtils.initSslContext(sslContext, GoogleUtils.getCertificateTrustStore(),
+                SslUtils.getPkixTrustManagerFactory());
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("https", new SSLConnectionSocketFactory(sslContext))
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .build(),
+                null, null, null, 5, TimeUnit.MINUTES);
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+        // しばらく使っていない接続はサーバー側で切られている可能性があるので、再利用前に確認する
+        pool.setValidateAfterInactivity(10_000);
+
+        CloseableHttpClient httpClient = ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setConnectionManager(pool)
+                .addInterceptorLast(poolTimeout(poolTimeoutMs))
+                .evictIdleConnections(60, TimeUnit.SECONDS)
+                .build();
+        return new ApacheHttpTransport(httpClient);
+    }
+
+    /**
+     * プールから接続を借りるまでの待ち時間を設定するインターセプター。
+     * リクエストごとの RequestConfig（google-http-client が作る）には待ち時間が無く、そのままでは無期限に待つため、
+     * 接続を借りる前に実行されるインターセプターで、実行中のリクエストの RequestConfig に待ち時間を足す。
+     */
+    static HttpRequestInterceptor poolTimeout(int poolTimeoutMs) {
+        return (request, context) -> {
+            HttpClientContext clientContext = HttpClientContext.adapt(context);
+            clientContext.setRequestConfig(RequestConfig.copy(clientContext.getRequestConfig())
+                    .setConnectionRequestTimeout(poolTimeoutMs)
+                    .build());
+        };
     }
 
 
@@ -52,12 +144,12 @@ public class GoogleClientsConfig {
      * controller / service から@Autowiredで注入して利用する。
      */
     @Bean
-    public Sheets sheets(HttpRequestInitializer cred) throws Exception {
+    public Sheets sheets(HttpTransport googleHttpTransport, HttpRequestInitializer cred) {
         return new Sheets.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
+                    googleHttpTransport,
                     GsonFactory.getDefaultInstance(),
                     cred)
-                .setApplicationName(APP_NAME)
+                .setApplicationName(USER_AGENT)
                 .build();
     }
 
@@ -70,12 +162,12 @@ public class GoogleClientsConfig {
      * ファイル作成・共有権限付与などに利用する。
      */
     @Bean
-    public Drive drive(HttpRequestInitializer cred) throws Exception {
+    public Drive drive(HttpTransport googleHttpTransport, HttpRequestInitializer cred) {
         return new Drive.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
+                    googleHttpTransport,
                     GsonFactory.getDefaultInstance(),
                     cred)
-                .setApplicationName(APP_NAME)
+                .setApplicationName(USER_AGENT)
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.example.onseinippou.config;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.domain.repository.ReportMetaRepository;
+import com.example.onseinippou.domain.repository.ReportOutboxRepository;
+import com.example.onseinippou.domain.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 採番テーブル（users_seq / reports_meta_seq / report_outbox_seq）を既存データに合わせる.
+ * <p>
+ * ID の採番を IDENTITY（AUTO_INCREMENT）から採番テーブル＋pooled-lo に切り替えたため、
+ * 切り替え前に登録された行と同じ ID を払い出さないよう、起動時に次の値を各テーブルの最大ID＋1以上に引き上げる.
+ * 採番テーブルはスキーマ更新（ddl-auto=update）で EntityManagerFactory の初期化時に作られるので、
+ * ここではその後、Web リクエストやスケジュール処理が INSERT を始める前に揃える.
+ * 何度実行しても結果は変わらず、複数インスタンスが同時に起動しても UPDATE 1文なので問題ない.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceInitializer {
+
+	private final UserRepository userRepository;
+	private final ReportMetaRepository reportMetaRepository;
+	private final ReportOutboxRepository reportOutboxRepository;
+
+	@PostConstruct
+	public void alignSequences() {
+		userRepository.alignIdSequence();
+		reportMetaRepository.alignIdSequence();
+		reportOutboxRepository.alignIdSequence();
+		log.info("採番テーブルを既存データの最大IDに揃えました。");
+	}
+}
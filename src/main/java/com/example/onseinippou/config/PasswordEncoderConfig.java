@@ -0,0 +1,77 @@
+package com.example.onseinippou.config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.onseinippou.security.BoundedPasswordEncoder;
+import com.example.onseinippou.security.PasswordHashingExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * パスワードのハッシュ方式の設定.
+ * 保存形式は {bcrypt}$2a$12$... のように方式IDを前置し、将来方式や強度を変えても古いハッシュを照合できるようにする.
+ * 方式・強度が現在の設定より古いハッシュは、ログイン成功時に CustomUserDetailsService が付け替える.
+ */
+@Configuration
+@Slf4j
+public class PasswordEncoderConfig {
+
+	private static final String ENCODING_ID = "bcrypt";
+	/** BCrypt の強度の下限（Spring Security の既定値）と上限. */
+	static final int MIN_STRENGTH = 10;
+	static final int MAX_STRENGTH = 16;
+
+	/**
+	 * @param strength BCrypt の強度. 0 以下なら起動時に計測し、targetLatency に収まる最大の強度にする.
+	 *                 インスタンスごとに計測結果が違うと付け替えが偏るため、本番では明示すること.
+	 * @param targetLatency ハッシュ1回あたりの目標時間.
+	 */
+	@Bean
+	public PasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor,
+			@Value("${app.security.password.bcrypt-strength:0}") int strength,
+			@Value("${app.security.password.target-latency:250ms}") Duration targetLatency) {
+		int cost = strength > 0 ? strength : tuneStrength(targetLatency);
+		log.info("パスワードのハッシュに BCrypt（強度 {}）を使います。", cost);
+
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+		DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(ENCODING_ID, Map.of(ENCODING_ID, bcrypt));
+		// 方式IDの無い既存のハッシュ（$2a$10$...）も BCrypt として照合する. ログイン時に方式ID付きへ付け替わる
+		delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+		return new BoundedPasswordEncoder(delegating, passwordHashingExecutor);
+	}
+
+	/**
+	 * 下限の強度で実測し、強度を1上げるごとに時間が2倍になることから、目標時間に収まる最大の強度を求める.
+	 */
+	static int tuneStrength(Duration targetLatency) {
+		BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+		// 1回目は JIT が効いていないため捨て、残りの中央値を使う
+		probe.encode("warm-up");
+		long[] samples = new long[3];
+		for (int i = 0; i < samples.length; i++) {
+			long start = System.nanoTime();
+			probe.encode("calibration-" + i);
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		long nanos = samples[samples.length / 2];
+
+		int strength = MIN_STRENGTH;
+		while (strength < MAX_STRENGTH && nanos * 2 <= targetLatency.toNanos()) {
+			strength++;
+			nanos *= 2;
+		}
+		log.info("BCrypt の強度を計測しました。 強度 {} で約 {} ms（目標 {} ms）",
+				strength, nanos / 1_000_000, targetLatency.toMillis());
+		return strength;
+	}
+}
@@ -1,16 +1,17 @@
 package com.example.onseinippou.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.session.HttpSessionEventPublisher;
 
 import com.example.onseinippou.security.CustomAuthenticationSuccessHandler;
 import com.example.onseinippou.security.CustomOAuth2UserService;
 import com.example.onseinippou.security.CustomUserDetailsService;
+import com.example.onseinippou.security.LoginFailureHandler;
 
 import lombok.RequiredArgsConstructor;
 
@@ -21,12 +22,18 @@ public class SecurityConfig {
 	private final CustomOAuth2UserService customOAuth2UserService;
 	private final CustomUserDetailsService customUserDetailsService;
 	private final CustomAuthenticationSuccessHandler customAuthenticationSuccessHandler;
+	private final LoginFailureHandler loginFailureHandler;
+	private final SessionRegistry sessionRegistry;
 
 	@Bean
 	public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 		http
 				// 認可ルール
 				.authorizeHttpRequests(auth -> auth
+						// Prometheus のスクレイプ（管理ポートでだけ一致する。アプリのポートには公開されない）
+						.requestMatchers(EndpointRequest.to("prometheus")).permitAll()
+						// 管理者用 API（/api/** の permitAll より先に判定させる）
+						.requestMatchers("/api/admin/**").hasRole("ADMIN")
 						.requestMatchers("/", "/login", "/api/**", "/index.html", "/assets/**", "/static/**",
 								"/vite.svg", "/favicon.ico", "/.well-known/**")
 						.permitAll()
@@ -35,6 +42,8 @@ public class SecurityConfig {
 				.formLogin(form -> form
 						.loginPage("/login")
 						.defaultSuccessUrl("/onsei-nippou-page", true)
+						// ハッシュ計算が混み合っている場合は 429 を返す
+						.failureHandler(loginFailureHandler)
 						.permitAll())
 				.oauth2Login(oauth -> oauth
 						.loginPage("/login")
@@ -48,8 +57,9 @@ public class SecurityConfig {
 						.permitAll())
 				// セッション管理（ラムダ DSL）
 				.sessionManagement(sess -> sess
-						// 1ユーザー1セッションのみ許可
+						// 1ユーザー1セッションのみ許可（セッションストア上で判定するため全インスタンス共通）
 						.maximumSessions(1)
+						.sessionRegistry(sessionRegistry)
 						.maxSessionsPreventsLogin(false) // = 後勝ち
 						.expiredUrl("/login?expired=true") // 期限切れ遷移先
 				)
@@ -61,13 +71,7 @@ public class SecurityConfig {
 		return http.build();
 	}
 
-	/** BCrypt パスワードハッシュ  */
-	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
-	}
-
-	/** セッション破棄イベントを拾う（maximumSessions が正しく動作するために推奨） */
+	/** セッション破棄イベントを拾う（共有セッションストアが無い場合のインスタンス内レジストリで必要） */
 	@Bean
 	public HttpSessionEventPublisher httpSessionEventPublisher() {
 		return new HttpSessionEventPublisher();
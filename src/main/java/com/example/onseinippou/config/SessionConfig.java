@@ -0,0 +1,40 @@
+package com.example.onseinippou.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HTTP セッションの保存先とセッションレジストリの設定.
+ * セッションは Spring Session JDBC で MySQL（SPRING_SESSION テーブル）に保存し、どのインスタンスでも読めるようにする.
+ * 「1ユーザー1セッション（後勝ち）」の判定も同じテーブルのプリンシパル名の索引で行うため、
+ * スティッキールーティング無しでインスタンスをまたいで成り立つ.
+ */
+@Configuration
+@Slf4j
+public class SessionConfig {
+
+	/**
+	 * セッションストアがあればそれを使うレジストリ、無ければ（DB を使わないテストなど）インスタンス内のレジストリ.
+	 */
+	@Bean
+	public SessionRegistry sessionRegistry(ObjectProvider<FindByIndexNameSessionRepository<? extends Session>> sessions) {
+		FindByIndexNameSessionRepository<? extends Session> repository = sessions.getIfAvailable();
+		if (repository == null) {
+			log.warn("共有セッションストアが無いため、セッションレジストリはインスタンス内でのみ有効です。");
+			return new SessionRegistryImpl();
+		}
+		return sharedRegistry(repository);
+	}
+
+	static <S extends Session> SessionRegistry sharedRegistry(FindByIndexNameSessionRepository<S> repository) {
+		return new SpringSessionBackedSessionRegistry<>(repository);
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.onseinippou.config.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 読み取り専用トランザクション（@Transactional(readOnly = true)）をレプリカへ、それ以外をプライマリへ振り分ける DataSource.
+ * <p>
+ * トランザクションの readOnly 属性は接続を取得した後に設定されることがあるため、
+ * LazyConnectionDataSourceProxy で包み、最初の SQL を実行する時点で振り分けること.
+ * レプリカが遅延している・接続できない場合はプライマリで読む.
+ */
+public final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	/** 振り分け先 */
+	public enum Route {
+		PRIMARY,
+		REPLICA
+	}
+
+	private final DataSource primary;
+	private final ReplicaHealth replicaHealth;
+
+	public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaHealth replicaHealth) {
+		this.primary = primary;
+		this.replicaHealth = replicaHealth;
+		setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+		setDefaultTargetDataSource(primary);
+		// LazyConnectionDataSourceProxy に包んで Bean にするため Spring からは呼ばれない. ここで振り分け先を確定する
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return currentRoute();
+	}
+
+	/**
+	 * 現在のスレッドのトランザクションが使う振り分け先.
+	 */
+	public Route currentRoute() {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaHealth.isUsable()) {
+			return Route.REPLICA;
+		}
+		return Route.PRIMARY;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Route route = currentRoute();
+		try {
+			return super.getConnection();
+		} catch (SQLException e) {
+			return fallback(route, e);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		Route route = currentRoute();
+		try {
+			return super.getConnection(username, password);
+		} catch (SQLException e) {
+			return fallback(route, e);
+		}
+	}
+
+	/* レプリカに接続できなければプライマリで読む. プライマリの失敗はそのまま返す */
+	private Connection fallback(Route route, SQLException e) throws SQLException {
+		if (route != Route.REPLICA) {
+			throw e;
+		}
+		replicaHealth.markFailed(e);
+		Connection connection = primary.getConnection();
+		connection.setReadOnly(true);
+		return connection;
+	}
+}
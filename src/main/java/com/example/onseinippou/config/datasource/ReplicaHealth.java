@@ -0,0 +1,58 @@
+package com.example.onseinippou.config.datasource;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * レプリカを読み取りに使ってよいかどうかの状態.
+ * 遅延が許容範囲を超えた・遅延を確認できない・接続に失敗した場合は使わず、プライマリで読む.
+ */
+@Slf4j
+public class ReplicaHealth {
+
+	private final long maxLagSeconds;
+
+	private volatile boolean usable = true;
+	private volatile long lagSeconds;
+
+	public ReplicaHealth(Duration maxLag) {
+		this.maxLagSeconds = maxLag.toSeconds();
+	}
+
+	/** レプリカで読んでよいか. */
+	public boolean isUsable() {
+		return usable;
+	}
+
+	/** 直近に確認したレプリカの遅延（秒）. */
+	public long lagSeconds() {
+		return lagSeconds;
+	}
+
+	/**
+	 * 遅延の確認結果を反映する.
+	 * @param lag レプリカの遅延（秒）. レプリケーションが止まっているなど確認できなかった場合は空.
+	 */
+	public void update(OptionalLong lag) {
+		boolean wasUsable = usable;
+		lagSeconds = lag.orElse(-1);
+		usable = lag.isPresent() && lag.getAsLong() <= maxLagSeconds;
+		if (wasUsable && !usable) {
+			log.warn("レプリカの遅延が許容範囲を超えたため、読み取りをプライマリに切り替えます。 遅延: {} 秒", lagSeconds);
+		} else if (!wasUsable && usable) {
+			log.info("レプリカの遅延が許容範囲に戻ったため、読み取りをレプリカに戻します。 遅延: {} 秒", lagSeconds);
+		}
+	}
+
+	/**
+	 * レプリカへの接続に失敗したことを記録する. 次に遅延を確認できるまでプライマリで読む.
+	 */
+	public void markFailed(Exception cause) {
+		if (usable) {
+			log.warn("レプリカに接続できないため、読み取りをプライマリに切り替えます。", cause);
+		}
+		usable = false;
+	}
+}
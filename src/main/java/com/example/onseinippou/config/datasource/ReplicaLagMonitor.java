@@ -0,0 +1,52 @@
+package com.example.onseinippou.config.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.OptionalLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * レプリカの遅延（MySQL の Seconds_Behind_Source）を定期的に確認し、ReplicaHealth に反映する.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+	private final DataSource replica;
+	private final ReplicaHealth replicaHealth;
+
+	public ReplicaLagMonitor(DataSource replica, ReplicaHealth replicaHealth) {
+		this.replica = replica;
+		this.replicaHealth = replicaHealth;
+	}
+
+	@Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:5000}")
+	public void check() {
+		replicaHealth.update(probe());
+	}
+
+	/**
+	 * レプリカの遅延（秒）を返す. 確認できない（レプリケーション停止・接続失敗）場合は空.
+	 */
+	OptionalLong probe() {
+		try (Connection c = replica.getConnection();
+				Statement st = c.createStatement();
+				ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+			if (!rs.next()) {
+				// レプリケーションを設定していないサーバー（ローカル環境でプライマリを指している場合など）は遅延なしとみなす
+				return OptionalLong.of(0);
+			}
+			long lag = rs.getLong("Seconds_Behind_Source");
+			return rs.wasNull() ? OptionalLong.empty() : OptionalLong.of(lag);
+
+		} catch (Exception e) {
+			log.debug("レプリカの遅延を確認できませんでした。", e);
+			return OptionalLong.empty();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.onseinippou.config.datasource;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 読み取り専用トランザクションをレプリカへ振り分ける DataSource の設定.
+ * app.datasource.replica.url を設定した場合だけ有効になり、未設定なら従来どおり spring.datasource の1つだけを使う.
+ * <pre>
+ * app.datasource.replica.url=jdbc:mysql://replica:3306/onsei_nippou
+ * app.datasource.replica.username=...   （省略時はプライマリと同じ）
+ * app.datasource.replica.password=...
+ * app.datasource.replica.max-lag=5s     （これを超えて遅延したらプライマリで読む）
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.url")
+public class RoutingDataSourceConfig {
+
+	/** プライマリの接続プール（spring.datasource.* と spring.datasource.hikari.* を使う）. */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	/** レプリカの接続プール（app.datasource.replica.hikari.* でプールを調整できる）. */
+	@Bean
+	@ConfigurationProperties("app.datasource.replica.hikari")
+	public HikariDataSource replicaDataSource(DataSourceProperties properties,
+			@Value("${app.datasource.replica.url}") String url,
+			@Value("${app.datasource.replica.username:#{null}}") String username,
+			@Value("${app.datasource.replica.password:#{null}}") String password) {
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class)
+				.url(url)
+				.username(username != null ? username : properties.determineUsername())
+				.password(password != null ? password : properties.determinePassword())
+				.build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	@Bean
+	public ReplicaHealth replicaHealth(@Value("${app.datasource.replica.max-lag:5s}") Duration maxLag) {
+		return new ReplicaHealth(maxLag);
+	}
+
+	@Bean
+	public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+			ReplicaHealth replicaHealth) {
+		return new ReplicaLagMonitor(replica, replicaHealth);
+	}
+
+	/**
+	 * JPA などが使う DataSource. 接続の取得を最初の SQL まで遅らせ、その時点のトランザクション属性で振り分ける.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+			@Qualifier("replicaDataSource") DataSource replica, ReplicaHealth replicaHealth) {
+		return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, replicaHealth));
+	}
+}
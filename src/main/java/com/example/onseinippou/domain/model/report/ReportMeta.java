@@ -4,13 +4,18 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 import com.example.onseinippou.domain.model.user.User;
 
@@ -22,15 +27,35 @@ import lombok.NoArgsConstructor;
 
 @Entity
 
-@Table(name = "reports_meta")
+@Table(name = "reports_meta", indexes = {
+		// ユーザーごとの履歴をキーセットで新しい順に読むための複合インデックス
+		@Index(name = "idx_reports_meta_user_created_id", columnList = "user_id, created_at, id"),
+		// 全文検索インデックスの取り込みと一括エクスポートで、作成日時の範囲を読むためのインデックス
+		@Index(name = "idx_reports_meta_created_id", columnList = "created_at, id")
+}, uniqueConstraints = {
+		// 同じ冪等キーでの再送信を、複数インスタンス間でも1件に抑える
+		@UniqueConstraint(name = "uk_reports_meta_user_idempotency_key", columnNames = { "user_id", "idempotency_key" })
+})
 @Getter
 @Builder
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor
 public class ReportMeta {
 
+	/** スプレッドシートへの送信状態 */
+	public enum DeliveryStatus {
+		/* 送信待ち */
+		PENDING,
+		/* 送信済み */
+		DELIVERED,
+		/* 送信を断念した */
+		FAILED
+	}
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	// IDENTITY だと INSERT をバッチにできないため、採番テーブルから50件ずつまとめて払い出す（pooled-lo）
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reports_meta_seq")
+	@SequenceGenerator(name = "reports_meta_seq", sequenceName = "reports_meta_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -41,8 +66,36 @@ public class ReportMeta {
 	@Column(nullable = false)
 	private String sheetId;
 
-	/* 書き込んだ行番号 */
-	@Column(nullable = false)
+	/* 書き込んだ行番号（スプレッドシートへの送信が完了するまでは null） */
 	private Integer sheetRow;
 	private LocalDateTime createdAt;
+
+	/* 日報本文. 履歴表示などで Sheets API を呼ばずに済むよう手元にも保存する */
+	@Column(columnDefinition = "TEXT")
+	private String text;
+
+	/* クライアントが付けた冪等キー（Idempotency-Key ヘッダ）. 指定が無ければ null */
+	@Column(name = "idempotency_key", length = 64)
+	private String idempotencyKey;
+
+	/* スプレッドシートへの送信状態 */
+	@Enumerated(EnumType.STRING)
+	@Column(length = 16)
+	@Builder.Default
+	private DeliveryStatus deliveryStatus = DeliveryStatus.PENDING;
+
+	/**
+	 * スプレッドシートへの送信完了時に、書き込んだ行番号を記録する.
+	 */
+	public void markDelivered(int sheetRow) {
+		this.sheetRow = sheetRow;
+		this.deliveryStatus = DeliveryStatus.DELIVERED;
+	}
+
+	/**
+	 * スプレッドシートへの送信を断念したことを記録する.
+	 */
+	public void markDeliveryFailed() {
+		this.deliveryStatus = DeliveryStatus.FAILED;
+	}
 }
@@ -0,0 +1,120 @@
+package com.example.onseinippou.domain.model.report;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * スプレッドシートへの送信待ち日報（トランザクショナル・アウトボックス）.
+ * 日報の受付時に ReportMeta と同じトランザクションで登録し、
+ * バックグラウンドのディスパッチャーが Sheets へ送信する.
+ */
+@Entity
+@Table(name = "report_outbox", indexes = {
+		@Index(name = "idx_report_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@Getter
+@Builder
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class ReportOutbox {
+
+	/** 送信状態 */
+	public enum Status {
+		/* 送信待ち（リトライ待ちを含む） */
+		PENDING,
+		/* 送信済み */
+		SENT,
+		/* リトライ上限に達し送信を断念した */
+		FAILED
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "report_outbox_seq")
+	@SequenceGenerator(name = "report_outbox_seq", sequenceName = "report_outbox_seq", allocationSize = 50)
+	private Long id;
+
+	/* 送信完了後に行番号を書き戻す日報メタ */
+	@OneToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "report_meta_id", nullable = false, unique = true)
+	private ReportMeta reportMeta;
+
+	/* 送信先シートID（受付時点のもの） */
+	@Column(nullable = false)
+	private String sheetId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	@Builder.Default
+	private Status status = Status.PENDING;
+
+	/* 送信試行回数 */
+	@Builder.Default
+	private int attempts = 0;
+
+	/* 次回送信を試みてよい時刻 */
+	@Column(name = "next_attempt_at", nullable = false)
+	private LocalDateTime nextAttemptAt;
+
+	/* 送信中のインスタンスが保持するロックの期限. 期限切れなら他のインスタンスが拾い直せる */
+	private LocalDateTime lockedUntil;
+
+	/* 直近の失敗理由 */
+	@Column(length = 1000)
+	private String lastError;
+
+	private LocalDateTime createdAt;
+	private LocalDateTime deliveredAt;
+
+	/**
+	 * 送信成功を記録する.
+	 */
+	public void markSent(LocalDateTime now) {
+		this.status = Status.SENT;
+		this.attempts++;
+		this.deliveredAt = now;
+		this.lockedUntil = null;
+		this.lastError = null;
+	}
+
+	/**
+	 * 送信する日報本文（ReportMeta に保存したもの）.
+	 */
+	public String getText() {
+		return reportMeta.getText();
+	}
+
+	/**
+	 * 送信失敗を記録する. リトライ上限に達した場合は FAILED にする.
+	 * @param nextAttemptAt 次回送信予定時刻.
+	 * @param maxAttempts リトライ上限.
+	 */
+	public void markAttemptFailed(String error, LocalDateTime nextAttemptAt, int maxAttempts) {
+		this.attempts++;
+		this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+		this.lockedUntil = null;
+		this.nextAttemptAt = nextAttemptAt;
+		if (this.attempts >= maxAttempts) {
+			this.status = Status.FAILED;
+			this.reportMeta.markDeliveryFailed();
+		}
+	}
+}
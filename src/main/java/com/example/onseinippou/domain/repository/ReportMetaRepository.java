@@ -1,8 +1,152 @@
 package com.example.onseinippou.domain.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.onseinippou.domain.model.report.ReportMeta;
+import com.example.onseinippou.domain.model.report.ReportMeta.DeliveryStatus;
+
+public interface ReportMetaRepository extends JpaRepository<ReportMeta, Long> {
+
+	/* 全文検索インデックスの再構築に必要な列だけを取り出す射影 */
+	interface IndexRow {
+		Long getId();
+
+		Long getUserId();
+
+		String getSheetId();
+
+		String getText();
+	}
+
+	/* 履歴一覧に必要な列だけを取り出す射影. ReportMeta と User のプロキシを作らずに済む */
+	interface HistoryRow {
+		Long getId();
+
+		LocalDateTime getCreatedAt();
+
+		String getText();
+
+		DeliveryStatus getDeliveryStatus();
+
+		Integer getSheetRow();
+	}
+
+	/* 一括エクスポートの1行. 日報とユーザーのエンティティを作らずに読み出す */
+	interface ExportRow {
+		Long getId();
+
+		Long getUserId();
+
+		String getEmail();
+
+		String getSheetId();
+
+		LocalDateTime getCreatedAt();
+
+		DeliveryStatus getDeliveryStatus();
+
+		Integer getSheetRow();
+
+		String getText();
+	}
+
+	// 冪等キーで受付済みの日報を探す
+	Optional<ReportMeta> findByUser_IdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+	// 一括送信で、受付済みの冪等キーをまとめて探す
+	List<ReportMeta> findByUser_IdAndIdempotencyKeyIn(Long userId, Collection<String> idempotencyKeys);
+
+	/**
+	 * ユーザーの日報を新しい順に先頭から取得する（履歴の1ページ目）.
+	 */
+	@Query("""
+			select m.id as id, m.createdAt as createdAt, m.text as text,
+			       m.deliveryStatus as deliveryStatus, m.sheetRow as sheetRow
+			  from ReportMeta m
+			 where m.user.id = :userId
+			 order by m.createdAt desc, m.id desc
+			""")
+	List<HistoryRow> findHistoryHead(@Param("userId") Long userId, Limit limit);
+
+	/**
+	 * 前のページの最後の1件（作成日時とID）より古い日報を新しい順に取得する.
+	 * (user_id, created_at, id) のインデックスを範囲で読むため、何ページ目でも読み飛ばしが発生しない.
+	 */
+	@Query("""
+			select m.id as id, m.createdAt as createdAt, m.text as text,
+			       m.deliveryStatus as deliveryStatus, m.sheetRow as sheetRow
+			  from ReportMeta m
+			 where m.user.id = :userId
+			   and m.createdAt <= :createdAt
+			   and (m.createdAt < :createdAt or m.id < :id)
+			 order by m.createdAt desc, m.id desc
+			""")
+	List<HistoryRow> findHistoryAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+			@Param("id") Long id, Limit limit);
+
+	/**
+	 * 指定IDより後の日報を ID 順に取得する. 全文検索インデックスの再構築で、件数に依らず一定量ずつ読むために使う.
+	 */
+	@Query("""
+			select m.id as id, m.user.id as userId, m.sheetId as sheetId, m.text as text
+			  from ReportMeta m
+			 where m.id > :afterId and m.text is not null
+			 order by m.id
+			""")
+	List<IndexRow> findIndexRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+	/**
+	 * 指定日時以降に作成された日報を作成順に取得する. 他インスタンスで受け付けた日報を全文検索インデックスへ取り込むために使う.
+	 * ID はインスタンスごとの採番範囲から払い出され作成順に並ばないため、作成日時で絞り込む.
+	 */
+	@Query("""
+			select m.id as id, m.user.id as userId, m.sheetId as sheetId, m.text as text
+			  from ReportMeta m
+			 where m.createdAt >= :since and m.text is not null
+			 order by m.createdAt, m.id
+			""")
+	List<IndexRow> findIndexRowsCreatedSince(@Param("since") LocalDateTime since, Limit limit);
 
-public interface ReportMetaRepository extends JpaRepository<ReportMeta, Long> {}
+	/**
+	 * 期間内の日報を ID 順に1行ずつ読み出す. 呼び出し側はトランザクション内で Stream を閉じるまで読み切ること.
+	 * MySQL Connector/J は fetchSize に Integer.MIN_VALUE を指定すると結果セットを一括で読み込まず
+	 * 1行ずつ受け取るため、件数に依らずヒープ使用量が一定になる.
+	 */
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("""
+			select m.id as id, u.id as userId, u.email as email, m.sheetId as sheetId,
+			       m.createdAt as createdAt, m.deliveryStatus as deliveryStatus,
+			       m.sheetRow as sheetRow, m.text as text
+			  from ReportMeta m join m.user u
+			 where m.createdAt >= :from and m.createdAt < :to
+			 order by m.id
+			""")
+	Stream<ExportRow> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
+	/**
+	 * 採番テーブルの次の値を、既存の最大IDより後ろに揃える. IDENTITY で登録済みの行とIDが重ならないようにする.
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "update reports_meta_seq set next_val = greatest(next_val, (select coalesce(max(id), 0) + 1 from reports_meta))",
+			nativeQuery = true)
+	int alignIdSequence();
+}
@@ -0,0 +1,49 @@
+package com.example.onseinippou.domain.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.onseinippou.domain.model.report.ReportOutbox;
+
+public interface ReportOutboxRepository extends JpaRepository<ReportOutbox, Long> {
+
+	/**
+	 * 送信時刻を迎えた送信待ちの日報を、本文を持つ日報メタと一緒に古い順に取得する.
+	 */
+	@Query("""
+			select o from ReportOutbox o join fetch o.reportMeta
+			 where o.status = com.example.onseinippou.domain.model.report.ReportOutbox.Status.PENDING
+			   and o.nextAttemptAt <= :now
+			   and (o.lockedUntil is null or o.lockedUntil < :now)
+			 order by o.id
+			""")
+	List<ReportOutbox> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+	/**
+	 * 送信権を取得する. 他のインスタンスが先に取得していれば 0 を返す.
+	 */
+	@Modifying
+	@Transactional
+	@Query("""
+			update ReportOutbox o set o.lockedUntil = :until
+			 where o.id = :id
+			   and o.status = com.example.onseinippou.domain.model.report.ReportOutbox.Status.PENDING
+			   and (o.lockedUntil is null or o.lockedUntil < :now)
+			""")
+	int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+	// 採番テーブルを既存の最大IDの後ろに揃える（起動時に IdSequenceInitializer から呼ぶ）
+	@Modifying
+	@Transactional
+	@Query(value = "update report_outbox_seq set next_val = greatest(next_val, (select coalesce(max(id), 0) + 1 from report_outbox))",
+			nativeQuery = true)
+	int alignIdSequence();
+}
@@ -1,16 +1,41 @@
 package com.example.onseinippou.domain.repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
+import jakarta.transaction.Transactional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.onseinippou.domain.model.user.User;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // まだシートを登録していないユーザーにだけ、まとめてシートを登録する（1回の UPDATE）
+    @Modifying
+    @Transactional
+    @Query("update User u set u.sheetId = :sheetId, u.updatedAt = CURRENT_TIMESTAMP where u.email in :emails and u.sheetId is null")
+    int assignSheetIdIfAbsent(@Param("emails") Collection<String> emails, @Param("sheetId") String sheetId);
+
+    // ログイン時にハッシュ方式・強度が古いパスワードを付け替える（CustomUserDetailsService から呼ぶ）
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :password, u.updatedAt = CURRENT_TIMESTAMP where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    // 採番テーブルの次の値を既存の最大IDより後ろに揃える（IDENTITY で登録済みのユーザーとIDを重ねない）
+    @Modifying
+    @Transactional
+    @Query(value = "update users_seq set next_val = greatest(next_val, (select coalesce(max(id), 0) + 1 from users))",
+            nativeQuery = true)
+    int alignIdSequence();
 }
 
 // Optional<UserEntity> findByEmail(String email);
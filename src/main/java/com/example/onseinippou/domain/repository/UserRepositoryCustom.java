@@ -0,0 +1,13 @@
+package com.example.onseinippou.domain.repository;
+
+/**
+ * Spring Data のクエリメソッドでは書けない User の操作（実装は UserRepositoryCustomImpl）.
+ */
+public interface UserRepositoryCustom {
+
+	/**
+	 * メールアドレスのユーザーが無ければ一般ユーザーとして登録する（INSERT ... ON DUPLICATE KEY UPDATE の1文）.
+	 * 同じメールアドレスで同時に登録されても一意制約違反にはならず、既存の行はそのまま残る.
+	 */
+	void insertIfAbsent(String email);
+}
@@ -0,0 +1,38 @@
+package com.example.onseinippou.domain.repository;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.onseinippou.domain.model.user.User;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional
+	public void insertIfAbsent(String email) {
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		// ID は User の採番（pooled-lo）から取る. 払い出し済みの範囲が残っていれば DB にはアクセスしない.
+		// 既存の行があった場合、この ID は使われずに捨てられる
+		IdentifierGenerator generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+				.getEntityDescriptor(User.class).getGenerator();
+		Long id = (Long) generator.generate(session, null);
+		LocalDateTime now = LocalDateTime.now();
+		entityManager.createNativeQuery("""
+				insert into users (id, email, role, created_at, updated_at)
+				values (:id, :email, 'ROLE_USER', :now, :now)
+				on duplicate key update id = id""")
+				.setParameter("id", id)
+				.setParameter("email", email)
+				.setParameter("now", now)
+				.executeUpdate();
+	}
+}
@@ -0,0 +1,9 @@
+package com.example.onseinippou.infra.google;
+
+/**
+ * 呼び出し先の Google REST API. クォータはAPIごとに管理されるため、レート制限もこの単位で分ける.
+ */
+public enum GoogleApi {
+	SHEETS,
+	DRIVE
+}
@@ -0,0 +1,222 @@
+package com.example.onseinippou.infra.google;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.annotation.Nullable;
+
+import org.springframework.stereotype.Component;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpResponseException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sheets / Drive のリクエストを、レート制限とリトライ付きで実行する共通処理.
+ * リトライするのはクォータ超過・一時的なサーバーエラーを示すステータスのみで、
+ * Retry-After ヘッダーがあればその指示に従う.
+ * ただし冪等でないリクエスト（POST. 例: spreadsheets.values.append）は、5xx だと書き込みが適用済みの可能性があり
+ * 再送すると行が重複するため、適用されていないことが確実なクォータ超過のときだけリトライする.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GoogleApiExecutor {
+
+	/** 最大試行回数（初回を含む）. */
+	private static final int MAX_ATTEMPTS = 5;
+	/** バックオフの初期値と上限. */
+	private static final long BASE_BACKOFF_MILLIS = 1_000;
+	private static final long MAX_BACKOFF_MILLIS = 32_000;
+
+	/** クォータ超過. リクエストは適用されていない. */
+	private static final int TOO_MANY_REQUESTS = 429;
+	/** 一時的なサーバーエラー. リクエストが適用済みかどうかは分からない. */
+	private static final Set<Integer> SERVER_ERROR_STATUS = Set.of(500, 502, 503, 504);
+	/** 同じリクエストを再送しても結果が変わらない HTTP メソッド. */
+	private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE");
+	/** Drive は 403 でレート制限を返すため、理由コードで判定する. */
+	private static final Set<String> RATE_LIMIT_REASONS = Set.of("rateLimitExceeded", "userRateLimitExceeded");
+
+	private final GoogleApiRateLimiter rateLimiter;
+	private final MeterRegistry meterRegistry;
+
+	/** リクエストクラスごとのメソッド名（例: spreadsheets.values.append）のキャッシュ. */
+	private final Map<Class<?>, String> methodNames = new ConcurrentHashMap<>();
+
+	/**
+	 * リクエストを実行する.
+	 * @param api 呼び出し先API.
+	 * @param fileId 対象スプレッドシート/ファイルのID（ファイルを特定しない呼び出しは null）.
+	 * @param request 実行するリクエスト.
+	 * @return レスポンス.
+	 * @throws IOException リトライ対象外のエラー、またはリトライ上限に達した場合.
+	 */
+	public <T> T execute(GoogleApi api, @Nullable String fileId, AbstractGoogleClientRequest<T> request)
+			throws IOException {
+		boolean idempotent = IDEMPOTENT_METHODS.contains(request.getRequestMethod());
+		for (int attempt = 1;; attempt++) {
+			try {
+				rateLimiter.acquire(api, fileId);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Google API 呼び出しの待機中に割り込まれました。");
+			}
+
+			Timer.Sample sample = Timer.start(meterRegistry);
+			String outcome = "success";
+			try {
+				return request.execute();
+
+			} catch (HttpResponseException e) {
+				outcome = String.valueOf(e.getStatusCode());
+				if (!(idempotent ? isRetryable(e) : isThrottled(e)) || attempt >= MAX_ATTEMPTS) {
+					throw e;
+				}
+				Duration delay = retryAfter(e);
+				if (delay == null) {
+					delay = backoff(attempt);
+				}
+				rateLimiter.onThrottled(api, fileId, e.getStatusCode(), delay);
+				meterRegistry.counter("google.api.retries", "api", api.name().toLowerCase()).increment();
+				log.warn("Google API が {} を返しました。{}ms 後に再試行します（{}/{}回目）",
+						e.getStatusCode(), delay.toMillis(), attempt, MAX_ATTEMPTS);
+
+			} catch (IOException e) {
+				outcome = "io_error";
+				throw e;
+
+			} finally {
+				sample.stop(Timer.builder("google.api.requests")
+						.description("Google API 呼び出し1回あたりの所要時間")
+						.tag("api", api.name().toLowerCase())
+						.tag("method", methodName(request))
+						.tag("outcome", outcome)
+						.publishPercentiles(0.5, 0.99)
+						.register(meterRegistry));
+			}
+		}
+	}
+
+	/**
+	 * キュー済みのバッチリクエストを、中のリクエスト数分のトークンを取得してから実行する.
+	 * 個々のリクエストの成否はキュー時に登録したコールバックに通知されるため、ここではリトライしない.
+	 * @param size バッチに含まれるリクエスト数.
+	 */
+	public void executeBatch(GoogleApi api, @Nullable String fileId, int size, BatchRequest batch) throws IOException {
+		try {
+			rateLimiter.acquire(api, fileId, size);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Google API 呼び出しの待機中に割り込まれました。");
+		}
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String outcome = "success";
+		try {
+			batch.execute();
+		} catch (HttpResponseException e) {
+			outcome = String.valueOf(e.getStatusCode());
+			throw e;
+		} catch (IOException e) {
+			outcome = "io_error";
+			throw e;
+		} finally {
+			sample.stop(Timer.builder("google.api.requests")
+					.description("Google API 呼び出し1回あたりの所要時間")
+					.tag("api", api.name().toLowerCase())
+					.tag("method", "batch")
+					.tag("outcome", outcome)
+					.publishPercentiles(0.5, 0.99)
+					.register(meterRegistry));
+		}
+	}
+
+	/**
+	 * リクエストクラス名から API メソッド名を求める.
+	 * 例: Sheets$Spreadsheets$Values$Append → spreadsheets.values.append
+	 */
+	private String methodName(AbstractGoogleClientRequest<?> request) {
+		return methodNames.computeIfAbsent(request.getClass(), type -> {
+			String name = type.getName();
+			return name.substring(name.indexOf('$') + 1).replace('$', '.').toLowerCase();
+		});
+	}
+
+	/**
+	 * 冪等なリクエストならリトライしてよいエラー（クォータ超過・一時的なサーバーエラー）か判定する.
+	 */
+	public static boolean isRetryable(HttpResponseException e) {
+		return SERVER_ERROR_STATUS.contains(e.getStatusCode()) || isThrottled(e);
+	}
+
+	/**
+	 * バッチ内の個々のリクエストのエラーがリトライしてよいものか判定する.
+	 */
+	public static boolean isRetryable(int statusCode, @Nullable GoogleJsonError details) {
+		return SERVER_ERROR_STATUS.contains(statusCode) || isThrottled(statusCode, details);
+	}
+
+	/**
+	 * クォータ超過・レート制限によるエラーか判定する. この場合リクエストは適用されていないため、冪等でなくても再送できる.
+	 */
+	public static boolean isThrottled(HttpResponseException e) {
+		return isThrottled(e.getStatusCode(), e instanceof GoogleJsonResponseException gjre ? gjre.getDetails() : null);
+	}
+
+	static boolean isThrottled(int statusCode, @Nullable GoogleJsonError details) {
+		if (statusCode == TOO_MANY_REQUESTS) {
+			return true;
+		}
+		if (statusCode == 403 && details != null && details.getErrors() != null) {
+			return details.getErrors().stream()
+					.anyMatch(info -> RATE_LIMIT_REASONS.contains(info.getReason()));
+		}
+		return false;
+	}
+
+	/**
+	 * Retry-After ヘッダー（秒数 または HTTP-date）を解釈する. 無ければ null.
+	 */
+	@Nullable
+	static Duration retryAfter(HttpResponseException e) {
+		String value = e.getHeaders() != null ? e.getHeaders().getRetryAfter() : null;
+		if (value == null || value.isBlank()) {
+			return null;
+		}
+		try {
+			return Duration.ofSeconds(Long.parseLong(value.trim()));
+		} catch (NumberFormatException notSeconds) {
+			try {
+				ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				Duration d = Duration.between(ZonedDateTime.now(at.getZone()), at);
+				return d.isNegative() ? Duration.ZERO : d;
+			} catch (DateTimeParseException unknown) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * 指数バックオフ（1秒, 2秒, 4秒, ... 最大32秒）に揺らぎを加えた待機時間.
+	 */
+	public static Duration backoff(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 10));
+		long jitter = ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+		return Duration.ofMillis(ceiling / 2 + jitter);
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.onseinippou.infra.google;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.Nullable;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Sheets / Drive 呼び出しのクライアント側レート制限.
+ * プロジェクト単位（APIごと）とスプレッドシート（ファイル）単位のトークンバケットを両方通過させ、
+ * クォータを超えそうなバーストは失敗させずに待たせて平準化する.
+ */
+@Component
+public class GoogleApiRateLimiter {
+
+	/** 使われなくなったファイル単位バケットを破棄するまでの時間. */
+	private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+	private final Map<GoogleApi, TokenBucket> projectBuckets = new EnumMap<>(GoogleApi.class);
+	private final Map<String, TokenBucket> fileBuckets = new ConcurrentHashMap<>();
+
+	private final double perFilePerMinute;
+	private final double perFileBurst;
+
+	private final MeterRegistry meterRegistry;
+	private final Map<GoogleApi, Timer> waitTimers = new EnumMap<>(GoogleApi.class);
+	private final Map<GoogleApi, Counter> delayedCounters = new EnumMap<>(GoogleApi.class);
+
+	/**
+	 * 既定値は Sheets API の「1分あたり300リクエスト/プロジェクト」と
+	 * Drive API のクォータに対し、余裕を持たせた値にしている.
+	 */
+	public GoogleApiRateLimiter(
+			MeterRegistry meterRegistry,
+			@Value("${app.google.rate-limit.sheets-per-minute:240}") double sheetsPerMinute,
+			@Value("${app.google.rate-limit.drive-per-minute:600}") double drivePerMinute,
+			@Value("${app.google.rate-limit.per-file-per-minute:50}") double perFilePerMinute,
+			@Value("${app.google.rate-limit.burst:20}") double burst) {
+		long now = System.nanoTime();
+		this.projectBuckets.put(GoogleApi.SHEETS, new TokenBucket(burst, sheetsPerMinute, now));
+		this.projectBuckets.put(GoogleApi.DRIVE, new TokenBucket(burst, drivePerMinute, now));
+		this.perFilePerMinute = perFilePerMinute;
+		this.perFileBurst = Math.max(1, burst / 2);
+		this.meterRegistry = meterRegistry;
+		for (GoogleApi api : GoogleApi.values()) {
+			String tag = api.name().toLowerCase();
+			waitTimers.put(api, Timer.builder("google.api.limiter.wait")
+					.description("クライアント側レート制限で待機した時間")
+					.tag("api", tag)
+					.register(meterRegistry));
+			delayedCounters.put(api, Counter.builder("google.api.limiter.delayed")
+					.description("クライアント側レート制限で待機させたリクエスト数")
+					.tag("api", tag)
+					.register(meterRegistry));
+		}
+	}
+
+	/**
+	 * 呼び出し1回分のトークンを取得する. 必要なら使えるようになるまで待機する.
+	 * @param api 呼び出し先API.
+	 * @param fileId 対象スプレッドシート/ファイルのID（ファイルを特定しない呼び出しは null）.
+	 */
+	public void acquire(GoogleApi api, @Nullable String fileId) throws InterruptedException {
+		acquire(api, fileId, 1);
+	}
+
+	/**
+	 * 複数リクエスト分のトークンをまとめて取得する（バッチリクエスト用）.
+	 * @param permits 取得するトークン数.
+	 */
+	public void acquire(GoogleApi api, @Nullable String fileId, int permits) throws InterruptedException {
+		long now = System.nanoTime();
+		long waitNanos = projectBuckets.get(api).reserve(now, permits);
+		if (fileId != null) {
+			waitNanos = Math.max(waitNanos, fileBucket(fileId, now).reserve(now, permits));
+		}
+		waitTimers.get(api).record(waitNanos, TimeUnit.NANOSECONDS);
+		if (waitNanos > 0) {
+			delayedCounters.get(api).increment();
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	/**
+	 * サーバー側で制限された（429/503 など）ことを記録し、以降の呼び出しを指定時間遅らせる.
+	 * @param retryAfter サーバーが指示した待機時間.
+	 */
+	public void onThrottled(GoogleApi api, @Nullable String fileId, int statusCode, Duration retryAfter) {
+		long now = System.nanoTime();
+		meterRegistry.counter("google.api.throttled",
+				"api", api.name().toLowerCase(), "status", String.valueOf(statusCode)).increment();
+		// 429 はクォータ超過なのでプロジェクト全体を、それ以外はそのファイルだけを止める
+		if (statusCode == 429 || fileId == null) {
+			projectBuckets.get(api).pause(now, retryAfter.toNanos());
+		} else {
+			fileBucket(fileId, now).pause(now, retryAfter.toNanos());
+		}
+	}
+
+	private TokenBucket fileBucket(String fileId, long now) {
+		return fileBuckets.computeIfAbsent(fileId, id -> new TokenBucket(perFileBurst, perFilePerMinute, now));
+	}
+
+	/**
+	 * しばらく使われていないファイル単位のバケットを破棄する.
+	 */
+	@Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+	public void evictIdleBuckets() {
+		long now = System.nanoTime();
+		fileBuckets.entrySet().removeIf(e -> e.getValue().isIdle(now, IDLE_NANOS));
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.onseinippou.infra.google;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一定レートで補充されるトークンバケット.
+ * トークンが足りない場合も即座に失敗させず、予約して「いつ使えるか」を返すことでバーストを平準化する.
+ */
+final class TokenBucket {
+
+	private final double capacity;
+	private final double tokensPerNano;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/* 残りトークン数. 予約済みの分だけ負になり得る */
+	private double tokens;
+	private long lastRefillNanos;
+	private long lastUsedNanos;
+
+	/**
+	 * @param capacity 貯められる最大トークン数（許容するバーストの大きさ）.
+	 * @param perMinute 1分あたりの補充トークン数.
+	 * @param nowNanos 現在時刻（System.nanoTime()）.
+	 */
+	TokenBucket(double capacity, double perMinute, long nowNanos) {
+		this.capacity = capacity;
+		this.tokensPerNano = perMinute / 60_000_000_000d;
+		this.tokens = capacity;
+		this.lastRefillNanos = nowNanos;
+		this.lastUsedNanos = nowNanos;
+	}
+
+	/**
+	 * トークンを予約し、それが使えるようになるまでの待ち時間を返す.
+	 * @param permits 予約するトークン数（バッチリクエストは中のリクエスト数分を消費する）.
+	 * @return 待ち時間（ナノ秒）. すぐに使える場合は 0.
+	 */
+	long reserve(long nowNanos, int permits) {
+		lock.lock();
+		try {
+			refill(nowNanos);
+			tokens -= permits;
+			lastUsedNanos = nowNanos;
+			return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * サーバーから 429 などで待機を指示された場合に、以降の予約を少なくとも指定時間だけ遅らせる.
+	 */
+	void pause(long nowNanos, long pauseNanos) {
+		lock.lock();
+		try {
+			refill(nowNanos);
+			tokens = Math.min(tokens, 0) - pauseNanos * tokensPerNano;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 指定時間以上使われておらず満タンに戻っているか（破棄してよいか）.
+	 */
+	boolean isIdle(long nowNanos, long idleNanos) {
+		lock.lock();
+		try {
+			refill(nowNanos);
+			return tokens >= capacity && nowNanos - lastUsedNanos >= idleNanos;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void refill(long nowNanos) {
+		long elapsed = nowNanos - lastRefillNanos;
+		if (elapsed > 0) {
+			tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+			lastRefillNanos = nowNanos;
+		}
+	}
+}
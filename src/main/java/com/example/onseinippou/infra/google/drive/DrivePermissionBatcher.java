@@ -0,0 +1,179 @@
+package com.example.onseinippou.infra.google.drive;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.infra.google.GoogleApi;
+import com.example.onseinippou.infra.google.GoogleApiExecutor;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Permission;
+import com.google.api.services.drive.model.PermissionList;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ファイルへの共有権限（編集者）の付与を Drive のバッチリクエストでまとめて行うクラス.
+ * 既に共有済みのユーザーは事前に除外し、409 も成功扱いにするため、何度実行しても結果は同じになる.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DrivePermissionBatcher {
+
+	/** Drive のバッチリクエスト1回に含められる最大件数. */
+	private static final int MAX_BATCH_SIZE = 100;
+	/** 一時的なエラーで失敗した付与を送り直す最大ラウンド数. */
+	private static final int MAX_ROUNDS = 4;
+
+	private static final String ROLE = "writer";
+
+	/* 1ユーザー分の付与結果 */
+	public enum Outcome {
+		/* 今回付与した */
+		GRANTED,
+		/* 既に共有済みだった */
+		ALREADY_SHARED,
+		/* 付与できなかった */
+		FAILED
+	}
+
+	private final Drive drive;
+	private final GoogleApiExecutor googleApiExecutor;
+
+	/**
+	 * 指定したユーザー全員に編集権限を付与する. 通知メールは送らない.
+	 * @param fileId 対象ファイルのID.
+	 * @param emails 付与するユーザーのメールアドレス.
+	 * @return メールアドレスごとの付与結果（入力順）.
+	 */
+	public Map<String, Outcome> grantWriters(String fileId, List<String> emails) {
+		Map<String, Outcome> outcomes = new LinkedHashMap<>();
+		try {
+			Set<String> alreadyShared = existingWriters(fileId);
+			List<String> pending = new ArrayList<>();
+			for (String email : emails) {
+				if (outcomes.containsKey(email)) {
+					continue;
+				}
+				if (alreadyShared.contains(email.toLowerCase(Locale.ROOT))) {
+					outcomes.put(email, Outcome.ALREADY_SHARED);
+				} else {
+					outcomes.put(email, Outcome.FAILED);
+					pending.add(email);
+				}
+			}
+
+			// 一時的なエラー（レート制限など）で失敗した分だけを、間隔を空けて送り直す
+			for (int round = 1; !pending.isEmpty(); round++) {
+				if (round > 1) {
+					TimeUnit.MILLISECONDS.sleep(GoogleApiExecutor.backoff(round - 1).toMillis());
+				}
+				List<String> retry = new ArrayList<>();
+				for (int from = 0; from < pending.size(); from += MAX_BATCH_SIZE) {
+					List<String> chunk = pending.subList(from, Math.min(from + MAX_BATCH_SIZE, pending.size()));
+					retry.addAll(executeChunk(fileId, chunk, outcomes));
+				}
+				if (round >= MAX_ROUNDS) {
+					break;
+				}
+				pending = retry;
+			}
+			return outcomes;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("共有権限の付与中に割り込まれました。"));
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("共有権限の付与失敗", ioe);
+		}
+	}
+
+	/**
+	 * 最大100件を1回のバッチリクエストで送る.
+	 * @return 一時的なエラーで失敗し、送り直すべきメールアドレス.
+	 */
+	private List<String> executeChunk(String fileId, List<String> chunk, Map<String, Outcome> outcomes)
+			throws IOException {
+		List<String> retry = new ArrayList<>();
+		BatchRequest batch = drive.batch();
+		for (String email : chunk) {
+			Permission permission = new Permission()
+					.setType("user")
+					.setRole(ROLE)
+					.setEmailAddress(email);
+			drive.permissions().create(fileId, permission)
+					.setSendNotificationEmail(false)
+					.setFields("id")
+					.queue(batch, new JsonBatchCallback<Permission>() {
+						@Override
+						public void onSuccess(Permission created, HttpHeaders responseHeaders) {
+							outcomes.put(email, Outcome.GRANTED);
+						}
+
+						@Override
+						public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+							if (error.getCode() == 409) {
+								/* 409: Permission already exists → 共有済みとして扱う */
+								outcomes.put(email, Outcome.ALREADY_SHARED);
+							} else if (GoogleApiExecutor.isRetryable(error.getCode(), error)) {
+								retry.add(email);
+							} else {
+								log.warn("共有権限の付与に失敗しました。 fileId: {}, email: {}, 理由: {}", fileId, email,
+										error.getMessage());
+							}
+						}
+					});
+		}
+		try {
+			googleApiExecutor.executeBatch(GoogleApi.DRIVE, fileId, chunk.size(), batch);
+		} catch (HttpResponseException e) {
+			// バッチ自体が一時的なエラーで弾かれた場合は、中身は実行されていないので全件送り直す
+			if (GoogleApiExecutor.isRetryable(e)) {
+				return new ArrayList<>(chunk);
+			}
+			throw e;
+		}
+		return retry;
+	}
+
+	/**
+	 * 既に編集権限以上を持っているユーザーのメールアドレス（小文字）を取得する.
+	 */
+	private Set<String> existingWriters(String fileId) throws IOException {
+		Set<String> writers = new HashSet<>();
+		String pageToken = null;
+		do {
+			PermissionList page = googleApiExecutor.execute(GoogleApi.DRIVE, fileId, drive.permissions().list(fileId)
+					.setFields("nextPageToken, permissions(emailAddress, role)")
+					.setPageSize(100)
+					.setPageToken(pageToken));
+			if (page.getPermissions() != null) {
+				writers.addAll(page.getPermissions().stream()
+						.filter(p -> p.getEmailAddress() != null)
+						.filter(p -> Set.of("writer", "fileOrganizer", "organizer", "owner").contains(p.getRole()))
+						.map(p -> p.getEmailAddress().toLowerCase(Locale.ROOT))
+						.collect(Collectors.toSet()));
+			}
+			pageToken = page.getNextPageToken();
+		} while (pageToken != null);
+		return writers;
+	}
+}
@@ -2,30 +2,41 @@ package com.example.onseinippou.infra.google.sheets;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 
 import org.springframework.stereotype.Service;
 
+import com.example.onseinippou.infra.google.GoogleApi;
+import com.example.onseinippou.infra.google.GoogleApiExecutor;
+import com.example.onseinippou.infra.google.drive.DrivePermissionBatcher;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.model.File;
-import com.google.api.services.drive.model.Permission;
+import com.google.api.services.drive.model.FileList;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.AppendValuesResponse;
 import com.google.api.services.sheets.v4.model.ValueRange;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * スプレッドシートの送信内容に関する取り決めを行うクラス.
  */
 @Service
-@RequiredArgsConstructor
-public class GoogleSheetsClient {
+public final class GoogleSheetsClient {
 
 	/**
 	 * GoogleClientsConfig からコンストラクタ Injection される Sheets クライアント.
@@ -39,12 +50,58 @@ public class GoogleSheetsClient {
 	private final Drive drive;
 
 	/**
-	 * 日報を書き込むレンジ（シート1!A:C）.
+	 * レート制限とリトライ付きで Google API を呼び出す共通処理.
 	 */
-	private static final String RANGE = "シート1!A:C";
+	private final GoogleApiExecutor googleApiExecutor;
+
+	/**
+	 * 追記先タブの解決に使うメタデータのキャッシュ.
+	 * タブ名はロケール（シート1 / Sheet1）やユーザーの変更で変わるため固定しない.
+	 */
+	private final SpreadsheetMetadataCache metadataCache;
+
+	/**
+	 * 共有権限をバッチリクエストでまとめて付与するクラス.
+	 */
+	private final DrivePermissionBatcher permissionBatcher;
+
+	/**
+	 * 追記の所要時間・失敗件数を記録するメトリクス.
+	 */
+	private final MeterRegistry meterRegistry;
 
 	private static final String SHEET_MIME = "application/vnd.google-apps.spreadsheet";
 
+	/**
+	 * 同じスプレッドシート宛ての追記をまとめる時間窓.
+	 * 提出ラッシュ時でも1件あたりの待ち時間がこの程度に収まる値にしている.
+	 */
+	private static final Duration COALESCE_WINDOW = Duration.ofMillis(300);
+
+	/**
+	 * append の updatedRange（例: "Sheet1!A12:B14"、1セルだけなら "Sheet1!A12"）から先頭行の行番号を取り出すパターン.
+	 * タブ名に "!" を含む場合があるため、最後の "!" 以降を見る.
+	 */
+	private static final Pattern UPDATED_RANGE_FIRST_ROW = Pattern.compile(".*![A-Z]+(\\d+)(?::[A-Z]+\\d+)?");
+
+	/**
+	 * 追記要求をスプレッドシート単位でまとめて送信するコアレッサー.
+	 * appendRows が使うフィールドを代入し終えてからコンストラクタで生成する.
+	 */
+	private final SheetsAppendCoalescer coalescer;
+
+	public GoogleSheetsClient(Sheets sheets, Drive drive, GoogleApiExecutor googleApiExecutor,
+			SpreadsheetMetadataCache metadataCache, DrivePermissionBatcher permissionBatcher,
+			MeterRegistry meterRegistry) {
+		this.sheets = sheets;
+		this.drive = drive;
+		this.googleApiExecutor = googleApiExecutor;
+		this.metadataCache = metadataCache;
+		this.permissionBatcher = permissionBatcher;
+		this.meterRegistry = meterRegistry;
+		this.coalescer = new SheetsAppendCoalescer(this::appendRows, COALESCE_WINDOW);
+	}
+
 	// -----------------------------------------------------------------
 	//  スプレッドシートへデータ行を追加してsheetIdと行番号を返す
 	// -----------------------------------------------------------------
@@ -54,49 +111,165 @@ public class GoogleSheetsClient {
 	}
 
 	/**
+	 * 日報1件を追記する. 同じスプレッドシート宛ての追記は短い時間窓でまとめて1回の API 呼び出しで送信される.
 	 * @param spreadsheetId 対象スプレッドシートのID.
 	 * @param text ユーザーが入力した日報テキスト.
 	 */
 
 	public AppendResult appendNippou(String sheetId, String text) {
 
+		// タイムスタンプ生成.
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd (E)", Locale.JAPANESE);
+		String timestamp = LocalDateTime.now().format(formatter);
+
+		// まとめ待ちを含めた、日報1件の追記が確定するまでの時間
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String outcome = "success";
 		try {
+			// 同じシート宛ての他の行とまとめて送信し、自分の行番号が確定するまで待つ
+			return coalescer.submit(sheetId, List.of(timestamp, text)).join();
 
-			// タイムスタンプ生成.
-			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd (E)", Locale.JAPANESE);
-			String timestamp = LocalDateTime.now().format(formatter);
+		} catch (CompletionException e) {
+			outcome = "error";
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IllegalStateException("Google API 呼び出し失敗", e.getCause());
+		} finally {
+			sample.stop(Timer.builder("sheets.append.report")
+					.description("日報1件の追記が確定するまでの時間（まとめ待ちを含む）")
+					.tag("outcome", outcome)
+					.publishPercentileHistogram()
+					.register(meterRegistry));
+		}
 
-			// シートへ追記する情報をList化してSheetsApiのbodyにつめる
-			List<List<Object>> values = List.of(List.of(timestamp, text));
+	}
 
-			ValueRange body = new ValueRange().setValues(values);
-			// Sheets API 呼び出し
-			AppendValuesResponse res = sheets.spreadsheets().values()
-					.append(sheetId, RANGE, body)
-					.setValueInputOption("USER_ENTERED")
-					.execute();
+	/**
+	 * 同じスプレッドシート宛ての日報複数件を、時間窓を待たずに1回の append で追記する.
+	 * @param sheetId 対象スプレッドシートのID.
+	 * @param texts 日報テキストの一覧（追記する順）.
+	 * @return 各日報の追記結果（texts と同じ順）.
+	 */
+	public List<AppendResult> appendNippouAll(String sheetId, List<String> texts) {
+
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd (E)", Locale.JAPANESE);
+		String timestamp = LocalDateTime.now().format(formatter);
+
+		List<List<Object>> values = new ArrayList<>(texts.size());
+		for (String text : texts) {
+			values.add(List.of(timestamp, text));
+		}
+		int firstRow = appendRows(sheetId, values);
 
-			/* 例: updatedRange = "Sheet1!A12:B12" */
-			String updatedRange = res.getUpdates().getUpdatedRange();
-			int row = Integer.parseInt(updatedRange.replaceAll(".*!(?:[A-Z]+)(\\d+):.*", "$1"));
+		List<AppendResult> results = new ArrayList<>(texts.size());
+		for (int i = 0; i < texts.size(); i++) {
+			results.add(new AppendResult(sheetId, firstRow + i));
+		}
+		return results;
+	}
+
+	/**
+	 * 複数行を1回の append で追記し、追記された先頭行の行番号を返す.
+	 * @param sheetId 対象スプレッドシートのID.
+	 * @param values 追記する行の一覧.
+	 * @return 追記された先頭行の行番号.
+	 */
+	int appendRows(String sheetId, List<List<Object>> values) {
 
-			return new AppendResult(sheetId, row);
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String outcome = "success";
+		try {
+			return appendRows(sheetId, values, true);
 
 		} catch (IOException ioe) {
+			outcome = "error";
 			throw new UncheckedIOException("スプレッドシート書き込み失敗", ioe);
 
+		} catch (UncheckedIOException e) {
+			outcome = "error";
+			throw e;
+
 		} catch (Exception e) {
+			outcome = "error";
 			throw new IllegalStateException("Google API 呼び出し失敗", e);
+
+		} finally {
+			sample.stop(Timer.builder("sheets.append")
+					.description("append 1回（まとめた複数行）の所要時間. タブの解決と再送を含む")
+					.tag("outcome", outcome)
+					.publishPercentileHistogram()
+					.register(meterRegistry));
+			meterRegistry.summary("sheets.append.rows").record(values.size());
+		}
+
+	}
+
+	private int appendRows(String sheetId, List<List<Object>> values, boolean retryOnStaleRange) throws IOException {
+
+		// 追記先のタブ（キャッシュ済みなら追加の API 呼び出しなし）
+		String range = metadataCache.get(sheetId).appendRange();
+
+		try {
+			// シートへ追記する情報をSheetsApiのbodyにつめる
+			ValueRange body = new ValueRange().setValues(values);
+			// Sheets API 呼び出し（クォータ超過時は待機・再試行される）
+			AppendValuesResponse res = googleApiExecutor.execute(GoogleApi.SHEETS, sheetId,
+					sheets.spreadsheets().values()
+							.append(sheetId, range, body)
+							.setValueInputOption("USER_ENTERED")
+							// 行番号の算出に必要な updatedRange だけを返させてレスポンスを小さくする
+							.setFields("updates.updatedRange"));
+
+			/* 例: updatedRange = "Sheet1!A12:B14"（3行まとめて追記した場合は先頭の12行目） */
+			return firstRowNumber(res.getUpdates().getUpdatedRange());
+
+		} catch (GoogleJsonResponseException e) {
+			// 400: タブ名が変わった等でレンジが解釈できない / 404: スプレッドシートが無い
+			if (e.getStatusCode() == 400 || e.getStatusCode() == 404) {
+				metadataCache.invalidate(sheetId);
+				if (e.getStatusCode() == 400 && retryOnStaleRange) {
+					// 最新のタブ構成で1度だけ送り直す
+					return appendRows(sheetId, values, false);
+				}
+			}
+			throw e;
 		}
 
 	}
 
+	/**
+	 * updatedRange から追記された先頭行の行番号を返す.
+	 * @param updatedRange append のレスポンスの updatedRange（例: "Sheet1!A12:B14"）.
+	 * @return 先頭行の行番号（例では 12）.
+	 */
+	static int firstRowNumber(String updatedRange) {
+		Matcher matcher = UPDATED_RANGE_FIRST_ROW.matcher(updatedRange);
+		if (!matcher.matches()) {
+			throw new IllegalStateException("updatedRange を解釈できません: " + updatedRange);
+		}
+		return Integer.parseInt(matcher.group(1));
+	}
+
+	/**
+	 * 送信待ちの追記をすべて書き込んでから停止する.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		coalescer.shutdown();
+	}
+
 	// ---------------------------------------------------------------------
 	//  サービスアカウント B オーナーでスプレッドシートを作成するユーティリティ。
 	//  会社のWorkSpaceの共有フォルダにアクセスするため、会社関係者かどうか判別するロジックが必要になった。
 	//  会社関係者マスタがない、会社のworkSpaceに会社関係者が全員加入しているか分からない以上、現状実装すべき機能ではない。
 	// ---------------------------------------------------------------------
 
+	/* --- 作成（または既存）スプレッドシートと共有結果を返す DTO --- */
+	public record ProvisionedSpreadsheet(String fileId, String webViewLink, boolean created,
+			Map<String, DrivePermissionBatcher.Outcome> shares) {
+	}
+
 	/**
 	 * @param title        シート名
 	 * @param parentFolder フォルダ ID（null ならマイドライブ直下）
@@ -106,54 +279,79 @@ public class GoogleSheetsClient {
 	public String createownedSpreadsheet(String title,
 			@Nullable String parentFolder,
 			@Nullable List<String> sharedUsers) throws IOException {
+		ProvisionedSpreadsheet provisioned = provisionSpreadsheet(title, parentFolder, sharedUsers);
+		if (provisioned.shares().containsValue(DrivePermissionBatcher.Outcome.FAILED)) {
+			throw new IllegalStateException("一部のユーザーへの共有に失敗しました。 fileId: " + provisioned.fileId());
+		}
+		return provisioned.webViewLink(); // ブラウザで開ける URL
+	}
+
+	/**
+	 * スプレッドシートを用意し、指定ユーザー全員に編集権限を付与する.
+	 * 指定フォルダにサービスアカウント所有の同名スプレッドシートがあればそれを使い、共有済みのユーザーには付与し直さないため、
+	 * 途中で失敗しても同じ引数で再実行すれば続きから完了できる.
+	 * フォルダを指定しない場合は、他のユーザーやチームのスプレッドシートを取り違えないよう常に新規作成する.
+	 * @param title        シート名
+	 * @param parentFolder フォルダ ID（null ならマイドライブ直下）
+	 * @param sharedUsers  共有するユーザーのメール一覧（null/空 = 共有なし）
+	 */
+	public ProvisionedSpreadsheet provisionSpreadsheet(String title,
+			@Nullable String parentFolder,
+			@Nullable List<String> sharedUsers) throws IOException {
 		// -----------------------------------------------------------------
-		//  スプレッドシートファイルを Drive API で作成 
-		// -----------------------------------------------------------------    	
-		/* スプレッドシートのメタデータを生成（ファイル名・種類） */
-		File meta = new File();
-		meta.setName(title);
-		meta.setMimeType(SHEET_MIME);
-		/* 親フォルダIDが指定されていれば、フォルダに格納 */
-		if (parentFolder != null && !parentFolder.isBlank()) {
-			meta.setParents(List.of(parentFolder));
+		//  指定フォルダに同名のスプレッドシートがあれば再利用し、無ければ Drive API で作成 
+		// -----------------------------------------------------------------
+		boolean hasParent = parentFolder != null && !parentFolder.isBlank();
+		File file = hasParent ? findSpreadsheet(title, parentFolder) : null;
+		boolean created = false;
+		if (file == null) {
+			/* スプレッドシートのメタデータを生成（ファイル名・種類） */
+			File meta = new File();
+			meta.setName(title);
+			meta.setMimeType(SHEET_MIME);
+			/* 親フォルダIDが指定されていれば、フォルダに格納 */
+			if (hasParent) {
+				meta.setParents(List.of(parentFolder));
+			}
+			/* Drive API でファイル（スプレッドシート）を新規作成 */
+			file = googleApiExecutor.execute(GoogleApi.DRIVE, null, drive.files()
+					.create(meta)
+					.setFields("id, webViewLink"));
+			created = true;
 		}
-		/* Drive API でファイル（スプレッドシート）を新規作成 */
-		File created = drive.files()
-				.create(meta)
-				.setFields("id, webViewLink")
-				.execute();
 		/* 作成したファイルのIDを取得 */
-		String fileId = created.getId();
+		String fileId = file.getId();
 
 		// -----------------------------------------------------------------
-		//  必要ならファイルにメールアドレス追加
+		//  必要ならファイルにメールアドレス追加（100件ずつのバッチリクエスト、共有済み・409 は成功扱い）
 		// -----------------------------------------------------------------
-		if (sharedUsers != null && !sharedUsers.isEmpty()) {
-			for (String email : sharedUsers) {
-				Permission permission = new Permission()
-						.setType("user")
-						.setRole("writer")
-						.setEmailAddress(email);
-				// -----------------------------------------------------------------
-				// 既に同じEmailが共有されている場合は409 Conflictが返るので握りつぶす 
-				// -----------------------------------------------------------------
-				try {
-					/* 対象のスプレッドシートにEmailを追加。追加したEmailアドレス宛てに通知を送信しない */
-					drive.permissions().create(fileId, permission).setSendNotificationEmail(false)
-							.execute();
-				} catch (com.google.api.client.googleapis.json.GoogleJsonResponseException e) {
-					if (e.getStatusCode() == 409) {
-						/* 409: Permission already exists → 無視してOK */
-					} else {
-						/* それ以外は再スロー */
-						throw e;
-					}
-				}
+		Map<String, DrivePermissionBatcher.Outcome> shares = sharedUsers != null && !sharedUsers.isEmpty()
+				? permissionBatcher.grantWriters(fileId, sharedUsers)
+				: Map.of();
 
-			}
-		}
-		return created.getWebViewLink(); // ブラウザで開ける URL
+		return new ProvisionedSpreadsheet(fileId, file.getWebViewLink(), created, shares);
+	}
+
+	/**
+	 * 指定フォルダから、サービスアカウントが所有する同名のスプレッドシートを探す.
+	 * 共有されただけのファイルは対象にしない.
+	 */
+	@Nullable
+	private File findSpreadsheet(String title, String parentFolder) throws IOException {
+		String q = "name = '" + escapeQuery(title) + "'"
+				+ " and mimeType = '" + SHEET_MIME + "'"
+				+ " and '" + escapeQuery(parentFolder) + "' in parents"
+				+ " and 'me' in owners"
+				+ " and trashed = false";
+		FileList found = googleApiExecutor.execute(GoogleApi.DRIVE, null, drive.files().list()
+				.setQ(q)
+				.setPageSize(1)
+				.setFields("files(id, webViewLink)"));
+		return found.getFiles() == null || found.getFiles().isEmpty() ? null : found.getFiles().get(0);
+	}
 
+	private static String escapeQuery(String value) {
+		return value.replace("\\", "\\\\").replace("'", "\\'");
 	}
 
 }
@@ -0,0 +1,171 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient.AppendResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 同じスプレッドシート宛ての追記要求を短い時間窓でまとめ、1回の append 呼び出しで送信するクラス.
+ * 夕方の提出ラッシュ時に Sheets API の書き込みクォータを使い切らないようにする.
+ */
+@Slf4j
+class SheetsAppendCoalescer {
+
+	/**
+	 * 複数行をまとめて追記し、追記された先頭行の行番号を返す書き込み処理.
+	 */
+	@FunctionalInterface
+	interface BatchWriter {
+		int appendRows(String sheetId, List<List<Object>> rows);
+	}
+
+	/** 1回の append にまとめる最大行数. これに達したら時間窓を待たずに送信する. */
+	static final int MAX_BATCH_SIZE = 100;
+
+	private final BatchWriter writer;
+	private final Duration window;
+	/* 時間窓のタイマー専用. 送信（ブロッキングな HTTP 呼び出し）は writers に渡す */
+	private final ScheduledExecutorService scheduler;
+	/* バッチの送信. 1バッチにつき1本の仮想スレッド */
+	private final ExecutorService writers;
+
+	/** スプレッドシートIDごとの送信待ちバッチ. */
+	private final Map<String, Batch> pending = new ConcurrentHashMap<>();
+
+	/** 受け付けた行数と、実際に発行した API 呼び出し回数（まとめ効果の確認用）. */
+	private final AtomicLong acceptedRows = new AtomicLong();
+	private final AtomicLong apiCalls = new AtomicLong();
+
+	/* 送信待ちの1行と、その呼び出し元へ返す Future */
+	private record PendingRow(List<Object> row, CompletableFuture<AppendResult> result) {
+	}
+
+	/* スプレッドシート1件分の送信待ちバッチ. pending の compute 内でのみ変更する */
+	private static final class Batch {
+		final List<PendingRow> rows = new ArrayList<>();
+	}
+
+	SheetsAppendCoalescer(BatchWriter writer, Duration window) {
+		this.writer = writer;
+		this.window = window;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "sheets-append-coalescer");
+			t.setDaemon(true);
+			return t;
+		});
+		this.writers = Executors.newThreadPerTaskExecutor(
+				Thread.ofVirtual().name("sheets-append-writer-", 0).factory());
+	}
+
+	/**
+	 * 1行分の追記を予約する. 時間窓が閉じた時点で同じシート宛ての行とまとめて送信される.
+	 * @param sheetId 対象スプレッドシートのID.
+	 * @param row 追記する1行分の値.
+	 * @return 追記結果（行番号）を受け取る Future.
+	 */
+	CompletableFuture<AppendResult> submit(String sheetId, List<Object> row) {
+		CompletableFuture<AppendResult> result = new CompletableFuture<>();
+		PendingRow pendingRow = new PendingRow(row, result);
+		acceptedRows.incrementAndGet();
+
+		// compute はキー単位で排他されるため、flush による取り外しと行の追加が競合しない
+		Batch[] opened = new Batch[1];
+		Batch[] full = new Batch[1];
+		pending.compute(sheetId, (key, batch) -> {
+			if (batch == null) {
+				batch = new Batch();
+				opened[0] = batch;
+			}
+			batch.rows.add(pendingRow);
+			if (batch.rows.size() >= MAX_BATCH_SIZE) {
+				// 上限に達したバッチはマップから外し、すぐに送信する
+				full[0] = batch;
+				return null;
+			}
+			return batch;
+		});
+
+		if (full[0] != null) {
+			writers.execute(() -> write(sheetId, full[0]));
+		} else if (opened[0] != null) {
+			Batch batch = opened[0];
+			scheduler.schedule(() -> flush(sheetId, batch), window.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		return result;
+	}
+
+	/**
+	 * 時間窓が閉じたバッチをマップから外して送信する. 既に上限到達で送信済みなら何もしない.
+	 */
+	private void flush(String sheetId, Batch batch) {
+		if (pending.remove(sheetId, batch)) {
+			writers.execute(() -> write(sheetId, batch));
+		}
+	}
+
+	/**
+	 * バッチ内の行を1回の append で送信し、先頭行からの相対位置で各呼び出し元の行番号を確定させる.
+	 */
+	private void write(String sheetId, Batch batch) {
+		List<PendingRow> rows = batch.rows;
+		List<List<Object>> values = new ArrayList<>(rows.size());
+		for (PendingRow r : rows) {
+			values.add(r.row());
+		}
+		try {
+			apiCalls.incrementAndGet();
+			int firstRow = writer.appendRows(sheetId, values);
+			for (int i = 0; i < rows.size(); i++) {
+				rows.get(i).result().complete(new AppendResult(sheetId, firstRow + i));
+			}
+			log.debug("スプレッドシートへ {} 行をまとめて追記しました。 sheetId: {}", rows.size(), sheetId);
+		} catch (Throwable t) {
+			// Error（OOM やスタブの AssertionError など）でも呼び出し元を待たせたままにしない
+			for (PendingRow r : rows) {
+				r.result().completeExceptionally(t);
+			}
+			if (t instanceof Error error) {
+				throw error;
+			}
+		}
+	}
+
+	long acceptedRows() {
+		return acceptedRows.get();
+	}
+
+	long apiCalls() {
+		return apiCalls.get();
+	}
+
+	/**
+	 * 送信待ちの行をすべて送信してからスレッドを停止する.
+	 */
+	void shutdown() {
+		scheduler.shutdownNow();
+		for (String sheetId : List.copyOf(pending.keySet())) {
+			Batch batch = pending.remove(sheetId);
+			if (batch != null) {
+				writers.execute(() -> write(sheetId, batch));
+			}
+		}
+		writers.shutdown();
+		try {
+			writers.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
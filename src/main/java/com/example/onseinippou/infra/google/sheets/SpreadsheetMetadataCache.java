@@ -0,0 +1,124 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.infra.google.GoogleApi;
+import com.example.onseinippou.infra.google.GoogleApiExecutor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.SheetProperties;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * スプレッドシートのメタデータ（タブ名・シートID・並び順）のキャッシュ.
+ * 追記先のタブをロケールやタブ名の変更に左右されずに特定しつつ、
+ * 定常状態では追記のたびにメタデータを取得し直さないようにする.
+ */
+@Component
+@Slf4j
+public class SpreadsheetMetadataCache {
+
+	/** メタデータの有効期間. タブ名の変更は 400 応答による無効化でも検知する. */
+	private static final Duration TTL = Duration.ofMinutes(30);
+	/** キャッシュするスプレッドシートの最大数. */
+	private static final long MAX_SPREADSHEETS = 10_000;
+	/** 日報を書き込む列の範囲（日付・本文）. */
+	private static final String COLUMNS = "A:C";
+
+	/* タブ1つ分の情報 */
+	public record Tab(int sheetId, String title, int index) {
+	}
+
+	/* スプレッドシート1件分のメタデータ */
+	public record SpreadsheetMetadata(String spreadsheetId, List<Tab> tabs) {
+
+		/** 日報の追記先タブ（先頭のタブ）. */
+		public Tab targetTab() {
+			return tabs.get(0);
+		}
+
+		/** 追記先の A1 表記レンジ（例: 'Sheet1'!A:C）. */
+		public String appendRange() {
+			return "'" + targetTab().title().replace("'", "''") + "'!" + COLUMNS;
+		}
+	}
+
+	private final Sheets sheets;
+	private final GoogleApiExecutor googleApiExecutor;
+	private final AsyncCache<String, SpreadsheetMetadata> cache;
+
+	public SpreadsheetMetadataCache(Sheets sheets, GoogleApiExecutor googleApiExecutor) {
+		this.sheets = sheets;
+		this.googleApiExecutor = googleApiExecutor;
+		this.cache = Caffeine.newBuilder()
+				.expireAfterWrite(TTL)
+				.maximumSize(MAX_SPREADSHEETS)
+				// 取得は仮想スレッドで行う. 同期版の get(key, loader) はローダーを ConcurrentHashMap のロック
+				// （synchronized）内で実行するため、HTTP 応答待ちの間キャリアスレッドを固定してしまう
+				.executor(Executors.newThreadPerTaskExecutor(
+						Thread.ofVirtual().name("spreadsheet-metadata-", 0).factory()))
+				.buildAsync();
+	}
+
+	/**
+	 * メタデータを取得する. キャッシュに無ければ Sheets API から1回で取得する.
+	 * 同じスプレッドシートを同時に取得しようとした場合は、先行する1回の取得結果を待つ.
+	 * @param spreadsheetId 対象スプレッドシートのID.
+	 */
+	public SpreadsheetMetadata get(String spreadsheetId) {
+		try {
+			return cache.get(spreadsheetId, this::fetch).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * キャッシュを破棄する. 追記が 400/404 で失敗した場合など、タブ構成が変わった可能性があるときに呼ぶ.
+	 */
+	public void invalidate(String spreadsheetId) {
+		cache.synchronous().invalidate(spreadsheetId);
+	}
+
+	/**
+	 * タブ一覧を1回の spreadsheets.get で取得する. セルの値（グリッドデータ）は使わないため取得しない.
+	 */
+	private SpreadsheetMetadata fetch(String spreadsheetId) {
+		try {
+			Spreadsheet spreadsheet = googleApiExecutor.execute(GoogleApi.SHEETS, spreadsheetId,
+					sheets.spreadsheets().get(spreadsheetId)
+							.setFields("sheets(properties(sheetId,title,index))"));
+
+			List<Tab> tabs = new ArrayList<>();
+			for (Sheet sheet : spreadsheet.getSheets()) {
+				SheetProperties p = sheet.getProperties();
+				tabs.add(new Tab(p.getSheetId(), p.getTitle(), p.getIndex() != null ? p.getIndex() : tabs.size()));
+			}
+			if (tabs.isEmpty()) {
+				throw new IllegalStateException("スプレッドシートにタブがありません。 sheetId: " + spreadsheetId);
+			}
+			tabs.sort(Comparator.comparingInt(Tab::index));
+			log.debug("スプレッドシートのメタデータを取得しました。 sheetId: {}, 追記先タブ: {}", spreadsheetId, tabs.get(0).title());
+			return new SpreadsheetMetadata(spreadsheetId, List.copyOf(tabs));
+
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("スプレッドシートのメタデータ取得失敗", ioe);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.example.onseinippou.infra.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 文字バイグラムによるインメモリ転置インデックス.
+ * 日本語は単語の区切りが無いため、形態素解析の代わりに2文字ずつの重なり（バイグラム）を索引語にする.
+ * 検索語のすべてのバイグラムを含む文書を候補として返すので、最終的な一致確認は呼び出し側で本文に対して行う.
+ * <p>
+ * ポスティングリストは文書番号の差分を可変長整数で詰めて保持し、100万件規模でもヒープを抑える.
+ * 同じ文書キーの追加は1回だけ反映する. 追加は1スレッドずつ、検索は並行して行える.
+ */
+public class NgramIndex {
+
+	/** 検索語の最小文字数（バイグラムが1つ以上作れる長さ）. */
+	public static final int MIN_QUERY_LENGTH = 2;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/* バイグラム（2文字を1つの int にしたもの）→ ポスティングリスト */
+	private final Map<Integer, PostingList> postings = new HashMap<>();
+	/* 文書番号ごとの属性. 文書番号は追加順の連番 */
+	private long[] docKeys = new long[1024];
+	private long[] docOwners = new long[1024];
+	private int[] docGroups = new int[1024];
+	private int docCount;
+	/* グループ（チームのシートIDなど）→ 番号 */
+	private final Map<String, Integer> groupIds = new HashMap<>();
+	/* 索引済みの文書キー. キーは複数インスタンスの採番範囲が混ざり昇順に届かないため、ハッシュで引く */
+	private final KeySet keys = new KeySet();
+
+	/**
+	 * 文書を索引に追加する. 索引済みのキーであれば何もしない.
+	 * @param docKey 文書のキー（日報メタのID）.
+	 * @param owner 文書の所有者（ユーザーID）.
+	 * @param group 文書の所属グループ（チームのシートID）. 無ければ null.
+	 * @param text 本文.
+	 * @return 追加した場合は true.
+	 */
+	public boolean add(long docKey, long owner, String group, String text) {
+		int[] grams = distinctBigrams(normalize(text));
+		lock.writeLock().lock();
+		try {
+			if (!keys.add(docKey)) {
+				return false;
+			}
+			int doc = docCount++;
+			if (doc == docKeys.length) {
+				int newLength = docKeys.length * 2;
+				docKeys = Arrays.copyOf(docKeys, newLength);
+				docOwners = Arrays.copyOf(docOwners, newLength);
+				docGroups = Arrays.copyOf(docGroups, newLength);
+			}
+			docKeys[doc] = docKey;
+			docOwners[doc] = owner;
+			docGroups[doc] = group == null ? -1 : groupIds.computeIfAbsent(group, g -> groupIds.size());
+			for (int gram : grams) {
+				postings.computeIfAbsent(gram, g -> new PostingList()).append(doc);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 検索語のバイグラムをすべて含む文書のキーを、新しく追加された順に返す.
+	 * @param query 検索語（2文字以上）.
+	 * @param owner 所有者で絞り込む場合はそのID、絞り込まない場合は null.
+	 * @param group グループで絞り込む場合はその値、絞り込まない場合は null.
+	 * @param limit 返す最大件数.
+	 */
+	public List<Long> candidates(String query, Long owner, String group, int limit) {
+		int[] grams = distinctBigrams(normalize(query));
+		if (grams.length == 0) {
+			throw new IllegalArgumentException("検索語は" + MIN_QUERY_LENGTH + "文字以上で指定してください。");
+		}
+		lock.readLock().lock();
+		try {
+			PostingList[] lists = new PostingList[grams.length];
+			for (int i = 0; i < grams.length; i++) {
+				lists[i] = postings.get(grams[i]);
+				if (lists[i] == null) {
+					return List.of();
+				}
+			}
+			int groupId = -1;
+			if (group != null) {
+				Integer id = groupIds.get(group);
+				if (id == null) {
+					return List.of();
+				}
+				groupId = id;
+			}
+			// 件数の少ないリストから順に絞り込む
+			Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+			int[] docs = lists[0].decode();
+			int count = docs.length;
+			for (int i = 1; i < lists.length && count > 0; i++) {
+				count = lists[i].retainAll(docs, count);
+			}
+
+			List<Long> result = new ArrayList<>(Math.min(count, limit));
+			for (int i = count - 1; i >= 0 && result.size() < limit; i--) {
+				int doc = docs[i];
+				if (owner != null && docOwners[doc] != owner) {
+					continue;
+				}
+				if (group != null && docGroups[doc] != groupId) {
+					continue;
+				}
+				result.add(docKeys[doc]);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/** 索引済みの文書数. */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/** 指定した文書キーが索引済みかどうか. */
+	public boolean contains(long docKey) {
+		lock.readLock().lock();
+		try {
+			return keys.contains(docKey);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 全角英数・半角カナの揺れと大文字小文字を吸収する.
+	 */
+	public static String normalize(String text) {
+		return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * 正規化済みテキストから重複の無いバイグラムを取り出す. 空白を含むバイグラムは除く.
+	 */
+	static int[] distinctBigrams(String normalized) {
+		int n = normalized.length();
+		if (n < MIN_QUERY_LENGTH) {
+			return new int[0];
+		}
+		int[] grams = new int[n - 1];
+		int count = 0;
+		for (int i = 0; i + 1 < n; i++) {
+			char a = normalized.charAt(i);
+			char b = normalized.charAt(i + 1);
+			if (Character.isWhitespace(a) || Character.isWhitespace(b)) {
+				continue;
+			}
+			grams[count++] = (a << 16) | b;
+		}
+		int[] sorted = Arrays.copyOf(grams, count);
+		Arrays.sort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[distinct++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, distinct);
+	}
+
+	/**
+	 * long のキーのハッシュ集合（オープンアドレス法・線形探査）. Long の箱を作らず、1件あたり16バイト程度に収める.
+	 */
+	static final class KeySet {
+		/* 空きスロットの印. この値そのもののキーは hasEmptyKey で持つ */
+		private static final long EMPTY = Long.MIN_VALUE;
+
+		private long[] slots = newSlots(1024);
+		private int size;
+		private boolean hasEmptyKey;
+
+		/** @return 追加した場合は true、既にあった場合は false. */
+		boolean add(long key) {
+			if (key == EMPTY) {
+				boolean added = !hasEmptyKey;
+				hasEmptyKey = true;
+				return added;
+			}
+			// 使用率を 1/2 以下に保つ
+			if ((size + 1) * 2 > slots.length) {
+				rehash(slots.length * 2);
+			}
+			int i = indexOf(key, slots);
+			if (slots[i] == key) {
+				return false;
+			}
+			slots[i] = key;
+			size++;
+			return true;
+		}
+
+		boolean contains(long key) {
+			if (key == EMPTY) {
+				return hasEmptyKey;
+			}
+			return slots[indexOf(key, slots)] == key;
+		}
+
+		/* キーの入っているスロット、無ければ入れるべき空きスロットの位置 */
+		private static int indexOf(long key, long[] slots) {
+			int mask = slots.length - 1;
+			int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+			while (slots[i] != EMPTY && slots[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		private void rehash(int capacity) {
+			long[] rehashed = newSlots(capacity);
+			for (long key : slots) {
+				if (key != EMPTY) {
+					rehashed[indexOf(key, rehashed)] = key;
+				}
+			}
+			slots = rehashed;
+		}
+
+		private static long[] newSlots(int capacity) {
+			long[] slots = new long[capacity];
+			Arrays.fill(slots, EMPTY);
+			return slots;
+		}
+	}
+
+	/**
+	 * 昇順の文書番号を「前の番号との差分」の可変長整数（7bit ずつ）で詰めたリスト.
+	 */
+	static final class PostingList {
+		private byte[] bytes = new byte[8];
+		private int length;
+		private int size;
+		private int last = -1;
+
+		void append(int doc) {
+			if (doc == last) {
+				return;
+			}
+			int delta = doc - last;
+			last = doc;
+			size++;
+			if (length + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			while ((delta & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+				delta >>>= 7;
+			}
+			bytes[length++] = (byte) delta;
+		}
+
+		int[] decode() {
+			int[] docs = new int[size];
+			int pos = 0;
+			int doc = -1;
+			for (int i = 0; i < size; i++) {
+				int delta = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = bytes[pos++];
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				doc += delta;
+				docs[i] = doc;
+			}
+			return docs;
+		}
+
+		/**
+		 * docs[0..count) のうち、このリストにも含まれるものだけを前詰めで残す.
+		 * @return 残った件数.
+		 */
+		int retainAll(int[] docs, int count) {
+			int kept = 0;
+			int pos = 0;
+			int doc = -1;
+			int read = 0;
+			for (int i = 0; i < count; i++) {
+				int target = docs[i];
+				while (doc < target && read < size) {
+					int delta = 0;
+					int shift = 0;
+					byte b;
+					do {
+						b = bytes[pos++];
+						delta |= (b & 0x7F) << shift;
+						shift += 7;
+					} while (b < 0);
+					doc += delta;
+					read++;
+				}
+				if (doc == target) {
+					docs[kept++] = target;
+				} else if (doc < target) {
+					// このリストを読み切った
+					break;
+				}
+			}
+			return kept;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.onseinippou.infra.stt;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * STT ストリーム1本分の「話してから確定テキストが届くまで」の遅延を求めるクラス.
+ * 送信した音声フレームごとに到着時刻とストリーム先頭からの音声オフセットを記録し、
+ * 確定結果の resultEndTime（同じくストリーム先頭からのオフセット）を含むフレームの到着時刻と突き合わせる.
+ * 音声の送信（WebSocket のスレッド）と結果の受信（gRPC のスレッド）から呼ばれる.
+ */
+final class AudioLagTracker {
+
+	/* 送信した音声フレーム. endOffsetNanos はこのフレームの末尾までの音声の長さ */
+	private record Frame(long endOffsetNanos, long arrivalNanos) {
+	}
+
+	private final long bytesPerSecond;
+	private final ReentrantLock lock = new ReentrantLock();
+	/* 未確定の音声フレーム（古い順）. 確定結果より前のフレームは取り除く */
+	private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+	private long sentBytes;
+	/* 最後に取り除いたフレーム. 結果のオフセットが送信済みの音声をわずかに超えた場合に使う */
+	private Frame lastRemoved;
+
+	/**
+	 * @param bytesPerSecond 音声1秒あたりのバイト数（LINEAR16 / 16kHz / モノラルなら 32,000）.
+	 */
+	AudioLagTracker(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * 音声フレームを送信した.
+	 * @param bytes フレームのバイト数.
+	 * @param arrivalNanos フレームがクライアントから届いた時刻（System.nanoTime）.
+	 */
+	void onAudio(int bytes, long arrivalNanos) {
+		lock.lock();
+		try {
+			sentBytes += bytes;
+			frames.addLast(new Frame(sentBytes * 1_000_000_000L / bytesPerSecond, arrivalNanos));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 確定結果の末尾の音声が届いてから、結果を受け取るまでの時間を返す.
+	 * 確定結果はオフセット順に届くため、それより前のフレームはここで取り除く.
+	 * @param resultEnd 確定結果の resultEndTime.
+	 * @param nowNanos 結果を受け取った時刻（System.nanoTime）.
+	 * @return 遅延. 音声をまだ1件も送っていなければ null.
+	 */
+	@Nullable
+	Duration lag(Duration resultEnd, long nowNanos) {
+		long end = resultEnd.toNanos();
+		lock.lock();
+		try {
+			Frame frame = frames.peekFirst();
+			while (frame != null && frame.endOffsetNanos() < end) {
+				lastRemoved = frames.pollFirst();
+				frame = frames.peekFirst();
+			}
+			if (frame == null) {
+				frame = lastRemoved;
+			}
+			return frame != null ? Duration.ofNanos(nowNanos - frame.arrivalNanos()) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -1,15 +1,29 @@
 package com.example.onseinippou.infra.stt;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
+import jakarta.annotation.Nullable;
+
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.api.gax.longrunning.OperationFuture;
 import com.google.api.gax.rpc.ApiStreamObserver;
 import com.google.api.gax.rpc.BidiStreamingCallable;
@@ -20,12 +34,14 @@ import com.google.cloud.speech.v1.RecognitionAudio;
 import com.google.cloud.speech.v1.RecognitionConfig;
 import com.google.cloud.speech.v1.SpeechClient;
 import com.google.cloud.speech.v1.SpeechRecognitionResult;
+import com.google.cloud.speech.v1.SpeechSettings;
 import com.google.cloud.speech.v1.StreamingRecognitionConfig;
 import com.google.cloud.speech.v1.StreamingRecognitionResult;
 import com.google.cloud.speech.v1.StreamingRecognizeRequest;
 import com.google.cloud.speech.v1.StreamingRecognizeResponse;
 import com.google.protobuf.ByteString;
 
+import io.grpc.ManagedChannelBuilder;
 import io.grpc.Status.Code;
 import io.grpc.StatusRuntimeException;
 import lombok.extern.slf4j.Slf4j;
@@ -34,13 +50,54 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SpeechToTextClient {
 
+	/** クライアント内部の時間待ち（リトライ・ストリームの監視）を実行するスレッド数. */
+	private static final int SCHEDULER_THREADS = 2;
+	/** ファイルの文字起こし（長時間認識）の完了を待つ上限. */
+	private static final Duration LONG_RUNNING_TIMEOUT = Duration.ofMinutes(10);
+	/** 音声のサンプリング周波数（LINEAR16 / モノラル）. */
+	private static final int SAMPLE_RATE_HERTZ = 16000;
+	/** 音声1秒あたりのバイト数（1サンプル2バイト）. */
+	private static final int BYTES_PER_SECOND = SAMPLE_RATE_HERTZ * 2;
+	/** 認識モデル. 遅延のメトリクスにも付けて、モデルごとに比べられるようにする. */
+	public static final String MODEL = "latest_long";
+
+	/** 接続先（host:port）. 空なら既定の speech.googleapis.com:443. */
+	@Value("${app.speech.endpoint:}")
+	private String endpoint;
+	/** 平文（TLS なし）・認証なしで接続する. ローカルの偽の Speech サーバー向け. */
+	@Value("${app.speech.plaintext:false}")
+	private boolean plaintext;
+
 	private SpeechClient speechClient;
+	private ExecutorService callbackExecutor;
+	private ScheduledExecutorService scheduler;
 
 	@PostConstruct
 	public void initialize() {
 		try {
 			log.info("SpeechClientを初期化します...");
-			this.speechClient = SpeechClient.create();
+			// gRPC のコールバックはタスクごとの仮想スレッドで受ける（プールしない・上限を設けない）.
+			// コールバック（AudioService の結果処理・WebSocket 送信）がブロックしてもキャリアスレッドを占有しない
+			this.callbackExecutor = Executors.newThreadPerTaskExecutor(
+					Thread.ofVirtual().name("speech-grpc-", 0).factory());
+			// クライアント内部の時間待ちは短い処理だけのため、少数のプラットフォームスレッドで足りる
+			this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS,
+					Thread.ofPlatform().name("speech-scheduler-", 0).daemon().factory());
+			SpeechSettings.Builder settings = SpeechSettings.newBuilder()
+					.setExecutorProvider(FixedExecutorProvider.create(scheduler));
+			// チャネルの既定の実行基盤（上の scheduler）を、コールバック用の実行基盤で上書きする
+			settings.setTransportChannelProvider(SpeechSettings.defaultGrpcTransportProviderBuilder()
+					.setEndpoint(StringUtils.hasText(endpoint) ? endpoint : SpeechSettings.getDefaultEndpoint())
+					.setChannelConfigurator(channel -> {
+						ManagedChannelBuilder<?> configured = channel.executor(callbackExecutor);
+						return plaintext ? configured.usePlaintext() : configured;
+					})
+					.build());
+			if (plaintext) {
+				log.warn("Speech API に平文・認証なしで接続します（接続先: {}）。テスト用の設定です。", endpoint);
+				settings.setCredentialsProvider(NoCredentialsProvider.create());
+			}
+			this.speechClient = SpeechClient.create(settings.build());
 			log.info("SpeechClientの初期化が完了しました。");
 		} catch (IOException e) {
 			log.error("SpeechClientの初期化に失敗しました。", e);
@@ -55,12 +112,19 @@ public class SpeechToTextClient {
 			this.speechClient.close();
 			log.info("SpeechClientのシャットダウンが完了しました。");
 		}
+		// FixedExecutorProvider・チャネルに渡した実行基盤は SpeechClient が閉じないため、ここで止める
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+		}
+		if (this.callbackExecutor != null) {
+			this.callbackExecutor.shutdown();
+		}
 	}
 
 	/**
 	 * ストリーミング音声認識を開始します。
 	 *
-	 * @param onResult  文字起こし結果を受け取るためのコールバック
+	 * @param onResult  確定した文字起こし結果（テキストと遅延）を受け取るためのコールバック
 	 * @param onIdleTimeout STTのアイドルタイムアウトを通知するためのコールバック
 	 * @param onError   エラーが発生した際に呼び出されるコールバック
 	 * @param onStreamCompleted サーバー側での完了通知を受け取るコールバック
@@ -68,12 +132,15 @@ public class SpeechToTextClient {
 	 * 
 	 */
 	public AudioStreamObserver startStreamingRecognize(
-			Consumer<String> onResult,
+			Consumer<FinalResult> onResult,
 			Runnable onIdleTimeout,
 			Consumer<Throwable> onError,
 			Runnable onStreamCompleted) {
-		// 1. Googleからのレスポンスを非同期で受け取るためのオブザーバーを作成		
-		ResponseObserver responseObserver = new ResponseObserver(onResult, onIdleTimeout, onError, onStreamCompleted);
+		// 1. Googleからのレスポンスを非同期で受け取るためのオブザーバーを作成
+		// 送信した音声と確定結果を突き合わせて遅延を求めるため、両方のオブザーバーで同じトラッカーを使う
+		AudioLagTracker lagTracker = new AudioLagTracker(BYTES_PER_SECOND);
+		ResponseObserver responseObserver = new ResponseObserver(onResult, onIdleTimeout, onError, onStreamCompleted,
+				lagTracker);
 
 		// 2. 双方向ストリーミング用のCallableを取得
 		BidiStreamingCallable<StreamingRecognizeRequest, StreamingRecognizeResponse> callable = speechClient
@@ -87,17 +154,25 @@ public class SpeechToTextClient {
 				.setStreamingConfig(StreamingRecognitionConfig.newBuilder()
 						.setConfig(RecognitionConfig.newBuilder()
 								.setEncoding(RecognitionConfig.AudioEncoding.LINEAR16)
-								.setSampleRateHertz(16000)
+								.setSampleRateHertz(SAMPLE_RATE_HERTZ)
 								.setLanguageCode("ja-JP")
 								.setEnableAutomaticPunctuation(true)
-								.setModel("latest_long")
+								.setModel(MODEL)
 								.build())
 						.setInterimResults(true)
 						.build())
 				.build());
 
 		// 5. 音声データを送信するためのコントローラーを返す
-		return new AudioStreamObserver(requestObserver);
+		return new AudioStreamObserver(requestObserver, lagTracker);
+	}
+
+	/**
+	 * 確定した文字起こし結果.
+	 * @param transcript 確定したテキスト.
+	 * @param lag 結果の末尾の音声がサーバーに届いてから、このテキストを受け取るまでの時間. 求められない場合は null.
+	 */
+	public record FinalResult(String transcript, @Nullable Duration lag) {
 	}
 
 	/**
@@ -108,12 +183,15 @@ public class SpeechToTextClient {
 		// Googleのライブラリが提供する、実際の通信ストリーム（パイプ）本体。
 		// このオブジェクトを通じて、実際にGoogleへデータが送られる。
 		private final ApiStreamObserver<StreamingRecognizeRequest> requestObserver;
+		// 送信した音声フレームの到着時刻と音声オフセットを記録し、確定結果の遅延を求める.
+		private final AudioLagTracker lagTracker;
 
 		/**
 		 * コンストラクタ.
 		 */
-		public AudioStreamObserver(ApiStreamObserver<StreamingRecognizeRequest> requestObserver) {
+		AudioStreamObserver(ApiStreamObserver<StreamingRecognizeRequest> requestObserver, AudioLagTracker lagTracker) {
 			this.requestObserver = requestObserver;
+			this.lagTracker = lagTracker;
 		}
 
 		/**
@@ -121,6 +199,8 @@ public class SpeechToTextClient {
 		 * @param audioBytes 送信する音声データ（LINEAR16形式）
 		 */
 		public void sendAudio(byte[] audioBytes) {
+			// WebSocket の受信処理から同期で呼ばれるため、この時刻をフレームの到着時刻とみなす
+			lagTracker.onAudio(audioBytes.length, System.nanoTime());
 			// 1. 音声データをGoogle APIが理解できるリクエスト形式（StreamingRecognizeRequest）に梱包し、
 			// 2. 梱包したデータをパイプに流し込む（onNext）。
 			requestObserver.onNext(StreamingRecognizeRequest.newBuilder()
@@ -144,23 +224,26 @@ public class SpeechToTextClient {
 	 */
 	private static class ResponseObserver implements ApiStreamObserver<StreamingRecognizeResponse> {
 		// AudioServiceで定義された「文字起こし結果が来たらどうするか」という行動計画。
-		private final Consumer<String> onResult;
+		private final Consumer<FinalResult> onResult;
 		// AudioServiceで定義された「無音タイムアウトが起きたらどうするか」という行動計画。
 		private final Runnable onIdleTimeout;
 		// AudioServiceで定義された「予期せぬエラーが起きたらどうするか」という行動計画。
 		private final Consumer<Throwable> onError;
 		// AudioServiceで定義された「全ての処理が完了したらどうするか」という行動計画。
 		private final Runnable onStreamCompleted;
+		// 確定結果の遅延を求めるためのトラッカー（AudioStreamObserverと共有）。
+		private final AudioLagTracker lagTracker;
 
 		/**
 		 * コンストラクタ：外部で定義された様々な状況への「行動計画（コールバック）」を受け取り、保持する。
 		 */
-		public ResponseObserver(Consumer<String> onResult, Runnable onIdleTimeout, Consumer<Throwable> onError,
-				Runnable onStreamCompleted) {
+		public ResponseObserver(Consumer<FinalResult> onResult, Runnable onIdleTimeout, Consumer<Throwable> onError,
+				Runnable onStreamCompleted, AudioLagTracker lagTracker) {
 			this.onResult = onResult;
 			this.onIdleTimeout = onIdleTimeout;
 			this.onError = onError;
 			this.onStreamCompleted = onStreamCompleted;
+			this.lagTracker = lagTracker;
 		}
 
 		/**
@@ -173,8 +256,13 @@ public class SpeechToTextClient {
 				StreamingRecognitionResult result = response.getResults(0);
 				// もしその結果が「最終版（isFinal=true）」であれば
 				if (result.getIsFinal()) {
+					// resultEndTime（ストリーム先頭からの音声オフセット）から、話してから確定するまでの遅延を求める
+					Duration lag = result.hasResultEndTime()
+							? lagTracker.lag(Duration.ofSeconds(result.getResultEndTime().getSeconds(),
+									result.getResultEndTime().getNanos()), System.nanoTime())
+							: null;
 					// 保持している行動計画（onResult）を実行し、最終結果のテキストを渡す。
-					onResult.accept(result.getAlternatives(0).getTranscript());
+					onResult.accept(new FinalResult(result.getAlternatives(0).getTranscript(), lag));
 				}
 			}
 		}
@@ -211,30 +299,40 @@ public class SpeechToTextClient {
 		}
 	}
 
-	// --- ファイルベースの処理（変更なし） ---
+	// --- ファイルベースの処理 ---
+	/**
+	 * WAV ファイルを長時間認識で文字起こしする. 完了まで呼び出し元のスレッドで待つため、仮想スレッドから呼ぶこと.
+	 */
 	public String recognizeFromWav(String wavFilePath) throws IOException {
 		try {
-			ByteString audioBytes = ByteString.readFrom(new FileInputStream(wavFilePath));
+			ByteString audioBytes;
+			try (InputStream in = Files.newInputStream(Path.of(wavFilePath))) {
+				audioBytes = ByteString.readFrom(in);
+			}
 			RecognitionAudio audio = RecognitionAudio.newBuilder().setContent(audioBytes).build();
 			RecognitionConfig config = RecognitionConfig.newBuilder()
 					.setEncoding(RecognitionConfig.AudioEncoding.LINEAR16)
-					.setSampleRateHertz(16000)
+					.setSampleRateHertz(SAMPLE_RATE_HERTZ)
 					.setLanguageCode("ja-JP")
 					.setEnableAutomaticPunctuation(true)
-					.setModel("latest_long")
+					.setModel(MODEL)
 					.build();
 
 			OperationFuture<LongRunningRecognizeResponse, LongRunningRecognizeMetadata> future = speechClient
 					.longRunningRecognizeAsync(config, audio);
-			LongRunningRecognizeResponse response = future.get();
+			LongRunningRecognizeResponse response = future.get(LONG_RUNNING_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
 			StringBuilder resultText = new StringBuilder();
 			for (SpeechRecognitionResult result : response.getResultsList()) {
 				resultText.append(result.getAlternatives(0).getTranscript());
 			}
 			return resultText.toString();
-		} catch (InterruptedException | ExecutionException e) {
+		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
-			throw new IllegalStateException("音声認識の非同期処理に失敗しました。", e);
+			throw new IllegalStateException("音声認識の待機中に割り込まれました。", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("音声認識の非同期処理に失敗しました。", e.getCause());
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("音声認識が " + LONG_RUNNING_TIMEOUT.toMinutes() + " 分以内に完了しませんでした。", e);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.onseinippou.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * ハッシュ計算を PasswordHashingExecutor で実行する PasswordEncoder.
+ * フォームログインの照合（DaoAuthenticationProvider）とユーザー登録のハッシュ化の両方がこれを通る.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+	private final PasswordEncoder delegate;
+	private final PasswordHashingExecutor executor;
+
+	public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+		this.delegate = delegate;
+		this.executor = executor;
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return executor.run(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return executor.run(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	/**
+	 * 付け替えはログイン成功時にもう1回ハッシュを計算するため、プールが混んでいる間は見送る（次回のログインで行う）.
+	 */
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword) && executor.hasHeadroom();
+	}
+}
@@ -1,45 +1,207 @@
 package com.example.onseinippou.security;
 
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+
+import jakarta.servlet.http.HttpSession;
+
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.example.onseinippou.domain.model.user.User;
 import com.example.onseinippou.domain.repository.UserRepository;
-
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 //---------------------------------------------------------------------
-// ログインユーザーを“最新状態”で取得する共通クラス
+// ログインユーザーを取得する共通クラス
 // Serviceでは、
-// User user = currentUserProvider.getCurrentUser(); 
+// 参照だけなら  UserSnapshot me = currentUserProvider.getCurrentUserSnapshot();
+// 更新するなら  User user = currentUserProvider.getCurrentUser();
 // のように使う。
+//
+// 参照用の写しは「リクエスト内のメモ → インスタンス内の共有キャッシュ → DB」の順に探すため、
+// 認証済みのリクエストでは通常 DB を読まない。ユーザーを更新したら evict で写しを捨てること。
+// 他インスタンスでの更新は TTL が過ぎるまで反映されない。
+// OAuth2 ログインではメールアドレスから写しを引けるよう、ログインしたユーザーを remember で覚えておく。
 //---------------------------------------------------------------------
 
 @Component
-@RequiredArgsConstructor
 public class CurrentUserProvider {
-	
+
+	/** 共有キャッシュの有効期間. 他インスタンスで更新された場合に古い値が見える最大時間でもある. */
+	private static final Duration TTL = Duration.ofMinutes(2);
+	/** 共有キャッシュに保持するユーザー数の上限. */
+	private static final long MAX_USERS = 10_000;
+	/** リクエスト内のメモを保持するリクエスト属性名. */
+	private static final String REQUEST_MEMO = CurrentUserProvider.class.getName() + ".SNAPSHOT";
+
 	private final UserRepository userRepository;
-	
+
+	/*
+	 * 読み込みは仮想スレッドで行い、同じユーザーの同時の読み込みは1回にまとめる. 同期版の get(key, loader) は
+	 * ローダーを ConcurrentHashMap のロック（synchronized）内で実行し、DB 待ちの間キャリアスレッドを固定してしまう.
+	 * 読み込み中に invalidate されると、その読み込みの結果はキャッシュに入らない（更新前の値を書き戻さない）
+	 */
+	private final AsyncCache<Long, UserSnapshot> snapshots = Caffeine.newBuilder()
+			.expireAfterWrite(TTL)
+			.maximumSize(MAX_USERS)
+			.executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("current-user-", 0).factory()))
+			.buildAsync();
+	/* ログインに使われたメールアドレス → 写し. 同じ写しを snapshots にも入れる */
+	private final Cache<String, UserSnapshot> snapshotsByEmail = Caffeine.newBuilder()
+			.expireAfterWrite(TTL)
+			.maximumSize(MAX_USERS)
+			.build();
+
+	public CurrentUserProvider(UserRepository userRepository) {
+		this.userRepository = userRepository;
+	}
+
+	/**
+	 * ログインユーザーを、更新可能な（永続化コンテキスト管理下の）エンティティとして DB から取得する.
+	 * 更新を伴う処理でのみ使う.
+	 */
 	public User getCurrentUser() {
+		return userRepository.findById(currentUserId())
+				// ? IllegalStateExceptionはどういうときに使うのか？
+				/*  */
+				.orElseThrow(() -> new IllegalStateException("ユーザーが存在しません。"));
+	}
+
+	/**
+	 * ログインユーザーの読み取り専用の写しを返す. 同じリクエスト内の2回目以降と、キャッシュにある間は DB を読まない.
+	 */
+	public UserSnapshot getCurrentUserSnapshot() {
+		Long userId = currentUserId();
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if (request != null && request.getAttribute(REQUEST_MEMO, RequestAttributes.SCOPE_REQUEST) instanceof UserSnapshot memo
+				&& memo.id().equals(userId)) {
+			return memo;
+		}
+
+		UserSnapshot snapshot;
+		try {
+			snapshot = snapshots.get(userId, id -> userRepository.findById(id)
+					.map(UserSnapshot::of)
+					.orElseThrow(() -> new IllegalStateException("ユーザーが存在しません。"))).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw e;
+		}
+		if (request != null) {
+			request.setAttribute(REQUEST_MEMO, snapshot, RequestAttributes.SCOPE_REQUEST);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 最近ログインしたユーザーの写しをメールアドレスで探す. 無ければ空.
+	 */
+	public Optional<UserSnapshot> findRememberedByEmail(String email) {
+		return Optional.ofNullable(snapshotsByEmail.getIfPresent(email));
+	}
+
+	/**
+	 * ログインしたユーザーの写しを覚えておく. 直後のリクエストとTTL内の再ログインは DB を読まない.
+	 */
+	public void remember(UserSnapshot snapshot) {
+		snapshots.synchronous().put(snapshot.id(), snapshot);
+		snapshotsByEmail.put(snapshot.email(), snapshot);
+	}
+
+	/**
+	 * ユーザーの写しを捨てる. トランザクション内で呼ばれた場合はコミット後に捨てる
+	 * （コミット前に他のリクエストが古い値を読み直してキャッシュしないように）.
+	 */
+	public void evict(Long userId) {
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if (request != null) {
+			request.removeAttribute(REQUEST_MEMO, RequestAttributes.SCOPE_REQUEST);
+		}
+		afterCommit(() -> {
+			snapshots.synchronous().invalidate(userId);
+			snapshotsByEmail.asMap().values().removeIf(s -> s.id().equals(userId));
+		});
+	}
+
+	/**
+	 * セッションに保存されている認証情報（CustomUserDetails）のシート登録の有無を更新する.
+	 * ページ表示時のシート登録チェックは DB ではなくこの値を見るため、シートを登録・変更したら呼ぶこと.
+	 * トランザクション内で呼ばれた場合はコミット後に更新する.
+	 */
+	public void refreshPrincipalSheet(String sheetId) {
+		SecurityContext context = SecurityContextHolder.getContext();
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		afterCommit(() -> {
+			if (!(context.getAuthentication() != null
+					&& context.getAuthentication().getPrincipal() instanceof CustomUserDetails details)) {
+				return;
+			}
+			details.updateSheetRegistered(sheetId != null);
+			// 同じオブジェクトでも属性を設定し直し、セッションの変更としてセッションストアに保存させる
+			if (request instanceof ServletRequestAttributes servlet) {
+				HttpSession session = servlet.getRequest().getSession(false);
+				if (session != null) {
+					session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+				}
+			}
+		});
+	}
+
+	/**
+	 * すべてのユーザーの写しを捨てる. 複数ユーザーをまとめて更新した場合に使う.
+	 */
+	public void evictAll() {
+		afterCommit(() -> {
+			snapshots.synchronous().invalidateAll();
+			snapshotsByEmail.invalidateAll();
+		});
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	/**
+	 * 認証情報からログインユーザーのIDを取り出す.
+	 */
+	private static Long currentUserId() {
 		// ① Authentication 取得
 		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 		if (auth == null || !auth.isAuthenticated()) {
 			throw new AuthenticationCredentialsNotFoundException("未認証です。ログインしてください。");
 		}
-		
-		// ② principal → ID → 再読込
+
+		// ② principal → ID
 		Object principal = auth.getPrincipal();
 		if (!(principal instanceof CustomUserDetails details)) {
 			throw new AuthenticationCredentialsNotFoundException("未認証です。ログインしてください。");
 		}
-		
-		return userRepository.findById(details.getUser().getId())
-				// ? IllegalStateExceptionはどういうときに使うのか？
-				/*  */
-				.orElseThrow(() -> new IllegalStateException("ユーザーが存在しません。"));
+		return details.getId();
 	}
 
 }
@@ -4,35 +4,56 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 
 import com.example.onseinippou.domain.model.user.User;
 import com.example.onseinippou.domain.repository.UserRepository;
 
+import lombok.extern.slf4j.Slf4j;
+
 //OAuth2認証（例：Googleログイン）で利用されるカスタムUserService
 //DefaultOAuth2UserServiceを継承
-	@Service
+//
+// ユーザーの取得は次の順で行い、朝のログイン集中時でも1ログインあたりの DB アクセスを最小にする。
+//  1. 最近ログインしたユーザーの写し（CurrentUserProvider）… DB アクセスなし
+//  2. メールアドレスで検索 … 1往復（既存ユーザーはここで決まる）
+//  3. 無ければ INSERT ... ON DUPLICATE KEY UPDATE で登録して読み直す … 初回ログインのみ
+//     同時に初回ログインしても一意制約違反で失敗しない
+@Service
+@Slf4j
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 	@Autowired
 	private UserRepository userRepository;
+	@Autowired
+	private CurrentUserProvider currentUserProvider;
+
 	@Override
 	public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
 		OAuth2User oauth2User = super.loadUser(userRequest);
-		System.out.println(oauth2User.getAttributes()); 
-		
-		// ユーザのemailなどでDB検索
+		log.debug("OAuth2 ユーザー情報を取得しました。 属性: {}", oauth2User.getAttributes().keySet());
+
 		String email = oauth2User.getAttribute("email");
-		User user = userRepository.findByEmail(email)
-				.orElseGet(() -> {
-					// DBになければ新規登録
-					User newUser = new User();
-					newUser.setEmail(email);
-					// ✅必要な項目セット
-					return userRepository.saveAndFlush(newUser);
-				});
-		
+		if (email == null || email.isBlank()) {
+			throw new OAuth2AuthenticationException(new OAuth2Error("invalid_user_info"),
+					"メールアドレスを取得できませんでした。");
+		}
+
+		UserSnapshot snapshot = currentUserProvider.findRememberedByEmail(email).orElseGet(() -> {
+			User user = userRepository.findByEmail(email).orElseGet(() -> {
+				// DBになければ新規登録
+				userRepository.insertIfAbsent(email);
+				return userRepository.findByEmail(email)
+						.orElseThrow(() -> new IllegalStateException("ユーザーの登録に失敗しました。"));
+			});
+			UserSnapshot loaded = UserSnapshot.of(user);
+			currentUserProvider.remember(loaded);
+			return loaded;
+		});
+
 		// アプリのCustomUserDetailsで返す
-		return new CustomUserDetails(user, oauth2User.getAttributes());
+		// セッションに保存されるため、Google の属性は載せない
+		return new CustomUserDetails(snapshot);
 	}
 }
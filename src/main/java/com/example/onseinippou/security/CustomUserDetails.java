@@ -1,60 +1,93 @@
 package com.example.onseinippou.security;
 
+import java.io.Serial;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 
 import com.example.onseinippou.domain.model.user.User;
 
+// ログインユーザーの認証情報（principal）。
+// セッションストア（Spring Session JDBC）にシリアライズして保存されるため、
+// Userエンティティや OAuth2 の属性は持たず、ID・email・ロール・シート登録の有無だけを持つ。
+public class CustomUserDetails implements UserDetails, OAuth2User, CredentialsContainer {
 
-public class CustomUserDetails implements UserDetails, OAuth2User {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
-    private final User user;
-    private final Map<String, Object> attributes;
+    private final Long id;
+    private final String email;
+    private final String role;
+    // シート登録済みか。ページ表示ごとに DB を読まずに判定できるよう、ログイン時の値を持ち、登録時に更新する
+    private volatile boolean sheetRegistered;
+    // フォームログインの照合にだけ使う。認証後に消去し、セッションには保存しない
+    private transient String password;
 
-    // 通常ログイン用（Userのみ）
+    // 通常ログイン用（パスワード照合のため User から作る）
     public CustomUserDetails(User user) {
-        this.user = user;
-        this.attributes = Collections.emptyMap();
+        this.id = user.getId();
+        this.email = user.getEmail();
+        this.role = user.getRole();
+        this.sheetRegistered = user.getSheetId() != null;
+        this.password = user.getPassword();
     }
 
-    // OAuth2ログイン用（User+OAuth2属性）
-    public CustomUserDetails(User user, Map<String, Object> attributes) {
-        this.user = user;
-        this.attributes = attributes != null ? attributes : Collections.emptyMap();
+    // OAuth2ログイン用（パスワードは不要）
+    public CustomUserDetails(UserSnapshot user) {
+        this.id = user.id();
+        this.email = user.email();
+        this.role = user.role();
+        this.sheetRegistered = user.hasSheet();
     }
-    
-    
-    // Userエンティティへの共通アクセス
-    public User getUser() {
-        return user;
+
+    public Long getId() {
+        return id;
     }
-    // sheetId取得
-    public String getSheetId() {
- 	   return user.getSheetId();
+
+    public String getEmail() {
+        return email;
     }
 
-    // UserDetails実装（パスワードはUserから取得）
+    // シート登録済みか（DB を読まずに判定する）
+    public boolean hasSheet() {
+        return sheetRegistered;
+    }
+
+    // シート登録後にセッション上の認証情報を最新にする（CurrentUserProvider から呼ぶ）
+    void updateSheetRegistered(boolean sheetRegistered) {
+        this.sheetRegistered = sheetRegistered;
+    }
+
+    // UserDetails実装（認証後は null）
     @Override
     public String getPassword() {
-        return user.getPassword(); // フォーム認証なら値あり、OAuthのみならnullでもOK
+        return password;
+    }
+
+    // 認証成功後に Spring Security から呼ばれる
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
     }
 
     @Override
     public String getUsername() {
-        return user.getEmail(); // ログインIDやユーザー名。ユニークなものを
+        return email; // ログインIDやユーザー名。ユニークなものを
     }
 
-    // 権限付与（現場ではロールから生成する場合が多い）
+    // 権限付与（Userのroleから生成。"ROLE_ADMIN" なら hasRole("ADMIN") を満たす）
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // 例: Userにrolesフィールドがあればそこから生成
-        // return user.getRoles().stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList());
-        return Collections.emptyList();
+        return role != null
+                ? List.of(new SimpleGrantedAuthority(role))
+                : Collections.emptyList();
     }
 
     // アカウント状態（将来の拡張に備えUserの値を返す）
@@ -78,16 +111,17 @@ public class CustomUserDetails implements UserDetails, OAuth2User {
         return true; // user.isEnabled() などにしても良い
     }
 
-    // OAuth2User実装
+    // OAuth2User実装（Google の属性はセッションに持ち込まない）
     @Override
     public Map<String, Object> getAttributes() {
-        return attributes;
+        return Map.of("email", email);
     }
 
-    // 公式ガイド推奨：getNameはDBの一意なIDを返す
+    // セッションのプリンシパル名（1ユーザー1セッションの判定キー）。
+    // フォームログイン（getUsername）と OAuth2 ログイン（getName）で同じ値になるよう email を返す
     @Override
     public String getName() {
-        return String.valueOf(user.getId());
+        return email;
     }
 
 
@@ -97,11 +131,12 @@ public class CustomUserDetails implements UserDetails, OAuth2User {
  * CustomUserDetailsのベストプラクティス（公式・現場共通）
  * ----------------------------------------------------------
  * 1. UserDetails, OAuth2Userの両方を実装し、アプリ/外部認証を統一管理
- * 2. Userエンティティを必ず全体で保持する（emailだけでなく、id, roles, passwordなども使える）
- * 3. OAuth2属性（Map<String, Object> attributes）はOAuth2認証時のみ必要。通常はnullまたは空MapでOK
- * 4. getAuthorities()はUserエンティティやロール情報から生成できる設計にしておくと拡張性が高い
- * 5. getPassword()はUserエンティティから取得。OAuthユーザーはnullも許容
- * 6. getName()はUserの一意なIDを返すのが公式ガイド推奨（emailは重複可能性があるため、DBのid推奨）
+ * 2. セッションに保存されるため、必要最小限の値（id, email, role, シート登録の有無）だけを持つ
+ *    最新のユーザー情報が必要な処理は CurrentUserProvider から取得する
+ * 3. OAuth2属性（Map<String, Object> attributes）は保持しない
+ * 4. getAuthorities()はロール情報から生成できる設計にしておくと拡張性が高い
+ * 5. getPassword()はフォーム認証の照合時のみ値あり。認証後は eraseCredentials で消去される
+ * 6. getName()とgetUsername()は同じ値（email, DBでユニーク）を返し、セッションの判定キーを揃える
  * 7. アカウント状態(isEnabled等)もUserエンティティの値に合わせて返すと拡張しやすい
- * 8. コンストラクタはUser単体・User+OAuth2属性の両方に対応
- */
\ No newline at end of file
+ * 8. コンストラクタはUser（フォーム）・UserSnapshot（OAuth2）の両方に対応
+ */
@@ -2,6 +2,7 @@ package com.example.onseinippou.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -9,7 +10,7 @@ import org.springframework.stereotype.Service;
 import com.example.onseinippou.domain.repository.UserRepository;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 	@Autowired
 	private UserRepository userRepository;
 	
@@ -19,6 +20,17 @@ public class CustomUserDetailsService implements UserDetailsService {
 				.map(user -> new CustomUserDetails(user))
 				.orElseThrow(() -> new UsernameNotFoundException("ユーザーが見つかりません: " + email));
  }
+
+	/**
+	 * ログイン成功時、保存されているハッシュの方式・強度が古ければ Spring Security から呼ばれる.
+	 * 入力されたパスワードを現在の設定でハッシュし直した値を保存する.
+	 */
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		CustomUserDetails details = (CustomUserDetails) user;
+		userRepository.updatePassword(details.getId(), newPassword);
+		return details;
+	}
 }
 
 /*
@@ -0,0 +1,35 @@
+package com.example.onseinippou.security;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * フォームログイン失敗時の処理.
+ * ハッシュ計算が混み合って照合できなかった場合は、ログイン画面に戻さず 429 を返して再試行を促す.
+ */
+@Component
+public class LoginFailureHandler implements AuthenticationFailureHandler {
+
+	private final AuthenticationFailureHandler defaultHandler = new SimpleUrlAuthenticationFailureHandler("/login?error");
+
+	@Override
+	public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+			AuthenticationException exception) throws IOException, ServletException {
+		if (exception instanceof PasswordHashingBusyException) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(PasswordHashingBusyException.RETRY_AFTER_SECONDS));
+			response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), exception.getMessage());
+			return;
+		}
+		defaultHandler.onAuthenticationFailure(request, response, exception);
+	}
+}
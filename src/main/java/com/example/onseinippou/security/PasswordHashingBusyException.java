@@ -0,0 +1,23 @@
+package com.example.onseinippou.security;
+
+import java.io.Serial;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * パスワードのハッシュ計算の待ち行列が満杯で、受け付けられなかったことを表す例外.
+ * フォームログインでは LoginFailureHandler が、ユーザー登録では UserController が 429 に変換する.
+ * 認証処理の中で投げても認証失敗として扱われるよう AuthenticationException を継承する.
+ */
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	/** クライアントに再試行を促すまでの秒数（Retry-After）. */
+	public static final int RETRY_AFTER_SECONDS = 1;
+
+	public PasswordHashingBusyException() {
+		super("ただいま混み合っています。しばらくしてから再度お試しください。");
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.onseinippou.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * パスワードのハッシュ計算（BCrypt）専用のスレッドプール.
+ * ログイン・登録が集中してもハッシュ計算が使う CPU をこのプールのスレッド数までに抑え、
+ * WebSocket の音声処理などに CPU を残す. 待ち行列が満杯なら待たせずに PasswordHashingBusyException で断る.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+	private final ThreadPoolExecutor executor;
+	private final int queueCapacity;
+	private final Counter rejected;
+
+	/**
+	 * @param threads スレッド数. 0 以下なら CPU コア数の半分（最低1）.
+	 * @param queueCapacity 待ち行列の長さ. 1件あたり数百ミリ秒かかるため、待ち時間の上限の目安は
+	 *                      queueCapacity / threads × ハッシュ1回の時間.
+	 */
+	public PasswordHashingExecutor(MeterRegistry meterRegistry,
+			@Value("${app.security.password.hashing-threads:0}") int threads,
+			@Value("${app.security.password.queue-capacity:64}") int queueCapacity) {
+		int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		AtomicInteger sequence = new AtomicInteger();
+		this.queueCapacity = queueCapacity;
+		this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), r -> {
+					Thread t = new Thread(r, "password-hashing-" + sequence.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.rejected = Counter.builder("security.password.hashing.rejected")
+				.description("待ち行列が満杯で断ったパスワードのハッシュ計算の件数")
+				.register(meterRegistry);
+		Gauge.builder("security.password.hashing.queue", executor, e -> e.getQueue().size())
+				.description("パスワードのハッシュ計算の待ち件数")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * ハッシュ計算をプールで実行し、終わるまで待つ.
+	 * @throws PasswordHashingBusyException 待ち行列が満杯の場合.
+	 */
+	public <T> T run(Supplier<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(task::get);
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new PasswordHashingBusyException();
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("パスワードのハッシュ計算の待機中に割り込まれました。", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IllegalStateException("パスワードのハッシュ計算に失敗しました。", e.getCause());
+		}
+	}
+
+	/**
+	 * 待ち行列が半分以下か. ハッシュの付け替えのように後回しにできる計算は、余裕があるときだけ行う.
+	 */
+	public boolean hasHeadroom() {
+		return executor.getQueue().size() <= queueCapacity / 2;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
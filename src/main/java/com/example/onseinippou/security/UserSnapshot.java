@@ -0,0 +1,19 @@
+package com.example.onseinippou.security;
+
+import com.example.onseinippou.domain.model.user.User;
+
+/**
+ * ログインユーザーの読み取り専用の写し. キャッシュして共有するため不変にしている.
+ * 更新が必要な場合は CurrentUserProvider#getCurrentUser で管理下のエンティティを取得すること.
+ */
+public record UserSnapshot(Long id, String email, String role, String sheetId) {
+
+	public static UserSnapshot of(User user) {
+		return new UserSnapshot(user.getId(), user.getEmail(), user.getRole(), user.getSheetId());
+	}
+
+	/** スプレッドシートを登録済みかどうか. */
+	public boolean hasSheet() {
+		return sheetId != null;
+	}
+}
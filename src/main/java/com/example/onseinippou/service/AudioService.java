@@ -1,12 +1,18 @@
 package com.example.onseinippou.service;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
+import jakarta.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -14,6 +20,8 @@ import org.springframework.web.socket.WebSocketSession;
 
 import com.example.onseinippou.infra.stt.SpeechToTextClient;
 import com.example.onseinippou.infra.stt.SpeechToTextClient.AudioStreamObserver;
+import com.example.onseinippou.infra.stt.SpeechToTextClient.FinalResult;
+import com.example.onseinippou.service.TranscriptionMetrics.StreamEvent;
 
 import lombok.RequiredArgsConstructor;
 
@@ -29,6 +37,11 @@ public class AudioService {
 	private static final Logger logger = LoggerFactory.getLogger(AudioService.class);
 	/** Speech-to-Text APIとの通信を行うクライアント。 */
 	private final SpeechToTextClient speechToTextClient;
+	/** セッション数・音声量・STT ストリームの状態などのメトリクス。 */
+	private final TranscriptionMetrics metrics;
+	/** 最終メッセージにセッションの遅延の統計（lag）を含めるか。認識モデルや設定の比較用。 */
+	@Value("${app.transcription.report-lag:false}")
+	private boolean reportLagToClient;
 
 	/**
 	 * WebSocketセッションごとのストリーミング状態を管理する内部クラス。
@@ -40,9 +53,59 @@ public class AudioService {
 		final StringBuilder accumulatedTranscript = new StringBuilder();
 		// ユーザーが停止を要求したかを記録するフラグ.
 		volatile boolean stopRequested = false;
+		// 停止要求を受けた時刻（System.nanoTime）. 最終テキスト送信までの時間の計測に使う.
+		volatile long stopRequestedNanos;
+		// 確定結果ごとの遅延. STTストリームを張り替えても引き継ぐ.
+		final LagStats lagStats;
 
-		StreamingContext(AudioStreamObserver audioStreamObserver) {
+		StreamingContext(AudioStreamObserver audioStreamObserver, LagStats lagStats) {
 			this.audioStreamObserver = audioStreamObserver;
+			this.lagStats = lagStats;
+		}
+	}
+
+	/**
+	 * セッション1件分の、話してから確定テキストが届くまでの遅延（ミリ秒）の記録。
+	 * 結果の受信（gRPCのスレッド）と最終処理から呼ばれるためロックする。
+	 * 最終処理は仮想スレッドで動くことがあるため、synchronized ではなく ReentrantLock を使う（AudioLagTracker と同じ）。
+	 */
+	static class LagStats {
+		private final ReentrantLock lock = new ReentrantLock();
+		private long[] millis = new long[64];
+		private int count;
+
+		void record(Duration lag) {
+			lock.lock();
+			try {
+				if (count == millis.length) {
+					millis = Arrays.copyOf(millis, count * 2);
+				}
+				millis[count++] = lag.toMillis();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/** 件数・p50・p95・最大を JSON で返す。記録が無ければ null。 */
+		String toJson() {
+			long[] sorted;
+			lock.lock();
+			try {
+				if (count == 0) {
+					return null;
+				}
+				sorted = Arrays.copyOf(millis, count);
+			} finally {
+				lock.unlock();
+			}
+			// 並べ替えはロックの外で行う
+			Arrays.sort(sorted);
+			return String.format("{\"count\": %d, \"p50Ms\": %d, \"p95Ms\": %d, \"maxMs\": %d}",
+					sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.95), sorted[sorted.length - 1]);
+		}
+
+		private static long percentile(long[] sorted, double q) {
+			return sorted[(int) Math.ceil(q * sorted.length) - 1];
 		}
 	}
 
@@ -52,6 +115,11 @@ public class AudioService {
 	/** セッションが回復処理中であるかを管理するマップ。 */
 	private final Map<WebSocketSession, Boolean> recoveringSessionMap = new ConcurrentHashMap<>();
 
+	@PostConstruct
+	void bindMetrics() {
+		metrics.bindActiveSessions(sessionMap);
+	}
+
 	// --- ストリーミング処理メソッド群 ---
 	/**
 	 * このメソッドは外部からのエントリーポイントになる.
@@ -59,7 +127,7 @@ public class AudioService {
 	 */
 	public void startStreamingTranscription(WebSocketSession session) {
 		// 新しく作成する、引数が2つのメソッドを空のテキストで呼び出す
-		startStreamingTranscription(session, "");
+		startStreamingTranscription(session, "", new LagStats());
 	}
 
 	/**
@@ -67,23 +135,32 @@ public class AudioService {
 	 * WebSocketでメッセージ（音声データなど）が届くと、Springはそのメッセージに「誰から送られてきたか」という情報 (session) を付けてくれる.
 	 * @param session WebSocketセッション
 	 * @param initialTranscript 引き継ぐ初期テキスト
+	 * @param lagStats 引き継ぐ遅延の記録
 	 */
-	private void startStreamingTranscription(WebSocketSession session, String initialTranscript) {
+	private void startStreamingTranscription(WebSocketSession session, String initialTranscript, LagStats lagStats) {
 		logger.info("▶️ ストリーミングセッション開始処理を開始: {}", session.getId());
 		try {
 			// STT APIからの文字起こし結果を蓄積変換テキストに追記する.
-			Consumer<String> onResult = transcript -> {
+			Consumer<FinalResult> onResult = result -> {
 				// セッションマップからStreamingContextを取り出す.
 				StreamingContext context = sessionMap.get(session);
 				if (context != null) {
 					// StreamingContextの蓄積変換テキスト追加する.
-					context.accumulatedTranscript.append(transcript);
+					context.accumulatedTranscript.append(result.transcript());
+				}
+				// 話してから確定テキストが届くまでの遅延を記録する.
+				if (result.lag() != null) {
+					lagStats.record(result.lag());
+					metrics.lag(result.lag());
 				}
 			};
 			// STT APIでアイドルタイムアウトが発生した際の処理.
 			Runnable onIdleTimeout = () -> handleSttIdleTimeout(session);
 			// 予期せぬSTT APIエラーが発生した際の処理.
-			Consumer<Throwable> onError = error -> performFullSessionRecovery(session);
+			// 回復処理は待機（sleep）と再接続を含むため、gRPC のコールバックスレッドを塞がないよう仮想スレッドで行う
+			Consumer<Throwable> onError = error -> Thread.ofVirtual()
+					.name("stt-recovery-" + session.getId())
+					.start(() -> performFullSessionRecovery(session));
 
 			// Googleとの通信完了時に呼び出される処理.
 			Runnable onStreamCompleted = () -> {
@@ -101,15 +178,17 @@ public class AudioService {
 			AudioStreamObserver sttObserver = speechToTextClient.startStreamingRecognize(onResult, onIdleTimeout,
 					onError, onStreamCompleted);
 			// 新しいStreamingContextを用意し、受け取った音声送信用パイプを設置する
-			StreamingContext newContext = new StreamingContext(sttObserver);
+			StreamingContext newContext = new StreamingContext(sttObserver, lagStats);
 			// これから文字起こしするテキストをメモするメモ帳に、前のセッションからの引き継ぎ内容を書き込む
 			newContext.accumulatedTranscript.append(initialTranscript);
 			// セッションマップに保管する.
 			sessionMap.put(session, newContext);
+			metrics.streamEvent(StreamEvent.OPENED);
 
 			logger.info("✅ ストリーミングセッション準備完了: {}", session.getId());
 
 		} catch (Exception e) {
+			metrics.streamEvent(StreamEvent.FAILED);
 			logger.error("ストリーミングの開始に致命的な失敗: {}", session.getId(), e);
 			throw new RuntimeException("ストリーミングの開始に失敗", e);
 		}
@@ -121,10 +200,12 @@ public class AudioService {
 	 * @param audioData 受信した音声データ（LINEAR16形式）
 	 */
 	public void processAudioChunk(WebSocketSession session, byte[] audioData) {
+		metrics.audioReceived(audioData.length);
 		StreamingContext context = sessionMap.get(session);
 		if (context != null) {
 			// 音声チャンクをgoogleへのパイプに投入する.
 			context.audioStreamObserver.sendAudio(audioData);
+			metrics.audioForwarded(audioData.length);
 		}
 	}
 
@@ -135,6 +216,7 @@ public class AudioService {
 		StreamingContext context = sessionMap.get(session);
 		if (context != null) {
 			logger.info("クライアントからの停止要求を受信。Google STTへのストリームを閉じます。 Session: {}", session.getId());
+			context.stopRequestedNanos = System.nanoTime();
 			context.stopRequested = true;
 			// Googleへの音声送信を完了させる。これにより、最終的にonCompletedコールバックがトリガーされる。
 			context.audioStreamObserver.closeStream();
@@ -167,12 +249,19 @@ public class AudioService {
 		if (context != null) {
 			try {
 				String finalTranscript = context.accumulatedTranscript.toString();
+				String lagJson = context.lagStats.toJson();
+				if (lagJson != null) {
+					logger.info("話してから確定テキストが届くまでの遅延: {} Session: {}", lagJson, session.getId());
+				}
 				if (session.isOpen()) {
 					logger.info("最終的な文字起こし結果を送信: {}文字", finalTranscript.length());
-					session.sendMessage(new TextMessage("{\"transcript\": \"" + finalTranscript + "\"}"));
+					session.sendMessage(new TextMessage(finalMessage(finalTranscript, lagJson)));
 					// サーバー側から正常に接続を閉じる
 					session.close(CloseStatus.NORMAL);
 				}
+				if (context.stopRequested) {
+					metrics.finalized(context.stopRequestedNanos);
+				}
 			} catch (IOException e) {
 				logger.error("最終的な文字起こし結果の送信またはセッションクローズに失敗: {}", session.getId(), e);
 			}
@@ -180,6 +269,16 @@ public class AudioService {
 		logger.info("⏹️ ストリーミングセッション終了処理を完了: {}", session.getId());
 	}
 
+	/**
+	 * クライアントへ送る最終メッセージ（JSON）を組み立てる。
+	 * @param transcript 蓄積した全文
+	 * @param lagJson 遅延の統計（記録が無ければ null）。設定で有効にした場合だけ lag として付ける
+	 */
+	String finalMessage(String transcript, String lagJson) {
+		String lagField = reportLagToClient && lagJson != null ? ", \"lag\": " + lagJson : "";
+		return "{\"transcript\": \"" + transcript + "\"" + lagField + "}";
+	}
+
 	/**
 	 * STTのアイドルタイムアウト時に、ユーザーに通知せず裏側で静かに接続を再確立する。
 	 * テキストデータは維持される。
@@ -201,8 +300,8 @@ public class AudioService {
 			oldContext.audioStreamObserver.closeStream();
 		}
 		// 新しいSTTストリームを開始し、退避したテキストを引き継ぐ
-
-		startStreamingTranscription(session, currentText);
+		metrics.streamEvent(StreamEvent.ROTATED);
+		startStreamingTranscription(session, currentText, oldContext.lagStats);
 		logger.info("STT再接続の引継ぎ処理が完了しました: {}", session.getId());
 	}
 
@@ -216,11 +315,13 @@ public class AudioService {
 			return;
 		}
 		// 回復処理を始める前に蓄積変換テキストのデータを取得する.
-		String previousText = "";
 		StreamingContext oldContext = sessionMap.get(session);
-		if (oldContext != null) {
-			previousText = oldContext.accumulatedTranscript.toString();
+		if (oldContext == null) {
+			// 回復を始める前に最終処理・切断でセッションが片付いていれば何もしない
+			recoveringSessionMap.remove(session);
+			return;
 		}
+		String previousText = oldContext.accumulatedTranscript.toString();
 		try {
 			logger.info("🔄 Google STT APIとの通信中にエラーが発生しました。ストリーミングセッションの回復処理を開始します: {}", session.getId());
 			if (session.isOpen()) {
@@ -228,7 +329,8 @@ public class AudioService {
 			}
 			handleAbnormalClosure(session);
 			Thread.sleep(1000);
-			startStreamingTranscription(session, previousText);
+			startStreamingTranscription(session, previousText, oldContext.lagStats);
+			metrics.streamEvent(StreamEvent.RECOVERED);
 			logger.info("✅ ストリーミングセッションの回復に成功しました: {}", session.getId());
 			// 回復完了をフロントに通知.
 			if(session.isOpen()){
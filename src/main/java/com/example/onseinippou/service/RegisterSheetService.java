@@ -38,6 +38,10 @@ public class RegisterSheetService {
 		user.setSheetId(sheetId);
 		// @Transactional により自動 flush
 
+		// キャッシュ済みのユーザー情報をコミット後に捨て、セッション上のシート登録状態を更新する
+		currentUserProvider.evict(user.getId());
+		currentUserProvider.refreshPrincipalSheet(sheetId);
+
 	}
 }
 
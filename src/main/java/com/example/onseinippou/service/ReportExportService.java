@@ -0,0 +1,172 @@
+package com.example.onseinippou.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.onseinippou.domain.repository.ReportMetaRepository;
+import com.example.onseinippou.domain.repository.ReportMetaRepository.ExportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 期間内の日報を CSV / NDJSON で一括出力する.
+ * DB から1行ずつ読んでそのまま書き出すため、件数に依らずヒープ使用量は一定.
+ * 書き込み先（レスポンス）が詰まると書き込みが待たされ、DB からの読み出しもそこで止まる.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportExportService {
+
+	/** 出力形式 */
+	public enum Format {
+		CSV("text/csv", "csv"),
+		NDJSON("application/x-ndjson", "ndjson");
+
+		private final String contentType;
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String contentType() {
+			return contentType;
+		}
+
+		public String extension() {
+			return extension;
+		}
+	}
+
+	/** この行数ごとにクライアントへ送り出す. */
+	private static final int FLUSH_EVERY = 1_000;
+	private static final String CSV_HEADER = "id,user_id,email,sheet_id,created_at,delivery_status,sheet_row,text";
+
+	private final ReportMetaRepository reportMetaRepository;
+	private final ObjectMapper objectMapper;
+
+	/* NDJSON の1行分 */
+	private record ExportLine(Long id, Long userId, String email, String sheetId, LocalDateTime createdAt,
+			String deliveryStatus, Integer sheetRow, String text) {
+	}
+
+	/**
+	 * 出力形式の指定文字列（csv / ndjson）を解釈する.
+	 */
+	public static Format parseFormat(String format) {
+		try {
+			return Format.valueOf(format.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("format は csv または ndjson を指定してください。");
+		}
+	}
+
+	/**
+	 * 出力期間を検証する.
+	 */
+	public static void validatePeriod(LocalDate from, LocalDate to) {
+		if (from.isAfter(to)) {
+			throw new IllegalArgumentException("from は to 以前の日付を指定してください。");
+		}
+	}
+
+	/**
+	 * from 日から to 日まで（両端を含む）に作成された日報を書き出す.
+	 * @param out 書き込み先. このメソッドは閉じない.
+	 * @return 書き出した件数.
+	 */
+	@Transactional(readOnly = true)
+	public long export(LocalDate from, LocalDate to, Format format, OutputStream out) {
+		validatePeriod(from, to);
+		long started = System.nanoTime();
+		long count = 0;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+		try (Stream<ExportRow> rows = reportMetaRepository.streamForExport(from.atStartOfDay(),
+				to.plusDays(1).atStartOfDay())) {
+			if (format == Format.CSV) {
+				// Excel で文字化けしないよう BOM を付ける
+				writer.write('\uFEFF');
+				writer.write(CSV_HEADER);
+				writer.write("\r\n");
+			}
+			Iterator<ExportRow> it = rows.iterator();
+			while (it.hasNext()) {
+				ExportRow row = it.next();
+				if (format == Format.CSV) {
+					writeCsv(writer, row);
+				} else {
+					writeNdjson(writer, row);
+				}
+				if (++count % FLUSH_EVERY == 0) {
+					writer.flush();
+				}
+			}
+			writer.flush();
+		} catch (IOException e) {
+			// クライアントの切断など. ここで中断すれば Stream を閉じて DB の読み出しも止まる
+			throw new UncheckedIOException("日報のエクスポートを中断しました。 出力済み件数: " + count, e);
+		}
+		log.info("日報をエクスポートしました。 期間: {}〜{}, 形式: {}, 件数: {}, 所要時間: {} ms",
+				from, to, format, count, (System.nanoTime() - started) / 1_000_000);
+		return count;
+	}
+
+	private void writeCsv(Writer w, ExportRow row) throws IOException {
+		w.write(String.valueOf(row.getId()));
+		w.write(',');
+		w.write(String.valueOf(row.getUserId()));
+		w.write(',');
+		w.write(csv(row.getEmail()));
+		w.write(',');
+		w.write(csv(row.getSheetId()));
+		w.write(',');
+		w.write(row.getCreatedAt() != null ? row.getCreatedAt().toString() : "");
+		w.write(',');
+		w.write(row.getDeliveryStatus() != null ? row.getDeliveryStatus().name() : "");
+		w.write(',');
+		w.write(row.getSheetRow() != null ? row.getSheetRow().toString() : "");
+		w.write(',');
+		w.write(csv(row.getText()));
+		w.write("\r\n");
+	}
+
+	private void writeNdjson(Writer w, ExportRow row) throws IOException {
+		ExportLine line = new ExportLine(row.getId(), row.getUserId(), row.getEmail(), row.getSheetId(),
+				row.getCreatedAt(), row.getDeliveryStatus() != null ? row.getDeliveryStatus().name() : null,
+				row.getSheetRow(), row.getText());
+		w.write(objectMapper.writeValueAsString(line));
+		w.write('\n');
+	}
+
+	/**
+	 * CSV の1項目. カンマ・引用符・改行を含む場合は引用符で囲み、引用符は二重にする.
+	 */
+	static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.onseinippou.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.domain.model.report.ReportOutbox;
+import com.example.onseinippou.domain.repository.ReportOutboxRepository;
+import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * アウトボックスに登録された日報をスプレッドシートへ送信するバックグラウンド処理.
+ * 送信に失敗した日報は指数バックオフで再送し、上限に達したら FAILED として残す.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportOutboxDispatcher {
+
+	/** 1回のポーリングで拾う最大件数. */
+	private static final int BATCH_SIZE = 50;
+	/** 送信権の有効期限. 送信中にインスタンスが落ちても、この時間が過ぎれば別のインスタンスが拾い直す. */
+	private static final Duration LEASE = Duration.ofMinutes(2);
+	/** 送信試行の上限回数. */
+	private static final int MAX_ATTEMPTS = 8;
+	/** 再送間隔の初期値と上限. */
+	private static final Duration BASE_BACKOFF = Duration.ofSeconds(5);
+	private static final Duration MAX_BACKOFF = Duration.ofMinutes(10);
+
+	private final ReportOutboxRepository reportOutboxRepository;
+	private final ReportService reportService;
+	private final GoogleSheetsClient googleSheetsClient;
+
+	/**
+	 * 送信を並行して行うスレッド. 同じシート宛ての複数件は1回の append にまとめ、
+	 * 別々のポーリングで拾った同じシート宛ての1件ずつは GoogleSheetsClient 側の追記まとめが効く.
+	 * 送信の大半は Sheets の応答待ちのため、シートごとに仮想スレッドを1本使う
+	 * （同時実行数は1回のポーリング件数 BATCH_SIZE とレート制限で抑えられる）.
+	 */
+	private final ExecutorService deliveryExecutor = Executors.newThreadPerTaskExecutor(
+			Thread.ofVirtual().name("report-outbox-delivery-", 0).factory());
+
+	/**
+	 * 送信時刻を迎えた日報を拾い、送信権を取れたものだけを送信する.
+	 */
+	@Scheduled(fixedDelay = 1000)
+	public void dispatch() {
+		LocalDateTime now = LocalDateTime.now();
+		List<ReportOutbox> due = reportOutboxRepository.findDue(now, Limit.of(BATCH_SIZE));
+		if (due.isEmpty()) {
+			return;
+		}
+
+		// 送信権を取れたものをシートごとにまとめる（他のインスタンスが先に取っていれば飛ばす）
+		Map<String, List<ReportOutbox>> bySheet = new LinkedHashMap<>();
+		for (ReportOutbox outbox : due) {
+			if (reportOutboxRepository.claim(outbox.getId(), now, now.plus(LEASE)) == 0) {
+				continue;
+			}
+			bySheet.computeIfAbsent(outbox.getSheetId(), k -> new ArrayList<>()).add(outbox);
+		}
+
+		List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+		for (List<ReportOutbox> group : bySheet.values()) {
+			if (group.size() == 1) {
+				deliveries.add(CompletableFuture.runAsync(() -> deliver(group.get(0)), deliveryExecutor));
+			} else {
+				deliveries.add(CompletableFuture.runAsync(() -> deliverAll(group), deliveryExecutor));
+			}
+		}
+		CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)).join();
+	}
+
+	/**
+	 * 1件送信し、結果を記録する. 送信はトランザクションの外で行う.
+	 */
+	private void deliver(ReportOutbox outbox) {
+		try {
+			GoogleSheetsClient.AppendResult result =
+					googleSheetsClient.appendNippou(outbox.getSheetId(), outbox.getText());
+			reportService.recordDelivered(outbox.getId(), result.rowNumber());
+
+		} catch (RuntimeException e) {
+			recordFailure(outbox, e);
+		}
+	}
+
+	/**
+	 * 同じシート宛ての複数件（一括送信された日報など）を1回の append で送信し、結果を記録する.
+	 */
+	private void deliverAll(List<ReportOutbox> group) {
+		List<GoogleSheetsClient.AppendResult> results;
+		try {
+			results = googleSheetsClient.appendNippouAll(group.get(0).getSheetId(),
+					group.stream().map(ReportOutbox::getText).toList());
+		} catch (RuntimeException e) {
+			for (ReportOutbox outbox : group) {
+				recordFailure(outbox, e);
+			}
+			return;
+		}
+		for (int i = 0; i < group.size(); i++) {
+			reportService.recordDelivered(group.get(i).getId(), results.get(i).rowNumber());
+		}
+	}
+
+	private void recordFailure(ReportOutbox outbox, RuntimeException e) {
+		int attempt = outbox.getAttempts() + 1;
+		LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempt));
+		log.warn("日報のスプレッドシート送信に失敗しました。 outboxId: {}, 試行回数: {}", outbox.getId(), attempt, e);
+		reportService.recordDeliveryFailure(outbox.getId(), e.getMessage(), nextAttemptAt, MAX_ATTEMPTS);
+	}
+
+	/**
+	 * 試行回数に応じた再送間隔（5秒, 10秒, 20秒, ... 最大10分）.
+	 */
+	static Duration backoff(int attempt) {
+		long factor = 1L << Math.min(attempt - 1, 16);
+		Duration delay = BASE_BACKOFF.multipliedBy(factor);
+		return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		deliveryExecutor.shutdown();
+		try {
+			deliveryExecutor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
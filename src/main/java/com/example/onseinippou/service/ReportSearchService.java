@@ -0,0 +1,302 @@
+package com.example.onseinippou.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.onseinippou.application.dto.report.ReportResponse;
+import com.example.onseinippou.application.mapper.ReportMapper;
+import com.example.onseinippou.common.exception.SheetNotRegisteredException;
+import com.example.onseinippou.domain.model.report.ReportMeta;
+import com.example.onseinippou.domain.repository.ReportMetaRepository;
+import com.example.onseinippou.domain.repository.ReportMetaRepository.IndexRow;
+import com.example.onseinippou.infra.search.NgramIndex;
+import com.example.onseinippou.security.CurrentUserProvider;
+import com.example.onseinippou.security.UserSnapshot;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 過去の日報の全文検索.
+ * 日報本文の文字バイグラム索引（NgramIndex）をメモリ上に持ち、日報の受付コミット後に1件ずつ追加する.
+ * 索引はインスタンスごとに持つため、他インスタンスで受け付けた日報は定期的に DB から取り込む.
+ * 起動時と管理者の指示で DB から索引を作り直す. 索引は候補の絞り込みにだけ使い、
+ * 最終的な一致は DB の本文で確認するため、誤って一致する結果は返さない.
+ */
+@Service
+@Slf4j
+public class ReportSearchService {
+
+	/** 検索範囲 */
+	public enum Scope {
+		/* 自分の日報 */
+		USER,
+		/* 同じスプレッドシートに書き込むチームの日報 */
+		TEAM
+	}
+
+	/** 1回の検索で返す最大件数. */
+	private static final int MAX_LIMIT = 100;
+	/** 本文で一致確認する候補の最大数. よくある語で検索されても DB の読み込み量を抑える. */
+	private static final int MAX_CANDIDATES = 2_000;
+	/** 一致確認で1回に読み込む候補数. */
+	private static final int VERIFY_CHUNK = 100;
+	/** 再構築時に DB から1回に読み込む件数. */
+	private static final int REBUILD_CHUNK = 5_000;
+	/**
+	 * 他インスタンスの日報の取り込みで、前回の取り込み開始時刻より遡って読む時間.
+	 * 作成日時を付けてからコミットまでの遅れ・インスタンス間の時計のずれ・レプリカの遅延を吸収する.
+	 */
+	private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(1);
+	/** 1回の取り込みで読む最大件数. これを超えるほど溜まっていたら作り直す. */
+	private static final int CATCH_UP_LIMIT = 5_000;
+
+	private final ReportMetaRepository reportMetaRepository;
+	private final CurrentUserProvider currentUserProvider;
+	private final ReportMapper reportMapper;
+
+	private volatile NgramIndex index = new NgramIndex();
+
+	/* 再構築中に受け付けた日報. 再構築の完了時に新しい索引へ追加する */
+	private final Map<Long, ReportSubmittedEvent> pendingDuringRebuild = new ConcurrentHashMap<>();
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	/* 日報の追加と索引の差し替えを排他する */
+	private final ReentrantLock swapLock = new ReentrantLock();
+	/* 再構築と取り込みの DB の読み込みを排他する */
+	private final ReentrantLock scanLock = new ReentrantLock();
+	/* 次の取り込みで読み始める作成日時. 最初の再構築が終わるまでは null（取り込まない） */
+	private volatile LocalDateTime catchUpSince;
+
+	/* 再構築は rebuilding フラグで1本に限られるため、仮想スレッドで実行する */
+	private final ExecutorService rebuildExecutor = Executors.newThreadPerTaskExecutor(
+			Thread.ofVirtual().name("report-index-rebuild").factory());
+
+	public ReportSearchService(ReportMetaRepository reportMetaRepository, CurrentUserProvider currentUserProvider,
+			ReportMapper reportMapper) {
+		this.reportMetaRepository = reportMetaRepository;
+		this.currentUserProvider = currentUserProvider;
+		this.reportMapper = reportMapper;
+	}
+
+	/**
+	 * 起動完了後にバックグラウンドで索引を作る. 作り終えるまでの検索は、それまでに受け付けた日報だけが対象になる.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildOnStartup() {
+		requestRebuild();
+	}
+
+	/**
+	 * 日報の受付がコミットされたら索引に追加する.
+	 */
+	@TransactionalEventListener
+	public void onReportSubmitted(ReportSubmittedEvent event) {
+		swapLock.lock();
+		try {
+			index.add(event.reportId(), event.userId(), event.sheetId(), event.text());
+			if (rebuilding.get()) {
+				pendingDuringRebuild.put(event.reportId(), event);
+			}
+		} finally {
+			swapLock.unlock();
+		}
+	}
+
+	/**
+	 * 索引の再構築を開始する. 既に再構築中であれば何もしない.
+	 * @return 再構築を開始した場合は true.
+	 */
+	public boolean requestRebuild() {
+		if (!rebuilding.compareAndSet(false, true)) {
+			return false;
+		}
+		rebuildExecutor.execute(() -> {
+			scanLock.lock();
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				log.error("全文検索インデックスの再構築に失敗しました。", e);
+			} finally {
+				pendingDuringRebuild.clear();
+				rebuilding.set(false);
+				scanLock.unlock();
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * DB の日報を ID 順に一定量ずつ読み、新しい索引を作ってから差し替える.
+	 * 作っている間も古い索引で検索でき、その間に受け付けた日報は差し替え時に新しい索引へ追加する.
+	 */
+	private void rebuild() {
+		long started = System.nanoTime();
+		// ID 順の読み込み中に他インスタンスが小さい ID で登録した日報は、この時刻からの取り込みで拾う
+		LocalDateTime scanStarted = LocalDateTime.now();
+		NgramIndex rebuilt = new NgramIndex();
+		long afterId = 0;
+		List<IndexRow> rows;
+		do {
+			rows = reportMetaRepository.findIndexRowsAfter(afterId, Limit.of(REBUILD_CHUNK));
+			for (IndexRow row : rows) {
+				// 再構築中に受け付けたものは差し替え時にまとめて追加する
+				if (!pendingDuringRebuild.containsKey(row.getId())) {
+					rebuilt.add(row.getId(), row.getUserId(), row.getSheetId(), row.getText());
+				}
+				afterId = row.getId();
+			}
+		} while (rows.size() == REBUILD_CHUNK);
+
+		swapLock.lock();
+		try {
+			// 読み込み後に通知が届いたもので既に入っているものは add が無視する
+			for (ReportSubmittedEvent event : pendingDuringRebuild.values()) {
+				rebuilt.add(event.reportId(), event.userId(), event.sheetId(), event.text());
+			}
+			index = rebuilt;
+		} finally {
+			swapLock.unlock();
+		}
+		catchUpSince = scanStarted.minus(CATCH_UP_OVERLAP);
+		log.info("全文検索インデックスを再構築しました。 件数: {}, 所要時間: {} ms",
+				rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+	}
+
+	/**
+	 * 前回の取り込み以降に作成された日報を DB から読み、索引に無いもの（他インスタンスで受け付けた日報）を追加する.
+	 * 再構築中は再構築がまとめて取り込むため何もしない.
+	 */
+	@Scheduled(fixedDelayString = "${app.search.catch-up-interval-ms:10000}")
+	public void catchUp() {
+		if (catchUpSince == null || !scanLock.tryLock()) {
+			return;
+		}
+		try {
+			LocalDateTime started = LocalDateTime.now();
+			List<IndexRow> rows = reportMetaRepository.findIndexRowsCreatedSince(catchUpSince, Limit.of(CATCH_UP_LIMIT));
+			if (rows.size() == CATCH_UP_LIMIT) {
+				log.warn("取り込み待ちの日報が{}件を超えたため、全文検索インデックスを再構築します。", CATCH_UP_LIMIT);
+				requestRebuild();
+				return;
+			}
+			// 索引済みかどうかは読み取りロックで確かめ、受付のコミットを待たせるロックは足りない分の追加だけで持つ
+			NgramIndex current = index;
+			List<IndexRow> missing = rows.stream().filter(row -> !current.contains(row.getId())).toList();
+			int added = 0;
+			if (!missing.isEmpty()) {
+				swapLock.lock();
+				try {
+					for (IndexRow row : missing) {
+						if (index.add(row.getId(), row.getUserId(), row.getSheetId(), row.getText())) {
+							added++;
+						}
+					}
+				} finally {
+					swapLock.unlock();
+				}
+			}
+			catchUpSince = started.minus(CATCH_UP_OVERLAP);
+			if (added > 0) {
+				log.debug("他インスタンスで受け付けた日報を全文検索インデックスに取り込みました。 件数: {}", added);
+			}
+		} catch (RuntimeException e) {
+			log.warn("全文検索インデックスへの取り込みに失敗しました。次回に再試行します。", e);
+		} finally {
+			scanLock.unlock();
+		}
+	}
+
+	/**
+	 * 日報本文を部分一致で検索し、新しい順に返す.
+	 * @param query 検索語（2文字以上）. 全角・半角と大文字・小文字は区別しない.
+	 * @param scope 検索範囲.
+	 * @param limit 返す最大件数（最大100）.
+	 */
+	@Transactional(readOnly = true)
+	public List<ReportResponse> search(String query, Scope scope, int limit) {
+		if (query == null || query.isBlank()) {
+			throw new IllegalArgumentException("検索語を指定してください。");
+		}
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit は1以上を指定してください。");
+		}
+		int max = Math.min(limit, MAX_LIMIT);
+		UserSnapshot me = currentUserProvider.getCurrentUserSnapshot();
+
+		List<Long> candidates = switch (scope) {
+			case USER -> index.candidates(query, me.id(), null, MAX_CANDIDATES);
+			case TEAM -> {
+				if (me.sheetId() == null) {
+					throw new SheetNotRegisteredException();
+				}
+				yield index.candidates(query, null, me.sheetId(), MAX_CANDIDATES);
+			}
+		};
+
+		// 候補を新しい順に少しずつ読み、本文に検索語を含むものだけを残す
+		String needle = NgramIndex.normalize(query).strip();
+		List<ReportResponse> hits = new ArrayList<>(max);
+		for (int from = 0; from < candidates.size() && hits.size() < max; from += VERIFY_CHUNK) {
+			List<Long> chunk = candidates.subList(from, Math.min(from + VERIFY_CHUNK, candidates.size()));
+			Map<Long, ReportMeta> loaded = new HashMap<>();
+			for (ReportMeta meta : reportMetaRepository.findAllById(chunk)) {
+				loaded.put(meta.getId(), meta);
+			}
+			for (Long id : chunk) {
+				ReportMeta meta = loaded.get(id);
+				if (meta != null && NgramIndex.normalize(meta.getText()).contains(needle)) {
+					hits.add(reportMapper.toResponse(meta));
+					if (hits.size() == max) {
+						break;
+					}
+				}
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * 検索範囲の指定文字列（user / team）を解釈する.
+	 */
+	public static Scope parseScope(String scope) {
+		try {
+			return Scope.valueOf(scope.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("scope は user または team を指定してください。");
+		}
+	}
+
+	/** 索引済みの日報数. */
+	public int indexedCount() {
+		return index.size();
+	}
+
+	/** 再構築中かどうか. */
+	public boolean isRebuilding() {
+		return rebuilding.get();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		rebuildExecutor.shutdownNow();
+	}
+}
@@ -1,15 +1,29 @@
 package com.example.onseinippou.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
-import jakarta.transaction.Transactional;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.onseinippou.application.dto.report.ReportPage;
+import com.example.onseinippou.application.dto.report.ReportResponse;
+import com.example.onseinippou.common.exception.SheetNotRegisteredException;
 import com.example.onseinippou.domain.model.report.ReportMeta;
+import com.example.onseinippou.domain.model.report.ReportOutbox;
 import com.example.onseinippou.domain.model.user.User;
 import com.example.onseinippou.domain.repository.ReportMetaRepository;
-import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient;
+import com.example.onseinippou.domain.repository.ReportMetaRepository.HistoryRow;
+import com.example.onseinippou.domain.repository.ReportOutboxRepository;
 import com.example.onseinippou.security.CurrentUserProvider;
 
 import lombok.RequiredArgsConstructor;
@@ -19,28 +33,260 @@ import lombok.RequiredArgsConstructor;
 public class ReportService {
 
     private final CurrentUserProvider currentUserProvider;      // ← Security 層
-    private final GoogleSheetsClient googleSheetsClient;              // ← Infra 層
     private final ReportMetaRepository reportMetaRepository;
+    private final ReportOutboxRepository reportOutboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** 履歴1ページあたりの最大件数 */
+    private static final int MAX_HISTORY_SIZE = 100;
+
+    /**
+     * 日報の受付結果.
+     * @param reportId 受け付けた日報メタのID.
+     * @param replayed 同じ冪等キーで受付済みだったため、新たには登録しなかった場合 true.
+     */
+    public record SubmitResult(Long reportId, boolean replayed) {
+    }
 
+    /**
+     * 日報を受け付け、スプレッドシートへの送信待ちとして登録する.
+     * Sheets への送信は ReportOutboxDispatcher が非同期で行うため、
+     * このトランザクションはリモート呼び出しを含まず DB 接続をすぐに返却する.
+     * @param idempotencyKey クライアントが付けた冪等キー. 受付済みのキーなら登録せず既存の日報を返す. 無ければ null.
+     * @throws SheetNotRegisteredException スプレッドシートが未登録の場合.
+     * @throws org.springframework.dao.DataIntegrityViolationException 同じキーが他のリクエストで同時に登録された場合.
+     */
     @Transactional
-    public void sendToSheets(String text) {
+    public SubmitResult submitReport(String text, String idempotencyKey) {
 
-        // ログインユーザー情報を取得.
+        // 送信先のシートは DB から読む（キャッシュ済みの写しは他インスタンスでのシート変更を TTL の間反映しないため）.
         User user = currentUserProvider.getCurrentUser();
         String sheetId = user.getSheetId();
+        if (sheetId == null) {
+            throw new SheetNotRegisteredException();
+        }
+
+        // 受付済みのキーなら何もしない.
+        if (idempotencyKey != null) {
+            Optional<ReportMeta> existing = reportMetaRepository.findByUser_IdAndIdempotencyKey(user.getId(), idempotencyKey);
+            if (existing.isPresent()) {
+                return replayOf(existing.get(), text);
+            }
+        }
 
-        // Sheets へ追記して行番号を取得 .
-        GoogleSheetsClient.AppendResult appendResult =
-        		googleSheetsClient.appendNippou(sheetId, text);
+        LocalDateTime now = LocalDateTime.now();
 
-        // メタを保存.
+        // 本文ごとメタを保存（行番号は送信完了後に書き戻す）.
         ReportMeta meta = ReportMeta.builder()
                 .user(user)
-                .sheetId(appendResult.sheetId())
-                .sheetRow(appendResult.rowNumber())
-                .createdAt(LocalDateTime.now())
+                .sheetId(sheetId)
+                .text(text)
+                .idempotencyKey(idempotencyKey)
+                .createdAt(now)
                 .build();
-        reportMetaRepository.save(meta);
+        if (idempotencyKey != null) {
+            // 一意制約違反をここで検出できるよう、すぐに INSERT する.
+            reportMetaRepository.saveAndFlush(meta);
+        } else {
+            reportMetaRepository.save(meta);
+        }
+
+        // 送信待ちとしてアウトボックスに登録.
+        ReportOutbox outbox = ReportOutbox.builder()
+                .reportMeta(meta)
+                .sheetId(sheetId)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        reportOutboxRepository.save(outbox);
+
+        // コミット後に全文検索インデックスへ反映する.
+        eventPublisher.publishEvent(new ReportSubmittedEvent(meta.getId(), user.getId(), sheetId, text));
+        return new SubmitResult(meta.getId(), false);
     }
-}
 
+    /**
+     * 一括送信の1件分.
+     * @param idempotencyKey クライアントが付けた冪等キー. 無ければ null.
+     */
+    public record BulkItem(String text, String idempotencyKey) {
+    }
+
+    /**
+     * 一括送信の1件分の結果. error が null でなければ受け付けなかった.
+     */
+    public record BulkItemResult(Long reportId, boolean replayed, String error) {
+
+        public static BulkItemResult rejected(String error) {
+            return new BulkItemResult(null, false, error);
+        }
+    }
+
+    /**
+     * 複数の日報を1回のトランザクションでまとめて受け付ける.
+     * ユーザーの読み込みと受付済みキーの確認はそれぞれ1回で済ませる.
+     * スプレッドシートへはディスパッチャーが同じシート宛てとしてまとめて1回の append で送信する.
+     * 本文と冪等キーの形式は呼び出し側で検証済みであること.
+     * @return 各日報の受付結果（items と同じ順）.
+     * @throws SheetNotRegisteredException スプレッドシートが未登録の場合.
+     * @throws org.springframework.dao.DataIntegrityViolationException 同じキーが他のリクエストで同時に登録された場合.
+     */
+    @Transactional
+    public List<BulkItemResult> submitReports(List<BulkItem> items) {
+
+        // 送信先のシートは submitReport と同じく DB から読む.
+        User user = currentUserProvider.getCurrentUser();
+        String sheetId = user.getSheetId();
+        if (sheetId == null) {
+            throw new SheetNotRegisteredException();
+        }
+
+        // 受付済みのキーをまとめて引く.
+        List<String> keys = items.stream().map(BulkItem::idempotencyKey).filter(Objects::nonNull).toList();
+        Map<String, ReportMeta> existing = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (ReportMeta meta : reportMetaRepository.findByUser_IdAndIdempotencyKeyIn(user.getId(), keys)) {
+                existing.put(meta.getIdempotencyKey(), meta);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        List<ReportMeta> metas = new ArrayList<>();
+        List<ReportOutbox> outboxes = new ArrayList<>();
+        for (BulkItem item : items) {
+            ReportMeta found = item.idempotencyKey() != null ? existing.get(item.idempotencyKey()) : null;
+            if (found != null) {
+                results.add(Objects.equals(found.getText(), item.text())
+                        ? new BulkItemResult(found.getId(), true, null)
+                        : BulkItemResult.rejected("同じ Idempotency-Key で異なる内容の日報が送信済みです。"));
+                continue;
+            }
+            ReportMeta meta = ReportMeta.builder()
+                    .user(user)
+                    .sheetId(sheetId)
+                    .text(item.text())
+                    .idempotencyKey(item.idempotencyKey())
+                    .createdAt(now)
+                    .build();
+            metas.add(meta);
+            outboxes.add(ReportOutbox.builder()
+                    .reportMeta(meta)
+                    .sheetId(sheetId)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+            results.add(null); // 保存後に ID を埋める
+        }
+
+        reportMetaRepository.saveAll(metas);
+        reportOutboxRepository.saveAll(outboxes);
+
+        // 保存した日報の結果を埋め、コミット後に全文検索インデックスへ反映する.
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                ReportMeta meta = metas.get(next++);
+                results.set(i, new BulkItemResult(meta.getId(), false, null));
+                eventPublisher.publishEvent(new ReportSubmittedEvent(meta.getId(), user.getId(), sheetId, meta.getText()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 冪等キーで受付済みの日報を探す. 同時に登録された別リクエストの結果を引き当てるために使う.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SubmitResult> findSubmission(Long userId, String idempotencyKey, String text) {
+        return reportMetaRepository.findByUser_IdAndIdempotencyKey(userId, idempotencyKey)
+                .map(meta -> replayOf(meta, text));
+    }
+
+    /* 受付済みの日報を再送信の結果として返す. キーが同じで本文が違う場合はクライアントの誤りとして扱う */
+    private static SubmitResult replayOf(ReportMeta meta, String text) {
+        if (!Objects.equals(meta.getText(), text)) {
+            throw new IllegalArgumentException("同じ Idempotency-Key で異なる内容の日報が送信されました。");
+        }
+        return new SubmitResult(meta.getId(), true);
+    }
+
+    /**
+     * 送信完了を記録し、書き込んだ行番号を日報メタへ書き戻す.
+     */
+    @Transactional
+    public void recordDelivered(Long outboxId, int sheetRow) {
+        reportOutboxRepository.findById(outboxId).ifPresent(outbox -> {
+            outbox.markSent(LocalDateTime.now());
+            outbox.getReportMeta().markDelivered(sheetRow);
+        });
+    }
+
+    /**
+     * 送信失敗を記録し、次回の送信予定時刻を設定する.
+     */
+    @Transactional
+    public void recordDeliveryFailure(Long outboxId, String error, LocalDateTime nextAttemptAt, int maxAttempts) {
+        reportOutboxRepository.findById(outboxId)
+                .ifPresent(outbox -> outbox.markAttemptFailed(error, nextAttemptAt, maxAttempts));
+    }
+
+    /**
+     * ログインユーザーの日報履歴を新しい順に返す.
+     * 手元の DB だけで完結し、Sheets API は呼ばない.
+     * 前ページ最後の1件を起点に読むキーセット方式のため、何ページ目でも応答時間は変わらない.
+     * @param cursor 前のページの nextCursor. 先頭ページは null.
+     * @param size 1ページの件数（最大100）.
+     */
+    @Transactional(readOnly = true)
+    public ReportPage findHistory(String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size は1以上を指定してください。");
+        }
+        int limit = Math.min(size, MAX_HISTORY_SIZE);
+        Long userId = currentUserProvider.getCurrentUserSnapshot().id();
+
+        // 次ページの有無を知るため1件多く読む.
+        List<HistoryRow> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = reportMetaRepository.findHistoryHead(userId, Limit.of(limit + 1));
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = reportMetaRepository.findHistoryAfter(userId, after.createdAt(), after.id(), Limit.of(limit + 1));
+        }
+
+        boolean hasNext = rows.size() > limit;
+        List<ReportResponse> items = rows.stream()
+                .limit(limit)
+                .map(row -> new ReportResponse(row.getId(), userId, row.getText(), row.getCreatedAt(),
+                        row.getDeliveryStatus() != null ? row.getDeliveryStatus().name() : null, row.getSheetRow()))
+                .toList();
+        String nextCursor = null;
+        if (hasNext) {
+            ReportResponse last = items.get(items.size() - 1);
+            nextCursor = new HistoryCursor(last.createdAt(), last.id()).encode();
+        }
+        return new ReportPage(items, nextCursor);
+    }
+
+    /**
+     * 履歴のページ位置（前ページ最後の1件の作成日時とID）. クライアントには不透明な文字列として渡す.
+     */
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("cursor が不正です。");
+            }
+        }
+    }
+}
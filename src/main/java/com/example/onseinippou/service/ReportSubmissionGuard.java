@@ -0,0 +1,179 @@
+package com.example.onseinippou.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.security.CurrentUserProvider;
+import com.example.onseinippou.service.ReportService.BulkItem;
+import com.example.onseinippou.service.ReportService.BulkItemResult;
+import com.example.onseinippou.service.ReportService.SubmitResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotency-Key 付きの日報送信の重複を抑えるクラス.
+ * 通信の不安定なモバイル端末からの再送で、同じ日報が二重に登録・送信されないようにする.
+ * <ul>
+ * <li>同じインスタンスに同時に届いた再送は、最初のリクエストの結果を待って同じ結果を返す.</li>
+ * <li>少し遅れて届いた再送は、直近のキーを保持するキャッシュから結果を返す.</li>
+ * <li>キャッシュに無い・別インスタンスに届いた再送は、DB の一意制約（ユーザーID＋キー）で1件に抑える.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportSubmissionGuard {
+
+	/** キャッシュで結果を覚えておく期間. これを過ぎた再送は DB で判定する. */
+	private static final Duration RETENTION = Duration.ofMinutes(10);
+	/** キャッシュで覚えておくキーの最大数. */
+	private static final long MAX_KEYS = 50_000;
+	/** 同時に届いた再送が、最初のリクエストの結果を待つ上限. */
+	private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(30);
+	/** 冪等キーとして受け付ける形式（UUID などを想定）. 一括送信のリクエストの検証にも使う. */
+	public static final String KEY_REGEX = "[A-Za-z0-9._:-]{1,64}";
+	public static final String INVALID_KEY_MESSAGE = "Idempotency-Key は英数字と ._:- からなる64文字以内で指定してください。";
+	private static final Pattern KEY_PATTERN = Pattern.compile(KEY_REGEX);
+	/** 一括送信で1回に受け付ける最大件数. ディスパッチャーが1回のポーリングで拾える件数に合わせる. */
+	public static final int MAX_BULK_SIZE = 50;
+
+	private final ReportService reportService;
+	private final CurrentUserProvider currentUserProvider;
+
+	/* 「ユーザーID:キー」→ 処理中または処理済みの送信 */
+	private final Cache<String, Submission> submissions = Caffeine.newBuilder()
+			.expireAfterWrite(RETENTION)
+			.maximumSize(MAX_KEYS)
+			.build();
+
+	/* 1回の送信. 再送が本文の一致を確かめられるよう本文も持つ */
+	private record Submission(String text, CompletableFuture<SubmitResult> result) {
+	}
+
+	/**
+	 * 日報を送信する. 受付済みのキーであれば登録せず、最初の送信の結果を replayed=true で返す.
+	 * @param idempotencyKey Idempotency-Key ヘッダの値. 無ければ null（重複判定しない）.
+	 */
+	public SubmitResult submit(String text, String idempotencyKey) {
+		if (idempotencyKey == null) {
+			return reportService.submitReport(text, null);
+		}
+		if (!isValidKey(idempotencyKey)) {
+			throw new IllegalArgumentException(INVALID_KEY_MESSAGE);
+		}
+
+		Long userId = currentUserProvider.getCurrentUserSnapshot().id();
+		String cacheKey = userId + ":" + idempotencyKey;
+		Submission mine = new Submission(text, new CompletableFuture<>());
+		Submission existing = submissions.asMap().putIfAbsent(cacheKey, mine);
+		if (existing != null) {
+			return awaitExisting(existing, text, idempotencyKey);
+		}
+
+		try {
+			SubmitResult result;
+			try {
+				result = reportService.submitReport(text, idempotencyKey);
+			} catch (DataIntegrityViolationException e) {
+				// 別インスタンスが同じキーを先に登録した
+				result = reportService.findSubmission(userId, idempotencyKey, text).orElseThrow(() -> e);
+			}
+			mine.result().complete(result);
+			return result;
+		} catch (RuntimeException e) {
+			// 失敗した送信は覚えず、次の再送で改めて処理させる
+			submissions.asMap().remove(cacheKey, mine);
+			mine.result().completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 複数の日報をまとめて送信する. 1回の送信の中で冪等キーが重複するものだけを除き、残りを1回のトランザクションで受け付ける.
+	 * 日報ごとの冪等キーは DB で受付済みか判定する.
+	 * 本文と冪等キーの形式はリクエスト（BulkReportRequest）の Bean Validation で検証済みであること.
+	 * @return 各日報の受付結果（items と同じ順）.
+	 */
+	public List<BulkItemResult> submitAll(List<BulkItem> items) {
+		if (items == null || items.isEmpty()) {
+			throw new IllegalArgumentException("日報が指定されていません。");
+		}
+		if (items.size() > MAX_BULK_SIZE) {
+			throw new IllegalArgumentException("一度に送信できる日報は" + MAX_BULK_SIZE + "件までです。");
+		}
+
+		// 1回の送信の中での冪等キーの重複を除き、受け付けるものだけを取り出す
+		List<BulkItemResult> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+		List<Integer> acceptedIndexes = new ArrayList<>();
+		List<BulkItem> accepted = new ArrayList<>();
+		Set<String> seenKeys = new HashSet<>();
+		for (int i = 0; i < items.size(); i++) {
+			BulkItem item = items.get(i);
+			if (item.idempotencyKey() != null && !seenKeys.add(item.idempotencyKey())) {
+				results.set(i, BulkItemResult.rejected("同じ Idempotency-Key が1回の送信の中で重複しています。"));
+			} else {
+				acceptedIndexes.add(i);
+				accepted.add(item);
+			}
+		}
+		if (accepted.isEmpty()) {
+			return results;
+		}
+
+		List<BulkItemResult> saved;
+		try {
+			saved = reportService.submitReports(accepted);
+		} catch (DataIntegrityViolationException e) {
+			// 別のリクエストが同じキーを先に登録した. やり直せば受付済みとして扱われる
+			log.debug("一括送信の冪等キーが競合したため再試行します。", e);
+			saved = reportService.submitReports(accepted);
+		}
+		for (int j = 0; j < saved.size(); j++) {
+			results.set(acceptedIndexes.get(j), saved.get(j));
+		}
+		return results;
+	}
+
+	private static boolean isValidKey(String key) {
+		return KEY_PATTERN.matcher(key).matches();
+	}
+
+	/**
+	 * 同じキーの送信（処理中または処理済み）の結果を待って返す.
+	 */
+	private SubmitResult awaitExisting(Submission existing, String text, String idempotencyKey) {
+		if (!existing.text().equals(text)) {
+			throw new IllegalArgumentException("同じ Idempotency-Key で異なる内容の日報が送信されました。");
+		}
+		try {
+			SubmitResult first = existing.result().get(WAIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+			log.debug("再送された日報を重複として扱いました。 key: {}, reportId: {}", idempotencyKey, first.reportId());
+			return new SubmitResult(first.reportId(), true);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IllegalStateException("日報の送信に失敗しました。", e.getCause());
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("同じ Idempotency-Key の送信が処理中です。時間をおいて再送してください。");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("日報の送信待ちが中断されました。", e);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package com.example.onseinippou.service;
+
+/**
+ * 日報の受付（ReportMeta の保存）を知らせるイベント.
+ * 受付トランザクションのコミット後に全文検索インデックスへ反映するために使う.
+ */
+public record ReportSubmittedEvent(Long reportId, Long userId, String sheetId, String text) {
+}
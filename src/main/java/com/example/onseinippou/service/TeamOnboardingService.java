@@ -0,0 +1,220 @@
+package com.example.onseinippou.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.stereotype.Service;
+
+import com.example.onseinippou.application.dto.onboarding.OnboardingJobResponse;
+import com.example.onseinippou.application.dto.onboarding.OnboardingRequest;
+import com.example.onseinippou.domain.repository.UserRepository;
+import com.example.onseinippou.infra.google.drive.DrivePermissionBatcher.Outcome;
+import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient;
+import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient.ProvisionedSpreadsheet;
+import com.example.onseinippou.security.CurrentUserProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * チーム単位の一括オンボーディング（チーム用スプレッドシートの用意・メンバーへの共有・シート登録）を
+ * バックグラウンドのジョブとして実行するクラス.
+ * 同時に処理するチーム数を制限し、進捗はジョブIDで参照できる.
+ * 格納フォルダを指定したチームは、同じ内容で再実行しても既存のスプレッドシートと共有済みの権限を再利用するため重複は作られない.
+ */
+@Service
+@Slf4j
+public class TeamOnboardingService {
+
+	/** 同時に処理するチーム数. Drive のクォータを1つのジョブで使い切らないように抑える. */
+	private static final int MAX_CONCURRENT_TEAMS = 4;
+	/** 終了したジョブの進捗を参照できる期間. */
+	private static final Duration JOB_RETENTION = Duration.ofDays(1);
+
+	private final GoogleSheetsClient googleSheetsClient;
+	private final UserRepository userRepository;
+	private final CurrentUserProvider currentUserProvider;
+
+	/* チームごとに仮想スレッドを1本使い、同時実行数は teamPermits で抑える */
+	private final ExecutorService teamExecutor = Executors.newThreadPerTaskExecutor(
+			Thread.ofVirtual().name("team-onboarding-", 0).factory());
+	private final Semaphore teamPermits = new Semaphore(MAX_CONCURRENT_TEAMS);
+
+	private final Cache<String, OnboardingJob> jobs = Caffeine.newBuilder()
+			.expireAfterWrite(JOB_RETENTION)
+			.maximumSize(1_000)
+			.build();
+
+	public TeamOnboardingService(GoogleSheetsClient googleSheetsClient, UserRepository userRepository,
+			CurrentUserProvider currentUserProvider) {
+		this.googleSheetsClient = googleSheetsClient;
+		this.userRepository = userRepository;
+		this.currentUserProvider = currentUserProvider;
+	}
+
+	/**
+	 * オンボーディングジョブを開始する. 処理の完了は待たない.
+	 * @return 開始直後のジョブの状態.
+	 */
+	public OnboardingJobResponse start(OnboardingRequest request) {
+		if (request == null || request.teams() == null || request.teams().isEmpty()) {
+			throw new IllegalArgumentException("チームが指定されていません。");
+		}
+		for (OnboardingRequest.Team team : request.teams()) {
+			if (team.title() == null || team.title().isBlank()) {
+				throw new IllegalArgumentException("スプレッドシート名が空のチームがあります。");
+			}
+		}
+
+		OnboardingJob job = new OnboardingJob(UUID.randomUUID().toString(), request.teams());
+		jobs.put(job.id, job);
+		log.info("オンボーディングジョブを開始します。 jobId: {}, チーム数: {}", job.id, job.teams.size());
+		for (TeamState team : job.teams) {
+			teamExecutor.execute(() -> onboardWithPermit(job, team));
+		}
+		return job.snapshot();
+	}
+
+	/**
+	 * ジョブの進捗を取得する.
+	 */
+	public Optional<OnboardingJobResponse> find(String jobId) {
+		return Optional.ofNullable(jobs.getIfPresent(jobId)).map(OnboardingJob::snapshot);
+	}
+
+	/**
+	 * 同時実行数の枠が空くのを待ってからチーム1つ分を処理する. 待っている間のチームは QUEUED のまま.
+	 */
+	private void onboardWithPermit(OnboardingJob job, TeamState team) {
+		try {
+			teamPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
+			onboard(job, team);
+		} finally {
+			teamPermits.release();
+		}
+	}
+
+	/**
+	 * チーム1つ分のオンボーディング.
+	 * スプレッドシートを用意して全員に共有し、まだシートを登録していないメンバーにはそのシートを登録する.
+	 */
+	private void onboard(OnboardingJob job, TeamState team) {
+		team.status = "RUNNING";
+		try {
+			ProvisionedSpreadsheet sheet = googleSheetsClient.provisionSpreadsheet(
+					team.request.title(), team.request.parentFolderId(), team.request.members());
+			team.sheetId = sheet.fileId();
+			team.webViewLink = sheet.webViewLink();
+
+			List<String> shared = new ArrayList<>();
+			for (Map.Entry<String, Outcome> share : sheet.shares().entrySet()) {
+				switch (share.getValue()) {
+				case GRANTED -> {
+					job.membersGranted.incrementAndGet();
+					shared.add(share.getKey());
+				}
+				case ALREADY_SHARED -> {
+					job.membersAlreadyShared.incrementAndGet();
+					shared.add(share.getKey());
+				}
+				case FAILED -> {
+					job.membersFailed.incrementAndGet();
+					team.failedMembers.add(share.getKey());
+				}
+				}
+			}
+			// 共有できたメンバーのうち、まだシート未登録のユーザーだけにチームのシートを登録する
+			if (!shared.isEmpty()) {
+				if (userRepository.assignSheetIdIfAbsent(shared, sheet.fileId()) > 0) {
+					// 登録したユーザーのキャッシュ済み情報を捨てる（対象は email でしか分からないため全体を捨てる）
+					currentUserProvider.evictAll();
+				}
+			}
+			team.status = team.failedMembers.isEmpty() ? "COMPLETED" : "COMPLETED_WITH_ERRORS";
+
+		} catch (Exception e) {
+			log.error("チームのオンボーディングに失敗しました。 jobId: {}, チーム: {}", job.id, team.request.title(), e);
+			team.error = e.getMessage();
+			team.status = "FAILED";
+
+		} finally {
+			if (job.teamsCompleted.incrementAndGet() == job.teams.size()) {
+				job.finishedAt = LocalDateTime.now();
+				log.info("オンボーディングジョブが終了しました。 jobId: {}", job.id);
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		teamExecutor.shutdownNow();
+	}
+
+	/* ジョブ1件分の進捗 */
+	private static final class OnboardingJob {
+		final String id;
+		final List<TeamState> teams;
+		final AtomicInteger teamsCompleted = new AtomicInteger();
+		final AtomicInteger membersGranted = new AtomicInteger();
+		final AtomicInteger membersAlreadyShared = new AtomicInteger();
+		final AtomicInteger membersFailed = new AtomicInteger();
+		final LocalDateTime startedAt = LocalDateTime.now();
+		volatile LocalDateTime finishedAt;
+
+		OnboardingJob(String id, List<OnboardingRequest.Team> teams) {
+			this.id = id;
+			this.teams = teams.stream().map(TeamState::new).toList();
+		}
+
+		OnboardingJobResponse snapshot() {
+			String status;
+			if (finishedAt == null) {
+				status = "RUNNING";
+			} else if (teams.stream().allMatch(t -> "COMPLETED".equals(t.status))) {
+				status = "COMPLETED";
+			} else {
+				status = "COMPLETED_WITH_ERRORS";
+			}
+			return new OnboardingJobResponse(id, status, teams.size(), teamsCompleted.get(),
+					membersGranted.get(), membersAlreadyShared.get(), membersFailed.get(),
+					teams.stream().map(TeamState::snapshot).toList(), startedAt, finishedAt);
+		}
+	}
+
+	/* チーム1つ分の進捗 */
+	private static final class TeamState {
+		final OnboardingRequest.Team request;
+		final List<String> failedMembers = new CopyOnWriteArrayList<>();
+		volatile String status = "QUEUED";
+		volatile String sheetId;
+		volatile String webViewLink;
+		volatile String error;
+
+		TeamState(OnboardingRequest.Team request) {
+			this.request = request;
+		}
+
+		OnboardingJobResponse.TeamResult snapshot() {
+			return new OnboardingJobResponse.TeamResult(request.title(), status, sheetId, webViewLink,
+					List.copyOf(failedMembers), error);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.onseinippou.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.example.onseinippou.infra.stt.SpeechToTextClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * リアルタイム文字起こしのメトリクス. /actuator/prometheus から取得し、オートスケールの閾値や性能劣化の検知に使う.
+ * <ul>
+ * <li>transcription.sessions.active: 文字起こし中の WebSocket セッション数.</li>
+ * <li>transcription.audio.bytes{direction=in|out}: クライアントから受信した／STT へ送信した音声のバイト数（rate で毎秒の量）.</li>
+ * <li>transcription.audio.frames: 1メッセージあたりの音声フレーム数.</li>
+ * <li>transcription.stt.streams{event}: STT ストリームの開始・張り替え・回復・失敗の回数.</li>
+ * <li>transcription.finalize: 停止要求から最終テキストを送信するまでの時間.</li>
+ * <li>transcription.lag{model}: 話してから確定テキストが届くまでの時間（確定結果ごと）.</li>
+ * </ul>
+ */
+@Component
+class TranscriptionMetrics {
+
+	/** LINEAR16 モノラルのため、1フレーム（1サンプル）は2バイト. */
+	private static final int BYTES_PER_FRAME = 2;
+
+	/** STT ストリームのライフサイクル上の出来事. */
+	enum StreamEvent {
+		/** ストリームを開いた（張り替え・回復による再接続を含む）. */
+		OPENED,
+		/** 5分制限・無音タイムアウトでストリームを張り替えた. */
+		ROTATED,
+		/** 予期せぬエラーから回復した. */
+		RECOVERED,
+		/** ストリームの開始、またはエラーからの回復に失敗した. */
+		FAILED
+	}
+
+	private final MeterRegistry meterRegistry;
+	private final Counter bytesIn;
+	private final Counter bytesOut;
+	private final DistributionSummary framesPerMessage;
+	private final Map<StreamEvent, Counter> streamEvents = new EnumMap<>(StreamEvent.class);
+	private final Timer finalizeTimer;
+	private final Timer lagTimer;
+
+	TranscriptionMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		this.bytesIn = audioBytes("in", "クライアントから受信した音声のバイト数");
+		this.bytesOut = audioBytes("out", "STT へ送信した音声のバイト数");
+		this.framesPerMessage = DistributionSummary.builder("transcription.audio.frames")
+				.description("WebSocket メッセージ1件あたりの音声フレーム数")
+				.publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		for (StreamEvent event : StreamEvent.values()) {
+			streamEvents.put(event, Counter.builder("transcription.stt.streams")
+					.description("STT ストリームの開始・張り替え・回復・失敗の回数")
+					.tag("event", event.name().toLowerCase())
+					.register(meterRegistry));
+		}
+		this.finalizeTimer = Timer.builder("transcription.finalize")
+				.description("停止要求から最終テキストを送信するまでの時間")
+				.publishPercentileHistogram()
+				.maximumExpectedValue(Duration.ofSeconds(30))
+				.register(meterRegistry);
+		// モデルや認識設定を変えた前後で比べられるよう、モデル名を付ける
+		this.lagTimer = Timer.builder("transcription.lag")
+				.description("確定結果の末尾の音声が届いてから、そのテキストを受け取るまでの時間")
+				.tag("model", SpeechToTextClient.MODEL)
+				.publishPercentileHistogram()
+				.maximumExpectedValue(Duration.ofSeconds(10))
+				.register(meterRegistry);
+	}
+
+	private Counter audioBytes(String direction, String description) {
+		return Counter.builder("transcription.audio.bytes")
+				.description(description)
+				.baseUnit("bytes")
+				.tag("direction", direction)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * 文字起こし中のセッション数をゲージとして公開する.
+	 * @param sessions セッションを管理するマップ（呼び出し側が保持し続けること）.
+	 */
+	void bindActiveSessions(Map<?, ?> sessions) {
+		Gauge.builder("transcription.sessions.active", sessions, Map::size)
+				.description("文字起こし中の WebSocket セッション数")
+				.register(meterRegistry);
+	}
+
+	/** クライアントから音声メッセージを1件受信した. */
+	void audioReceived(int bytes) {
+		bytesIn.increment(bytes);
+		framesPerMessage.record(bytes / BYTES_PER_FRAME);
+	}
+
+	/** 音声を STT へ送信した. */
+	void audioForwarded(int bytes) {
+		bytesOut.increment(bytes);
+	}
+
+	void streamEvent(StreamEvent event) {
+		streamEvents.get(event).increment();
+	}
+
+	/**
+	 * 最終テキストを送信した.
+	 * @param stopRequestedNanos 停止要求を受けた時刻（System.nanoTime）.
+	 */
+	void finalized(long stopRequestedNanos) {
+		finalizeTimer.record(System.nanoTime() - stopRequestedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/** 確定結果を1件受け取った. */
+	void lag(Duration lag) {
+		lagTimer.record(lag);
+	}
+}
@@ -0,0 +1,419 @@
+package com.example.onseinippou.application.socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.example.onseinippou.domain.model.user.User;
+import com.example.onseinippou.domain.repository.ReportMetaRepository;
+import com.example.onseinippou.domain.repository.ReportOutboxRepository;
+import com.example.onseinippou.domain.repository.UserRepository;
+import com.example.onseinippou.infra.stt.SpeechToTextClient;
+import com.example.onseinippou.infra.stt.StubRecognizer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * /ws/transcribe の負荷試験. 通常のビルドでは実行しない.
+ * 多数のクライアントがログインして WebSocket を開き、test_audio.webm から作った 16kHz の PCM を実時間のペースで送り、
+ * 停止フレームを送って最終メッセージを検証する. 認識器は StubRecognizer で置き換え、ネットワークに出ない.
+ * <p>
+ * フレーム遅延（クライアントの送信 → 認識器への到着）を測るため、各フレームの先頭8バイト（4サンプル）を送信時刻に置き換える.
+ * クライアントも同じ JVM で動くため、CPU 使用率にはクライアントの分も含まれる. JFR の記録は target/load-test に保存する.
+ * <pre>mvn test -Dtest=TranscriptionLoadTest -Dbenchmark=true -Dload.clients=2000 -Dload.session-seconds=120</pre>
+ * ffmpeg（音声のデコードに使う）が PATH に無い場合はスキップする.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		// 保存済みのハッシュと同じ強度にして、ログイン時の再ハッシュを起こさない
+		"app.security.password.bcrypt-strength=4"
+})
+@EnableAutoConfiguration(exclude = {
+		DataSourceAutoConfiguration.class,
+		DataSourceTransactionManagerAutoConfiguration.class,
+		HibernateJpaAutoConfiguration.class
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TranscriptionLoadTest {
+
+	/** 同時に録音するクライアント数. */
+	private static final int CLIENTS = Integer.getInteger("load.clients", 1_000);
+	/** 1セッションの録音時間. */
+	private static final Duration SESSION = Duration.ofSeconds(Long.getLong("load.session-seconds", 60));
+	/** 全クライアントが接続し終わるまでの時間. */
+	private static final Duration RAMP_UP = Duration.ofSeconds(Long.getLong("load.ramp-up-seconds", 20));
+	/** 認識器が結果を返すまでの遅延. */
+	private static final Duration RECOGNIZER_LATENCY = Duration.ofMillis(Long.getLong("load.recognizer-latency-ms", 200));
+
+	/** ブラウザと同じく 4096 サンプル（256ms）ごとに送る. */
+	private static final int FRAME_BYTES = 4096 * 2;
+	private static final Duration FRAME_INTERVAL = Duration.ofMillis(256);
+	private static final String PASSWORD = "load-test-password";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@MockitoBean
+	private SpeechToTextClient speechToTextClient;
+
+	@MockitoBean
+	private UserRepository userRepository;
+
+	@MockitoBean
+	private ReportMetaRepository reportMetaRepository;
+
+	@MockitoBean
+	private ReportOutboxRepository reportOutboxRepository;
+
+	/** クライアント1件の結果. */
+	private record Outcome(boolean completed, String failure, long skippedFrames, long finalLatencyNanos) {
+		static Outcome failed(String failure, long skippedFrames) {
+			return new Outcome(false, failure, skippedFrames, 0);
+		}
+	}
+
+	@Test
+	@DisplayName("負荷試験: 同時録音セッション数・フレーム遅延・GC/CPU")
+	void sustainConcurrentDictations() throws Exception {
+		byte[] pcm = decodeTestAudio();
+
+		SimpleMeterRegistry results = new SimpleMeterRegistry();
+		Timer frameLatency = percentiles(Timer.builder("load.frame.latency"), results);
+		Timer finalLatency = percentiles(Timer.builder("load.final.latency"), results);
+		StubRecognizer recognizer = new StubRecognizer(RECOGNIZER_LATENCY, Duration.ofSeconds(5),
+				(audio, arrivalNanos) -> frameLatency.record(arrivalNanos - audio.substring(0, Long.BYTES)
+						.asReadOnlyByteBuffer().getLong(), TimeUnit.NANOSECONDS));
+		when(speechToTextClient.startStreamingRecognize(any(), any(), any(), any()))
+				.thenAnswer(inv -> recognizer.start(inv.getArgument(0), inv.getArgument(3)));
+
+		String passwordHash = "{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD);
+		when(userRepository.findByEmail(anyString()))
+				.thenAnswer(inv -> Optional.of(userOf(inv.getArgument(0), passwordHash)));
+
+		Path jfr = Path.of("target", "load-test",
+				"transcribe-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr");
+		Files.createDirectories(jfr.getParent());
+
+		ScheduledExecutorService ticker = Executors.newScheduledThreadPool(4);
+		AtomicInteger peakSessions = new AtomicInteger();
+		ticker.scheduleAtFixedRate(() -> peakSessions.accumulateAndGet(
+				(int) meterRegistry.get("transcription.sessions.active").gauge().value(), Math::max),
+				1, 1, TimeUnit.SECONDS);
+
+		long gcCountBefore = gcCount();
+		long gcMillisBefore = gcMillis();
+		long cpuBefore = processCpuNanos();
+		long started = System.nanoTime();
+		List<CompletableFuture<Outcome>> outcomes = new ArrayList<>(CLIENTS);
+		try (HttpClient http = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+				Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+			recording.setDestination(jfr);
+			recording.start();
+
+			for (int i = 0; i < CLIENTS; i++) {
+				int client = i;
+				CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+				outcomes.add(outcome);
+				ticker.schedule(() -> new Client(client, http, ticker, pcm, recognizer, finalLatency, outcome).start(),
+						RAMP_UP.toNanos() * i / CLIENTS, TimeUnit.NANOSECONDS);
+			}
+			CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new))
+					.get(RAMP_UP.plus(SESSION).plusMinutes(2).toMillis(), TimeUnit.MILLISECONDS);
+			recording.stop();
+		} finally {
+			ticker.shutdownNow();
+		}
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+		List<Outcome> all = outcomes.stream().map(CompletableFuture::join).toList();
+		long completed = all.stream().filter(Outcome::completed).count();
+		long skipped = all.stream().mapToLong(Outcome::skippedFrames).sum();
+		double cpu = 100.0 * (processCpuNanos() - cpuBefore)
+				/ (elapsed.toNanos() * Runtime.getRuntime().availableProcessors());
+
+		System.out.printf("同時録音: 目標 %,d / 最大同時 %,d / 完走 %,d / 失敗 %,d（録音 %ds, 接続 %ds かけて開始）%n",
+				CLIENTS, peakSessions.get(), completed, CLIENTS - completed, SESSION.toSeconds(), RAMP_UP.toSeconds());
+		System.out.println("フレーム遅延（送信 → 認識器）: " + describe(frameLatency)
+				+ String.format(" / 前フレームの送信待ちで間引いたフレーム %,d", skipped));
+		System.out.println("停止 → 最終メッセージ: " + describe(finalLatency));
+		System.out.printf("GC: %,d 回 / %,d ms、プロセスCPU 平均 %.1f%%（%d コア, クライアントを含む）%n",
+				gcCount() - gcCountBefore, gcMillis() - gcMillisBefore, cpu, Runtime.getRuntime().availableProcessors());
+		System.out.println("JFR: " + jfr.toAbsolutePath());
+		all.stream().filter(o -> !o.completed()).map(Outcome::failure).distinct().limit(10)
+				.forEach(f -> System.out.println("失敗の例: " + f));
+
+		assertEquals(CLIENTS, completed);
+	}
+
+	/**
+	 * クライアント1件. ログイン → WebSocket 接続 → 実時間で音声を送信 → 停止フレーム → 最終メッセージの検証.
+	 */
+	private final class Client implements WebSocket.Listener {
+
+		private final int id;
+		private final HttpClient http;
+		private final ScheduledExecutorService ticker;
+		private final byte[] pcm;
+		private final StubRecognizer recognizer;
+		private final Timer finalLatency;
+		private final CompletableFuture<Outcome> outcome;
+
+		private final StringBuilder message = new StringBuilder();
+		private final AtomicLong skippedFrames = new AtomicLong();
+		private volatile WebSocket webSocket;
+		private volatile ScheduledFuture<?> sending;
+		private volatile CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+		private volatile long sentBytes;
+		private volatile long stopSentNanos;
+		private int offset;
+
+		Client(int id, HttpClient http, ScheduledExecutorService ticker, byte[] pcm, StubRecognizer recognizer,
+				Timer finalLatency, CompletableFuture<Outcome> outcome) {
+			this.id = id;
+			this.http = http;
+			this.ticker = ticker;
+			this.pcm = pcm;
+			this.recognizer = recognizer;
+			this.finalLatency = finalLatency;
+			this.outcome = outcome;
+		}
+
+		void start() {
+			login().thenCompose(cookie -> http.newWebSocketBuilder()
+					.header("Cookie", cookie)
+					.buildAsync(URI.create("ws://localhost:" + port + "/ws/transcribe"), this))
+					.whenComplete((ws, e) -> {
+						if (e != null) {
+							fail("接続に失敗: " + e);
+						}
+					});
+		}
+
+		/* フォームログインしてセッション Cookie を返す */
+		private CompletableFuture<String> login() {
+			String form = "username=" + URLEncoder.encode("load" + id + "@example.com", StandardCharsets.UTF_8)
+					+ "&password=" + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8);
+			HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/login"))
+					.header("Content-Type", "application/x-www-form-urlencoded")
+					.POST(HttpRequest.BodyPublishers.ofString(form))
+					.build();
+			return http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenCompose(response -> {
+				if (response.statusCode() == 429) {
+					// ハッシュ計算が混み合っている. Retry-After の後に再試行する
+					long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+					return CompletableFuture.supplyAsync(this::login,
+							CompletableFuture.delayedExecutor(retryAfter, TimeUnit.SECONDS)).thenCompose(c -> c);
+				}
+				String location = response.headers().firstValue("Location").orElse("");
+				if (response.statusCode() != 302 || location.contains("error")) {
+					throw new IllegalStateException("ログインに失敗: " + response.statusCode() + " " + location);
+				}
+				return response.headers().allValues("Set-Cookie").stream()
+						.filter(c -> c.startsWith("JSESSIONID=") || c.startsWith("SESSION="))
+						.map(c -> c.split(";", 2)[0])
+						.findFirst()
+						.map(CompletableFuture::completedFuture)
+						.orElseThrow(() -> new IllegalStateException("セッション Cookie がありません"));
+			});
+		}
+
+		@Override
+		public void onOpen(WebSocket webSocket) {
+			this.webSocket = webSocket;
+			webSocket.request(1);
+			long stopAt = System.nanoTime() + SESSION.toNanos();
+			sending = ticker.scheduleAtFixedRate(() -> {
+				if (System.nanoTime() >= stopAt) {
+					sending.cancel(false);
+					// 送信中のフレームの後に停止フレーム（10バイト未満）を送る
+					lastSend.thenCompose(ws -> {
+						stopSentNanos = System.nanoTime();
+						return webSocket.sendBinary(ByteBuffer.allocate(0), true);
+					});
+				} else if (!lastSend.isDone()) {
+					// ブラウザでは送信が詰まるとバッファが溜まる. ここでは間引いて数える
+					skippedFrames.incrementAndGet();
+				} else {
+					lastSend = webSocket.sendBinary(nextFrame(), true);
+				}
+			}, 0, FRAME_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+		}
+
+		/* PCM を先頭から順に（末尾まで来たら先頭に戻って）切り出し、先頭8バイトを送信時刻にする */
+		private ByteBuffer nextFrame() {
+			ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+			for (int filled = 0; filled < FRAME_BYTES;) {
+				int n = Math.min(FRAME_BYTES - filled, pcm.length - offset);
+				frame.put(pcm, offset, n);
+				filled += n;
+				offset = (offset + n) % pcm.length;
+			}
+			frame.putLong(0, System.nanoTime());
+			sentBytes += FRAME_BYTES;
+			return frame.flip();
+		}
+
+		@Override
+		public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+			message.append(data);
+			webSocket.request(1);
+			if (last) {
+				String text = message.toString();
+				message.setLength(0);
+				if (text.startsWith("{\"transcript\"")) {
+					String expected = "{\"transcript\": \""
+							+ StubRecognizer.SENTENCE.repeat((int) recognizer.resultsFor(sentBytes)) + "\"}";
+					if (text.equals(expected)) {
+						long latency = System.nanoTime() - stopSentNanos;
+						finalLatency.record(latency, TimeUnit.NANOSECONDS);
+						outcome.complete(new Outcome(true, null, skippedFrames.get(), latency));
+					} else {
+						fail("最終メッセージが一致しません: " + abbreviate(text));
+					}
+				} else if (text.contains("\"error\"")) {
+					fail("エラーを受信: " + abbreviate(text));
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+			fail("最終メッセージの前に切断: " + statusCode + " " + reason);
+			return null;
+		}
+
+		@Override
+		public void onError(WebSocket webSocket, Throwable error) {
+			fail("WebSocket エラー: " + error);
+		}
+
+		private void fail(String failure) {
+			if (sending != null) {
+				sending.cancel(false);
+			}
+			// 完走済みなら何もしない（最終メッセージの後のサーバーからの切断など）
+			outcome.complete(Outcome.failed(failure, skippedFrames.get()));
+		}
+	}
+
+	/**
+	 * test_audio.webm を ffmpeg で 16kHz / モノラル / 16bit の PCM にデコードする.
+	 */
+	private static byte[] decodeTestAudio() throws Exception {
+		assumeTrue(ffmpegAvailable(), "ffmpeg が PATH にありません");
+		Path webm = Path.of(TranscriptionLoadTest.class.getResource("/test_audio.webm").toURI());
+		Process ffmpeg = new ProcessBuilder("ffmpeg", "-v", "error", "-i", webm.toString(),
+				"-f", "s16le", "-ac", "1", "-ar", "16000", "-")
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		byte[] pcm;
+		try (InputStream in = ffmpeg.getInputStream()) {
+			pcm = in.readAllBytes();
+		}
+		assertEquals(0, ffmpeg.waitFor(), "ffmpeg によるデコードに失敗しました");
+		assertTrue(pcm.length >= FRAME_BYTES, "デコードした音声が短すぎます");
+		return pcm;
+	}
+
+	private static boolean ffmpegAvailable() {
+		try {
+			return new ProcessBuilder("ffmpeg", "-version").redirectErrorStream(true)
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor() == 0;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static User userOf(String email, String passwordHash) {
+		User user = new User();
+		user.setId(Long.parseLong(email.replaceAll("\\D", "")) + 1);
+		user.setEmail(email);
+		user.setPassword(passwordHash);
+		return user;
+	}
+
+	private static Timer percentiles(Timer.Builder builder, MeterRegistry registry) {
+		return builder.publishPercentiles(0.5, 0.99, 0.999).register(registry);
+	}
+
+	private static String describe(Timer timer) {
+		StringBuilder sb = new StringBuilder(String.format("%,d 件", timer.count()));
+		for (ValueAtPercentile p : timer.takeSnapshot().percentileValues()) {
+			sb.append(String.format(", p%s %.1f ms", p.percentile() * 100, p.value(TimeUnit.MILLISECONDS)));
+		}
+		return sb.append(String.format(", 最大 %.1f ms", timer.max(TimeUnit.MILLISECONDS))).toString();
+	}
+
+	private static String abbreviate(String text) {
+		return text.length() <= 120 ? text : text.substring(0, 120) + "...";
+	}
+
+	private static long gcCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long gcMillis() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+	private static long processCpuNanos() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+				.getProcessCpuTime();
+	}
+}
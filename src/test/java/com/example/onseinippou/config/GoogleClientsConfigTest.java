@@ -0,0 +1,137 @@
+package com.example.onseinippou.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Sheets / Drive で共有する HTTP トランスポートの設定値（タイムアウト・プールの待ち時間）が、
+ * 実際のリクエストに効くことをループバックの HTTP サーバーで確かめる.
+ */
+class GoogleClientsConfigTest {
+
+	/** サーバーが応答を返すまでの待ち. 設定したタイムアウトよりずっと長い. */
+	private static final Duration SLOW_RESPONSE = Duration.ofSeconds(10);
+
+	private HttpServer server;
+	private HttpTransport transport;
+	private final ExecutorService serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger initialized = new AtomicInteger();
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/slow", exchange -> {
+			try {
+				release.await(SLOW_RESPONSE.toMillis(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			exchange.getResponseBody().write(body);
+			exchange.close();
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() throws IOException {
+		release.countDown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		if (transport != null) {
+			transport.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("正常系: 初期化処理で設定した接続・読み取りタイムアウトがリクエストに載る")
+	void initializerAppliesTimeouts() throws IOException {
+		transport = transport(64, 5_000);
+		HttpRequest request = transport.createRequestFactory(initializer(1_234, 5_678))
+				.buildGetRequest(url("/slow"));
+
+		assertEquals(1_234, request.getConnectTimeout());
+		assertEquals(5_678, request.getReadTimeout());
+		assertEquals(1, initialized.get(), "認証などの元の初期化処理も呼ばれる");
+	}
+
+	@Test
+	@DisplayName("異常系: 応答が遅いと、google-http-client の既定（20秒）ではなく設定した読み取りタイムアウトで打ち切られる")
+	void readTimeoutReachesApacheRequest() throws IOException {
+		transport = transport(64, 5_000);
+		HttpRequest request = transport.createRequestFactory(initializer(1_000, 300))
+				.buildGetRequest(url("/slow"));
+
+		long started = System.nanoTime();
+		assertThrows(SocketTimeoutException.class, request::execute);
+		assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(5)) < 0);
+	}
+
+	@Test
+	@DisplayName("異常系: プールが埋まっていると、空きを無期限に待たず pool-timeout-ms で打ち切られる")
+	void poolLeaseWaitIsBounded() throws Exception {
+		transport = transport(1, 200);
+		HttpRequestInitializer initializer = initializer(1_000, (int) SLOW_RESPONSE.toMillis() * 2);
+
+		// 1本目がただ1つの接続を使ったまま応答を待つ
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+			try {
+				transport.createRequestFactory(initializer).buildGetRequest(url("/slow")).execute().disconnect();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(300);
+
+		long started = System.nanoTime();
+		assertThrows(ConnectionPoolTimeoutException.class,
+				() -> transport.createRequestFactory(initializer).buildGetRequest(url("/slow")).execute());
+		assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(5)) < 0);
+
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+	}
+
+	private static HttpTransport transport(int maxConnections, int poolTimeoutMs) {
+		try {
+			return new GoogleClientsConfig().googleHttpTransport(maxConnections, maxConnections, poolTimeoutMs);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/* 認証の代わりに呼ばれた回数だけを数える初期化処理に、タイムアウトの設定を重ねる */
+	private HttpRequestInitializer initializer(int connectTimeoutMs, int readTimeoutMs) {
+		return GoogleClientsConfig.withTimeouts(request -> initialized.incrementAndGet(), connectTimeoutMs, readTimeoutMs);
+	}
+
+	private GenericUrl url(String path) {
+		return new GenericUrl("http://127.0.0.1:" + server.getAddress().getPort() + path);
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.onseinippou.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.web.authentication.session.ConcurrentSessionControlAuthenticationStrategy;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.onseinippou.domain.model.user.User;
+import com.example.onseinippou.security.CustomUserDetails;
+import com.example.onseinippou.security.UserSnapshot;
+
+/**
+ * 組み込み H2 上の Spring Session JDBC を2インスタンス分用意し、セッションの共有と「1ユーザー1セッション」を確かめる.
+ */
+class SessionConfigTest {
+
+	private EmbeddedDatabase database;
+	private JdbcTemplate jdbc;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.addScript("org/springframework/session/jdbc/schema-h2.sql")
+				.build();
+		jdbc = new JdbcTemplate(database);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	@DisplayName("正常系: 別インスタンスでログインすると、先に作られたセッションが期限切れになる（後勝ち）")
+	void laterLoginOnAnotherInstanceExpiresEarlierSession() {
+		JdbcIndexedSessionRepository instanceA = repository();
+		JdbcIndexedSessionRepository instanceB = repository();
+		Authentication auth = authenticationOf(user(1L, "taro@example.com", "sheet-1"));
+
+		// インスタンスAでログイン済みのセッション
+		String sessionA = saveWithContext(instanceA, auth);
+
+		// インスタンスBで同じユーザーがログインする
+		SessionRegistry registryB = SessionConfig.sharedRegistry(instanceB);
+		ConcurrentSessionControlAuthenticationStrategy strategy = new ConcurrentSessionControlAuthenticationStrategy(registryB);
+		strategy.setMaximumSessions(1);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(new MockHttpSession());
+		strategy.onAuthentication(auth, request, new MockHttpServletResponse());
+
+		// インスタンスAからも期限切れに見える
+		SessionRegistry registryA = SessionConfig.sharedRegistry(instanceA);
+		assertTrue(registryA.getSessionInformation(sessionA).isExpired());
+		assertEquals(List.of(), registryA.getAllSessions(auth.getPrincipal(), false));
+	}
+
+	@Test
+	@DisplayName("正常系: フォームと OAuth2 のどちらでログインしても同じプリンシパル名で索引される")
+	void principalNameIsTheSameForBothLoginMethods() {
+		User user = user(1L, "taro@example.com", null);
+		CustomUserDetails form = new CustomUserDetails(user);
+		CustomUserDetails oauth2 = new CustomUserDetails(UserSnapshot.of(user));
+
+		assertEquals(form.getUsername(), oauth2.getName());
+		assertEquals(form.getName(), oauth2.getName());
+	}
+
+	@Test
+	@DisplayName("正常系: セッションに保存される認証情報は小さく、パスワードを含まない")
+	void storedPrincipalIsCompactAndHasNoPassword() {
+		// JdbcSession は公開されていないため、Session として扱う
+		FindByIndexNameSessionRepository<? extends Session> repository = repository();
+		User user = user(1L, "taro@example.com", "sheet-1");
+		user.setPassword("{bcrypt}$2a$12$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012");
+		CustomUserDetails details = new CustomUserDetails(user);
+		UsernamePasswordAuthenticationToken auth = UsernamePasswordAuthenticationToken.authenticated(details, null,
+				details.getAuthorities());
+
+		String sessionId = saveWithContext(repository, auth);
+
+		int bytes = jdbc.queryForObject(
+				"select ATTRIBUTE_BYTES from SPRING_SESSION_ATTRIBUTES where ATTRIBUTE_NAME = ?",
+				byte[].class, HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY).length;
+		assertTrue(bytes < 1_500, "認証情報が大きすぎます: " + bytes + " バイト");
+
+		SecurityContext loaded = repository.findById(sessionId)
+				.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+		CustomUserDetails principal = (CustomUserDetails) loaded.getAuthentication().getPrincipal();
+		assertEquals(1L, principal.getId());
+		assertEquals("taro@example.com", principal.getEmail());
+		assertTrue(principal.hasSheet());
+		assertNull(principal.getPassword());
+	}
+
+	private JdbcIndexedSessionRepository repository() {
+		return new JdbcIndexedSessionRepository(jdbc, new TransactionTemplate(new DataSourceTransactionManager(database)));
+	}
+
+	/**
+	 * 認証済みの SecurityContext を持つセッションを作って保存し、セッションIDを返す.
+	 */
+	private static <S extends Session> String saveWithContext(FindByIndexNameSessionRepository<S> repository,
+			Authentication auth) {
+		S session = repository.createSession();
+		session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, new SecurityContextImpl(auth));
+		repository.save(session);
+		return session.getId();
+	}
+
+	private static Authentication authenticationOf(User user) {
+		CustomUserDetails details = new CustomUserDetails(user);
+		return UsernamePasswordAuthenticationToken.authenticated(details, null, details.getAuthorities());
+	}
+
+	private static User user(Long id, String email, String sheetId) {
+		User user = new User();
+		user.setId(id);
+		user.setEmail(email);
+		user.setSheetId(sheetId);
+		return user;
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.onseinippou.config.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import javax.sql.DataSource;
+
+import org.h2.Driver;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * プライマリとレプリカの代わりに組み込みDB（H2）を2つ立て、読み書きの振り分けを確かめる.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+	private ReplicaHealth replicaHealth;
+	private JdbcTemplate jdbc;
+	private TransactionTemplate readWrite;
+	private TransactionTemplate readOnly;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primary = database("primary");
+		DataSource replica = database("replica");
+		replicaHealth = new ReplicaHealth(Duration.ofSeconds(5));
+		build(primary, replica);
+	}
+
+	private void build(DataSource primary, DataSource replica) {
+		DataSource routing = new LazyConnectionDataSourceProxy(
+				new ReadWriteRoutingDataSource(primary, replica, replicaHealth));
+		DataSourceTransactionManager tx = new DataSourceTransactionManager(routing);
+		jdbc = new JdbcTemplate(routing);
+		readWrite = new TransactionTemplate(tx);
+		readOnly = new TransactionTemplate(tx);
+		readOnly.setReadOnly(true);
+	}
+
+	/* どちらのDBかを返す表を1行だけ持つ組み込みDB */
+	private static DataSource database(String name) {
+		JdbcDataSource ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate init = new JdbcTemplate(ds);
+		init.execute("create table whoami (name varchar(16))");
+		init.update("insert into whoami values (?)", name);
+		return ds;
+	}
+
+	private String whoami(TransactionTemplate template) {
+		return template.execute(status -> jdbc.queryForObject("select name from whoami", String.class));
+	}
+
+	@Test
+	@DisplayName("正常系: 読み取り専用トランザクションはレプリカ、それ以外はプライマリで実行される")
+	void routesByReadOnlyFlag() {
+		assertEquals("replica", whoami(readOnly));
+		assertEquals("primary", whoami(readWrite));
+		// トランザクション外はプライマリ
+		assertEquals("primary", jdbc.queryForObject("select name from whoami", String.class));
+	}
+
+	@Test
+	@DisplayName("正常系: レプリカの遅延が許容範囲を超えている間はプライマリで読み、戻ればレプリカに戻る")
+	void fallsBackToPrimaryWhileReplicaLags() {
+		replicaHealth.update(OptionalLong.of(30));
+		assertEquals("primary", whoami(readOnly));
+
+		replicaHealth.update(OptionalLong.empty());
+		assertEquals("primary", whoami(readOnly));
+
+		replicaHealth.update(OptionalLong.of(1));
+		assertEquals("replica", whoami(readOnly));
+	}
+
+	@Test
+	@DisplayName("異常系: レプリカに接続できなければプライマリで読み、以降もプライマリを使う")
+	void fallsBackToPrimaryWhenReplicaIsDown() {
+		DataSource down = new SimpleDriverDataSource(new Driver(), "jdbc:h2:tcp://127.0.0.1:1/unreachable");
+		build(database("primary"), down);
+
+		assertEquals("primary", whoami(readOnly));
+		assertFalse(replicaHealth.isUsable());
+	}
+}
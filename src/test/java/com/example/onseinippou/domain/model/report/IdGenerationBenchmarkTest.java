@@ -0,0 +1,126 @@
+package com.example.onseinippou.domain.model.report;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * reports_meta 相当の INSERT を、ID 採番方式ごとに MySQL で比べるベンチマーク. 通常のテストでは実行しない.
+ * <ul>
+ * <li>IDENTITY: 1行ずつ INSERT し、生成キーを取得する（切り替え前の Hibernate の動き）.</li>
+ * <li>pooled-lo: 採番テーブルから50件分の範囲を取り、50行ずつバッチで INSERT する（切り替え後）.</li>
+ * </ul>
+ * <pre>mvn test -Dtest=IdGenerationBenchmarkTest -Dbenchmark.jdbc-url=jdbc:mysql://localhost:3306/bench -Dbenchmark.user=root -Dbenchmark.password=...</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc-url", matches = ".+")
+class IdGenerationBenchmarkTest {
+
+	private static final int ROWS = 20_000;
+	private static final int BATCH = 50;
+
+	@Test
+	@DisplayName("ベンチマーク: IDENTITY と pooled-lo＋バッチ INSERT のスループット")
+	void compareIdentityAndPooledLo() throws Exception {
+		String url = System.getProperty("benchmark.jdbc-url");
+		String separator = url.contains("?") ? "&" : "?";
+		try (Connection identity = DriverManager.getConnection(url, System.getProperty("benchmark.user"),
+				System.getProperty("benchmark.password"));
+				Connection batched = DriverManager.getConnection(url + separator + "rewriteBatchedStatements=true",
+						System.getProperty("benchmark.user"), System.getProperty("benchmark.password"))) {
+			setUp(identity);
+
+			long identityNanos = insertWithIdentity(identity);
+			long pooledNanos = insertWithPooledLo(batched);
+
+			System.out.printf("IDENTITY : %,d 行/秒%n", ROWS * 1_000_000_000L / identityNanos);
+			System.out.printf("pooled-lo: %,d 行/秒%n", ROWS * 1_000_000_000L / pooledNanos);
+			assertEquals(ROWS, count(identity, "bench_reports_identity"));
+			assertEquals(ROWS, count(identity, "bench_reports_pooled"));
+		}
+	}
+
+	private static void setUp(Connection c) throws Exception {
+		try (Statement st = c.createStatement()) {
+			st.execute("drop table if exists bench_reports_identity, bench_reports_pooled, bench_reports_pooled_seq");
+			st.execute("""
+					create table bench_reports_identity (id bigint auto_increment primary key,
+					  user_id bigint not null, sheet_id varchar(255) not null, text text, created_at datetime(6))""");
+			st.execute("""
+					create table bench_reports_pooled (id bigint primary key,
+					  user_id bigint not null, sheet_id varchar(255) not null, text text, created_at datetime(6))""");
+			st.execute("create table bench_reports_pooled_seq (next_val bigint)");
+			st.execute("insert into bench_reports_pooled_seq values (1)");
+		}
+	}
+
+	private static long insertWithIdentity(Connection c) throws Exception {
+		long started = System.nanoTime();
+		try (PreparedStatement ps = c.prepareStatement(
+				"insert into bench_reports_identity (user_id, sheet_id, text, created_at) values (?, ?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS)) {
+			for (int i = 0; i < ROWS; i++) {
+				bind(ps, 1, i);
+				ps.executeUpdate();
+				try (ResultSet keys = ps.getGeneratedKeys()) {
+					keys.next();
+				}
+			}
+		}
+		return System.nanoTime() - started;
+	}
+
+	private static long insertWithPooledLo(Connection c) throws Exception {
+		long started = System.nanoTime();
+		try (PreparedStatement next = c.prepareStatement("select next_val from bench_reports_pooled_seq for update");
+				PreparedStatement bump = c.prepareStatement("update bench_reports_pooled_seq set next_val = ?");
+				PreparedStatement ps = c.prepareStatement(
+						"insert into bench_reports_pooled (id, user_id, sheet_id, text, created_at) values (?, ?, ?, ?, ?)")) {
+			long id = 0;
+			long hi = 0;
+			for (int i = 0; i < ROWS; i++) {
+				if (id == hi) {
+					// Hibernate の pooled-lo と同じく、採番テーブルから50件分の範囲をまとめて取る
+					try (ResultSet rs = next.executeQuery()) {
+						rs.next();
+						id = rs.getLong(1);
+					}
+					hi = id + BATCH;
+					bump.setLong(1, hi);
+					bump.executeUpdate();
+				}
+				ps.setLong(1, id++);
+				bind(ps, 2, i);
+				ps.addBatch();
+				if ((i + 1) % BATCH == 0) {
+					ps.executeBatch();
+				}
+			}
+			ps.executeBatch();
+		}
+		return System.nanoTime() - started;
+	}
+
+	private static void bind(PreparedStatement ps, int from, int i) throws Exception {
+		ps.setLong(from, i % 500);
+		ps.setString(from + 1, "sheet-" + (i % 25));
+		ps.setString(from + 2, "本日は山田商事へ訪問し、新製品の見積りについて打ち合わせを行った。 #" + i);
+		ps.setTimestamp(from + 3, Timestamp.valueOf(LocalDateTime.now()));
+	}
+
+	private static int count(Connection c, String table) throws Exception {
+		try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("select count(*) from " + table)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
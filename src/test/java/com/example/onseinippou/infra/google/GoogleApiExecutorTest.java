@@ -0,0 +1,157 @@
+package com.example.onseinippou.infra.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GoogleApiExecutorTest {
+
+	private final GoogleApiRateLimiter rateLimiter = mock(GoogleApiRateLimiter.class);
+	private final GoogleApiExecutor executor = new GoogleApiExecutor(rateLimiter, new SimpleMeterRegistry());
+
+	@Test
+	@DisplayName("正常系: 冪等なリクエスト（GET）は 5xx でも再試行する")
+	void idempotentRequestIsRetriedOnServerError() throws IOException {
+		AbstractGoogleClientRequest<String> request = request("GET");
+		when(request.execute()).thenThrow(error(503)).thenReturn("ok");
+
+		assertEquals("ok", executor.execute(GoogleApi.SHEETS, "sheet-1", request));
+		verify(request, times(2)).execute();
+		verify(rateLimiter).onThrottled(eq(GoogleApi.SHEETS), eq("sheet-1"), eq(503), any(Duration.class));
+	}
+
+	@Test
+	@DisplayName("異常系: 冪等でないリクエスト（POST の append）は 5xx で再試行しない（適用済みなら行が重複するため）")
+	void nonIdempotentRequestIsNotRetriedOnServerError() throws IOException {
+		AbstractGoogleClientRequest<String> request = request("POST");
+		when(request.execute()).thenThrow(error(503)).thenReturn("ok");
+
+		HttpResponseException e = assertThrows(HttpResponseException.class,
+				() -> executor.execute(GoogleApi.SHEETS, "sheet-1", request));
+		assertEquals(503, e.getStatusCode());
+		verify(request, times(1)).execute();
+	}
+
+	@Test
+	@DisplayName("正常系: 冪等でないリクエストでもクォータ超過（429）なら Retry-After に従って再試行する")
+	void nonIdempotentRequestIsRetriedWhenThrottled() throws IOException {
+		AbstractGoogleClientRequest<String> request = request("POST");
+		HttpHeaders headers = new HttpHeaders();
+		headers.setRetryAfter("7");
+		when(request.execute()).thenThrow(new HttpResponseException.Builder(429, "Too Many Requests", headers).build())
+				.thenReturn("ok");
+
+		assertEquals("ok", executor.execute(GoogleApi.SHEETS, "sheet-1", request));
+		verify(rateLimiter).onThrottled(GoogleApi.SHEETS, "sheet-1", 429, Duration.ofSeconds(7));
+	}
+
+	@Test
+	@DisplayName("異常系: 再試行は上限回数まで")
+	void retriesStopAtMaxAttempts() throws IOException {
+		AbstractGoogleClientRequest<String> request = request("GET");
+		when(request.execute()).thenThrow(error(429));
+
+		assertThrows(HttpResponseException.class, () -> executor.execute(GoogleApi.DRIVE, null, request));
+		verify(request, times(5)).execute();
+	}
+
+	@Test
+	@DisplayName("正常系: リトライ可否の判定（5xx・429・Drive の 403 レート制限）")
+	void classifiesRetryableErrors() {
+		assertTrue(GoogleApiExecutor.isRetryable(error(500)));
+		assertTrue(GoogleApiExecutor.isRetryable(error(429)));
+		assertFalse(GoogleApiExecutor.isRetryable(error(400)));
+		assertFalse(GoogleApiExecutor.isRetryable(error(403)));
+
+		assertTrue(GoogleApiExecutor.isThrottled(error(429)));
+		assertFalse(GoogleApiExecutor.isThrottled(error(503)));
+
+		GoogleJsonResponseException rateLimited = new GoogleJsonResponseException(
+				new HttpResponseException.Builder(403, "Forbidden", new HttpHeaders()), details("userRateLimitExceeded"));
+		assertTrue(GoogleApiExecutor.isThrottled(rateLimited));
+		assertTrue(GoogleApiExecutor.isRetryable(rateLimited));
+		// 権限不足の 403 はリトライしない
+		assertFalse(GoogleApiExecutor.isRetryable(403, details("insufficientFilePermissions")));
+		assertFalse(GoogleApiExecutor.isRetryable(403, null));
+	}
+
+	@Test
+	@DisplayName("正常系: Retry-After は秒数と HTTP-date の両方を解釈し、無い・解釈できない場合は null")
+	void parsesRetryAfter() {
+		assertEquals(Duration.ofSeconds(30), GoogleApiExecutor.retryAfter(withRetryAfter("30")));
+		assertEquals(Duration.ofSeconds(30), GoogleApiExecutor.retryAfter(withRetryAfter(" 30 ")));
+
+		String inAMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+		Duration untilDate = GoogleApiExecutor.retryAfter(withRetryAfter(inAMinute));
+		assertNotNull(untilDate);
+		assertTrue(untilDate.compareTo(Duration.ofSeconds(55)) > 0 && untilDate.compareTo(Duration.ofSeconds(60)) <= 0,
+				"HTTP-date までの時間: " + untilDate);
+		// 過去の日時はすぐに再試行
+		String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(60));
+		assertEquals(Duration.ZERO, GoogleApiExecutor.retryAfter(withRetryAfter(past)));
+
+		assertNull(GoogleApiExecutor.retryAfter(withRetryAfter("soon")));
+		assertNull(GoogleApiExecutor.retryAfter(withRetryAfter(" ")));
+		assertNull(GoogleApiExecutor.retryAfter(error(503)));
+	}
+
+	@Test
+	@DisplayName("境界値: バックオフは試行ごとに倍になり（揺らぎは上限の半分まで）、32秒で頭打ちになる")
+	void backoffDoublesWithJitterAndIsCapped() {
+		for (int i = 0; i < 100; i++) {
+			assertBetween(500, 1_000, GoogleApiExecutor.backoff(1));
+			assertBetween(1_000, 2_000, GoogleApiExecutor.backoff(2));
+			assertBetween(4_000, 8_000, GoogleApiExecutor.backoff(4));
+			assertBetween(16_000, 32_000, GoogleApiExecutor.backoff(7));
+			assertBetween(16_000, 32_000, GoogleApiExecutor.backoff(50));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static AbstractGoogleClientRequest<String> request(String method) {
+		AbstractGoogleClientRequest<String> request = mock(AbstractGoogleClientRequest.class);
+		when(request.getRequestMethod()).thenReturn(method);
+		return request;
+	}
+
+	private static HttpResponseException error(int status) {
+		return new HttpResponseException.Builder(status, null, new HttpHeaders()).build();
+	}
+
+	private static HttpResponseException withRetryAfter(String value) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setRetryAfter(value);
+		return new HttpResponseException.Builder(503, null, headers).build();
+	}
+
+	private static GoogleJsonError details(String reason) {
+		GoogleJsonError.ErrorInfo info = new GoogleJsonError.ErrorInfo();
+		info.setReason(reason);
+		GoogleJsonError details = new GoogleJsonError();
+		details.setErrors(List.of(info));
+		return details;
+	}
+
+	private static void assertBetween(long minMillis, long maxMillis, Duration actual) {
+		assertTrue(actual.toMillis() >= minMillis && actual.toMillis() <= maxMillis,
+				actual.toMillis() + "ms が " + minMillis + "〜" + maxMillis + "ms の範囲外");
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.onseinippou.infra.google;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	/* 補充レートの浮動小数点の誤差を許す幅 */
+	private static final double DELTA = 1_000;
+
+	@Test
+	@DisplayName("正常系: 容量分はすぐに使え、超えた分は補充レートに応じた待ち時間を返す")
+	void burstUpToCapacityThenWaits() {
+		// 容量2、毎秒1トークン
+		TokenBucket bucket = new TokenBucket(2, 60, 0);
+
+		assertEquals(0, bucket.reserve(0, 1));
+		assertEquals(0, bucket.reserve(0, 1));
+		assertEquals(SECOND, bucket.reserve(0, 1), DELTA);
+		// 予約済みの分に続けて並ぶ
+		assertEquals(2 * SECOND, bucket.reserve(0, 1), DELTA);
+	}
+
+	@Test
+	@DisplayName("正常系: 時間の経過で補充され、容量を超えては貯まらない")
+	void refillsOverTimeUpToCapacity() {
+		TokenBucket bucket = new TokenBucket(2, 60, 0);
+		bucket.reserve(0, 2);
+
+		assertEquals(0, bucket.reserve(SECOND, 1));
+		// 長く空いても容量（2）までしか貯まらない
+		assertEquals(0, bucket.reserve(100 * SECOND, 2));
+		assertEquals(SECOND, bucket.reserve(100 * SECOND, 1), DELTA);
+	}
+
+	@Test
+	@DisplayName("正常系: バッチは中のリクエスト数分を一度に消費する")
+	void batchConsumesAllPermits() {
+		TokenBucket bucket = new TokenBucket(2, 60, 0);
+
+		assertEquals(3 * SECOND, bucket.reserve(0, 5), DELTA);
+	}
+
+	@Test
+	@DisplayName("正常系: サーバーから待機を指示されると、残りトークンに関係なく以降の予約を遅らせる")
+	void pauseDelaysLaterReservations() {
+		TokenBucket bucket = new TokenBucket(2, 60, 0);
+
+		bucket.pause(0, 5 * SECOND);
+
+		assertEquals(6 * SECOND, bucket.reserve(0, 1), DELTA);
+	}
+
+	@Test
+	@DisplayName("境界値: 満タンで一定時間使われていなければ破棄してよい")
+	void idleOnlyWhenFullAndUnused() {
+		TokenBucket bucket = new TokenBucket(2, 60, 0);
+		bucket.reserve(0, 2);
+
+		// 満タンに戻っていない
+		assertFalse(bucket.isIdle(SECOND, SECOND));
+		// 満タンだが使われてからの時間が足りない
+		assertFalse(bucket.isIdle(3 * SECOND, 5 * SECOND));
+		assertTrue(bucket.isIdle(5 * SECOND, 5 * SECOND));
+	}
+}
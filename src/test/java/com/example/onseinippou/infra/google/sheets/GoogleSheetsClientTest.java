@@ -0,0 +1,37 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class GoogleSheetsClientTest {
+
+	@Test
+	@DisplayName("正常系: updatedRange の範囲から先頭行の行番号を取り出す")
+	void firstRowNumberOfRange() {
+		assertEquals(5, GoogleSheetsClient.firstRowNumber("Sheet1!A5:C5"));
+		assertEquals(2, GoogleSheetsClient.firstRowNumber("'シート1'!A2:B3"));
+		assertEquals(3, GoogleSheetsClient.firstRowNumber("Sheet1!AA3:AB4"));
+	}
+
+	@Test
+	@DisplayName("正常系: タブ名に ! を含む場合は最後の ! 以降の範囲を見る")
+	void firstRowNumberWithExclamationInSheetName() {
+		assertEquals(12, GoogleSheetsClient.firstRowNumber("'a!b'!A12:B14"));
+		assertEquals(3, GoogleSheetsClient.firstRowNumber("'x!A1:B2'!A3:B4"));
+	}
+
+	@Test
+	@DisplayName("境界値: 1セルだけの範囲でも行番号を取り出す")
+	void firstRowNumberOfSingleCell() {
+		assertEquals(7, GoogleSheetsClient.firstRowNumber("Sheet1!A7"));
+	}
+
+	@Test
+	@DisplayName("異常系: 行番号を含まない範囲は IllegalStateException になる")
+	void firstRowNumberRejectsRangeWithoutRow() {
+		assertThrows(IllegalStateException.class, () -> GoogleSheetsClient.firstRowNumber("Sheet1"));
+		assertThrows(IllegalStateException.class, () -> GoogleSheetsClient.firstRowNumber("Sheet1!A:C"));
+	}
+}
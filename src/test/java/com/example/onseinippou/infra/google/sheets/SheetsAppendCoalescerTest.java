@@ -0,0 +1,107 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.onseinippou.infra.google.sheets.GoogleSheetsClient.AppendResult;
+
+class SheetsAppendCoalescerTest {
+
+	/** 追記先の次の空き行（1行目は見出し）. */
+	private final AtomicInteger nextRow = new AtomicInteger(2);
+	private SheetsAppendCoalescer coalescer;
+
+	@AfterEach
+	void tearDown() {
+		coalescer.shutdown();
+	}
+
+	@Test
+	@DisplayName("正常系: 同じシート宛ての同時の追記は少ない API 呼び出しにまとまり、各呼び出し元に自分の行番号が返る")
+	void concurrentAppendsAreCoalesced() throws Exception {
+		coalescer = new SheetsAppendCoalescer((sheetId, rows) -> nextRow.getAndAdd(rows.size()), Duration.ofMillis(200));
+		int callers = 50;
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<AppendResult>> results = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < callers; i++) {
+				String text = "日報" + i;
+				CompletableFuture<AppendResult> result = new CompletableFuture<>();
+				results.add(result);
+				executor.execute(() -> {
+					try {
+						start.await();
+						coalescer.submit("sheet-1", List.of("06/01 (月)", text)).whenComplete((r, e) -> {
+							if (e != null) {
+								result.completeExceptionally(e);
+							} else {
+								result.complete(r);
+							}
+						});
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			start.countDown();
+		}
+
+		List<Integer> rows = new ArrayList<>();
+		for (CompletableFuture<AppendResult> result : results) {
+			AppendResult appended = result.get(5, TimeUnit.SECONDS);
+			assertEquals("sheet-1", appended.sheetId());
+			rows.add(appended.rowNumber());
+		}
+		// 2〜51行目が重複なく1人1行ずつ割り当てられる
+		assertEquals(callers, rows.stream().distinct().count());
+		assertEquals(2, rows.stream().mapToInt(Integer::intValue).min().orElseThrow());
+		assertEquals(callers + 1, rows.stream().mapToInt(Integer::intValue).max().orElseThrow());
+		assertEquals(callers, coalescer.acceptedRows());
+		assertTrue(coalescer.apiCalls() < callers, "API 呼び出し回数: " + coalescer.apiCalls());
+	}
+
+	@Test
+	@DisplayName("正常系: 上限の行数に達したバッチは時間窓を待たずに送信される")
+	void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+		coalescer = new SheetsAppendCoalescer((sheetId, rows) -> nextRow.getAndAdd(rows.size()), Duration.ofMinutes(1));
+		List<CompletableFuture<AppendResult>> results = new ArrayList<>();
+		for (int i = 0; i < SheetsAppendCoalescer.MAX_BATCH_SIZE; i++) {
+			results.add(coalescer.submit("sheet-1", List.of("06/01 (月)", "日報" + i)));
+		}
+
+		assertEquals(2, results.get(0).get(5, TimeUnit.SECONDS).rowNumber());
+		assertEquals(SheetsAppendCoalescer.MAX_BATCH_SIZE + 1,
+				results.get(SheetsAppendCoalescer.MAX_BATCH_SIZE - 1).get(5, TimeUnit.SECONDS).rowNumber());
+		assertEquals(1, coalescer.apiCalls());
+	}
+
+	@Test
+	@DisplayName("異常系: 書き込みが Error を投げても、バッチ内の全員に例外として通知される")
+	void errorInWriterCompletesAllWaiters() {
+		coalescer = new SheetsAppendCoalescer((sheetId, rows) -> {
+			throw new AssertionError("スタブの検証エラー");
+		}, Duration.ofMillis(50));
+		CompletableFuture<AppendResult> first = coalescer.submit("sheet-1", List.of("06/01 (月)", "日報1"));
+		CompletableFuture<AppendResult> second = coalescer.submit("sheet-1", List.of("06/01 (月)", "日報2"));
+
+		for (CompletableFuture<AppendResult> result : List.of(first, second)) {
+			CompletionException e = assertThrows(CompletionException.class,
+					() -> result.orTimeout(5, TimeUnit.SECONDS).join());
+			assertInstanceOf(AssertionError.class, e.getCause());
+		}
+	}
+}
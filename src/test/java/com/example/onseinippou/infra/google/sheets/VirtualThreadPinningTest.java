@@ -0,0 +1,265 @@
+package com.example.onseinippou.infra.google.sheets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.onseinippou.domain.model.user.User;
+import com.example.onseinippou.domain.repository.UserRepository;
+import com.example.onseinippou.infra.google.GoogleApiExecutor;
+import com.example.onseinippou.infra.google.GoogleApiRateLimiter;
+import com.example.onseinippou.security.CurrentUserProvider;
+import com.example.onseinippou.security.CustomUserDetails;
+import com.example.onseinippou.security.UserSnapshot;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.sheets.v4.Sheets;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 日報提出の経路（ログインユーザーの取得 → Sheets への追記）を仮想スレッドから呼び、
+ * JFR の jdk.VirtualThreadPinned（ブロック中にキャリアスレッドを固定した）イベントを確認する.
+ * CurrentUserProvider・GoogleSheetsClient（追記のまとめ・メタデータのキャッシュ・レート制限・Google API クライアント）は
+ * 本物を使い、DB と Sheets API の応答だけを遅延付きのスタブにする.
+ */
+class VirtualThreadPinningTest {
+
+	/** 擬似的な DB / Sheets の応答時間. */
+	private static final Duration LATENCY = Duration.ofMillis(50);
+
+	private static final String SPREADSHEET_JSON = """
+			{"sheets": [{"properties": {"sheetId": 0, "title": "シート1", "index": 0}}]}
+			""";
+	private static final String APPEND_JSON = """
+			{"updates": {"updatedRange": "'シート1'!A2:B3"}}
+			""";
+
+	@Test
+	@DisplayName("正常系: 提出経路を仮想スレッドから並行して呼んでも、キャリアスレッドの固定が起きない")
+	void submissionPathDoesNotPinCarrierThreads() {
+		List<RecordedEvent> pinned = recordPinning(() -> {
+			try (SubmissionPath path = new SubmissionPath();
+					ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < 200; i++) {
+					long userId = i % 20;
+					futures.add(executor.submit(() -> path.submit(userId)));
+				}
+				for (Future<?> f : futures) {
+					f.get();
+				}
+			}
+		});
+
+		assertTrue(pinned.isEmpty(), () -> pinned.size() + " 件の固定を検出しました。 例: " + describe(pinned.get(0)));
+	}
+
+	@Test
+	@DisplayName("検出の確認: synchronized 内でブロックすると固定として記録される")
+	void detectsPinningInsideSynchronized() {
+		// JDK 24 以降は synchronized 内でブロックしてもキャリアスレッドを手放せる（JEP 491）
+		assumeTrue(Runtime.version().feature() < 24, "この JDK では synchronized で固定されない");
+		Object monitor = new Object();
+		List<RecordedEvent> pinned = recordPinning(() -> Thread.ofVirtual().start(() -> {
+			synchronized (monitor) {
+				sleep(LATENCY);
+			}
+		}).join());
+
+		assertFalse(pinned.isEmpty());
+	}
+
+	/**
+	 * 同時に受け付けた提出数ごとに、提出経路を捌き切る時間を Tomcat 既定の200スレッドのプールと仮想スレッドで比べ、
+	 * 仮想スレッドでの固定の件数も出力する. 通常のビルドでは実行しない.
+	 * <pre>mvn test -Dtest=VirtualThreadPinningTest -Dbenchmark=true</pre>
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	@DisplayName("ベンチマーク: 同時提出数に対する処理時間（プラットフォームスレッド200本 vs 仮想スレッド）")
+	void benchmarkConcurrentSubmissions() throws Exception {
+		for (int submissions : new int[] { 200, 1_000, 5_000, 20_000 }) {
+			long platform;
+			try (ExecutorService executor = Executors.newFixedThreadPool(200)) {
+				platform = runSubmissions(executor, submissions);
+			}
+			long[] virtual = new long[1];
+			List<RecordedEvent> pinned = recordPinning(() -> {
+				try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+					virtual[0] = runSubmissions(executor, submissions);
+				}
+			});
+			System.out.printf("同時提出 %,6d 件: プラットフォーム200本 %,6d ms / 仮想スレッド %,6d ms（固定 %d 件）%n",
+					submissions, platform, virtual[0], pinned.size());
+		}
+	}
+
+	/** 提出を submissions 件（ユーザーはすべて別）同時に受け付け、全件が終わるまでの時間（ミリ秒）を返す. */
+	private static long runSubmissions(ExecutorService executor, int submissions) throws Exception {
+		try (SubmissionPath path = new SubmissionPath()) {
+			long start = System.nanoTime();
+			List<Future<?>> futures = new ArrayList<>(submissions);
+			for (int i = 0; i < submissions; i++) {
+				long userId = i;
+				futures.add(executor.submit(() -> path.submit(userId)));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+			return Duration.ofNanos(System.nanoTime() - start).toMillis();
+		}
+	}
+
+	/**
+	 * 提出経路. ログインユーザーの写しを取得し、そのユーザーのスプレッドシートへ日報を1行追記する.
+	 */
+	private static final class SubmissionPath implements AutoCloseable {
+		private final CurrentUserProvider currentUserProvider = new CurrentUserProvider(slowUserRepository());
+		private final GoogleSheetsClient sheetsClient;
+
+		SubmissionPath() {
+			MeterRegistry registry = new SimpleMeterRegistry();
+			// レート制限の待機もこの経路に含まれるが、ここでは応答待ちだけを見るため十分に緩める
+			GoogleApiExecutor executor = new GoogleApiExecutor(
+					new GoogleApiRateLimiter(registry, 1e9, 1e9, 1e9, 1e9), registry);
+			Sheets sheets = slowSheets();
+			this.sheetsClient = new GoogleSheetsClient(sheets, null, executor,
+					new SpreadsheetMetadataCache(sheets, executor), null, registry);
+		}
+
+		void submit(long userId) {
+			SecurityContextHolder.getContext().setAuthentication(authenticationOf(userId));
+			try {
+				UserSnapshot me = currentUserProvider.getCurrentUserSnapshot();
+				sheetsClient.appendNippou(me.sheetId(), "本日の作業内容を報告します。");
+			} finally {
+				SecurityContextHolder.clearContext();
+			}
+		}
+
+		@Override
+		public void close() {
+			sheetsClient.shutdown();
+		}
+	}
+
+	@FunctionalInterface
+	private interface Workload {
+		void run() throws Exception;
+	}
+
+	/**
+	 * 処理の実行中に発生した固定イベントを集める. 閾値は0にして短い固定も拾う.
+	 */
+	private static List<RecordedEvent> recordPinning(Workload workload) {
+		List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+		try (RecordingStream stream = new RecordingStream()) {
+			stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+			stream.onEvent("jdk.VirtualThreadPinned", events::add);
+			stream.startAsync();
+			workload.run();
+			// stop はバッファ済みのイベントをすべて onEvent に渡してから戻る
+			stream.stop();
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+		return events;
+	}
+
+	private static String describe(RecordedEvent event) {
+		if (event.getStackTrace() == null) {
+			return event.getDuration().toMillis() + "ms（スタックなし）";
+		}
+		return event.getDuration().toMillis() + "ms " + event.getStackTrace().getFrames().stream()
+				.limit(8)
+				.map(VirtualThreadPinningTest::frame)
+				.collect(Collectors.joining(" <- "));
+	}
+
+	private static String frame(RecordedFrame frame) {
+		return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+	}
+
+	/** findById だけを実装し、DB の応答待ちを模したリポジトリ. */
+	private static UserRepository slowUserRepository() {
+		return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+				new Class<?>[] { UserRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findById")) {
+						sleep(LATENCY);
+						return Optional.of(userOf((Long) args[0]));
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	/**
+	 * 応答待ちを模した HTTP トランスポートの Sheets クライアント.
+	 * spreadsheets.get にはタブ1つのメタデータを、values.append には追記範囲を返す.
+	 */
+	private static Sheets slowSheets() {
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(String method, String url) {
+				return new MockLowLevelHttpRequest(url) {
+					@Override
+					public LowLevelHttpResponse execute() {
+						sleep(LATENCY);
+						return new MockLowLevelHttpResponse()
+								.setContentType(Json.MEDIA_TYPE)
+								.setContent(url.contains(":append") ? APPEND_JSON : SPREADSHEET_JSON);
+					}
+				};
+			}
+		};
+		return new Sheets.Builder(transport, GsonFactory.getDefaultInstance(), null)
+				.setApplicationName("virtual-thread-pinning-test")
+				.build();
+	}
+
+	private static UsernamePasswordAuthenticationToken authenticationOf(long userId) {
+		CustomUserDetails details = new CustomUserDetails(userOf(userId));
+		return new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+	}
+
+	private static User userOf(long userId) {
+		User user = new User();
+		user.setId(userId);
+		user.setEmail("user" + userId + "@example.com");
+		user.setSheetId("sheet-" + (userId % 10));
+		return user;
+	}
+
+	private static void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.onseinippou.infra.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+class NgramIndexTest {
+
+	@Test
+	@DisplayName("正常系: 分かち書きの無い日本語の部分文字列で候補が見つかり、新しい順に並ぶ")
+	void findsJapaneseSubstringNewestFirst() {
+		NgramIndex index = new NgramIndex();
+		index.add(1, 10, "sheet-a", "株式会社山田商事へ訪問し、製品ＡＢ－１２３の見積りを提出");
+		index.add(2, 10, "sheet-a", "社内会議のみ");
+		index.add(3, 20, "sheet-a", "山田商事から AB-123 の追加発注");
+
+		assertEquals(List.of(3L, 1L), index.candidates("山田商事", null, null, 10));
+		// 全角・半角の揺れと大文字小文字を吸収する
+		assertEquals(List.of(3L, 1L), index.candidates("ab-123", null, null, 10));
+		assertEquals(List.of(), index.candidates("佐藤", null, null, 10));
+	}
+
+	@Test
+	@DisplayName("正常系: 所有者とグループで絞り込める")
+	void filtersByOwnerAndGroup() {
+		NgramIndex index = new NgramIndex();
+		index.add(1, 10, "sheet-a", "山田商事へ訪問");
+		index.add(2, 20, "sheet-a", "山田商事へ電話");
+		index.add(3, 30, "sheet-b", "山田商事へメール");
+
+		assertEquals(List.of(1L), index.candidates("山田", 10L, null, 10));
+		assertEquals(List.of(2L, 1L), index.candidates("山田", null, "sheet-a", 10));
+		assertEquals(List.of(), index.candidates("山田", null, "sheet-x", 10));
+		assertTrue(index.contains(2));
+		assertFalse(index.contains(4));
+	}
+
+	@Test
+	@DisplayName("正常系: キーが昇順に届かなくても contains で引け、同じキーの追加は1回だけ反映する")
+	void keysOutOfOrderAndDuplicates() {
+		NgramIndex index = new NgramIndex();
+		// 複数インスタンスの採番範囲が混ざった順序
+		long[] keys = { 1_050, 1_000, 2_100, 1_001, 1_051, 0, Long.MIN_VALUE };
+		for (long key : keys) {
+			assertTrue(index.add(key, 10, "sheet-a", "山田商事へ訪問 " + key));
+		}
+		// 拡張（再ハッシュ）を挟む
+		for (long key = 10_000; key < 12_000; key++) {
+			index.add(key, 10, "sheet-a", "社内会議");
+		}
+
+		for (long key : keys) {
+			assertTrue(index.contains(key), () -> "key " + key);
+		}
+		assertFalse(index.contains(1_002));
+		assertFalse(index.add(1_000, 10, "sheet-a", "山田商事へ訪問 1000"));
+		assertEquals(keys.length + 2_000, index.size());
+		assertEquals(keys.length, index.candidates("山田商事", null, null, 100).size());
+	}
+
+	@Test
+	@DisplayName("異常系: 1文字の検索語は受け付けない")
+	void rejectsSingleCharacterQuery() {
+		NgramIndex index = new NgramIndex();
+		assertThrows(IllegalArgumentException.class, () -> index.candidates("山", null, null, 10));
+	}
+
+	@Test
+	@DisplayName("正常系: ポスティングリストの差分符号化が大きな間隔でも復元できる")
+	void postingListRoundTrip() {
+		NgramIndex.PostingList list = new NgramIndex.PostingList();
+		int[] docs = { 0, 1, 127, 128, 16_383, 16_384, 2_000_000, 300_000_000 };
+		for (int doc : docs) {
+			list.append(doc);
+		}
+		assertArrayEquals(docs, list.decode());
+
+		int[] probe = { 1, 2, 128, 2_000_000, 300_000_001 };
+		int kept = list.retainAll(probe, probe.length);
+		assertArrayEquals(new int[] { 1, 128, 2_000_000 }, Arrays.copyOf(probe, kept));
+	}
+
+	/**
+	 * 100万件の日報を索引したときの検索レイテンシを測る. 通常のテストでは実行しない.
+	 * <pre>mvn test -Dtest=NgramIndexTest -Dbenchmark=true</pre>
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	@DisplayName("ベンチマーク: 100万件での検索レイテンシ")
+	void benchmarkOneMillionReports() {
+		final int reports = 1_000_000;
+		final int users = 5_000;
+		Random random = new Random(42);
+		String[] customers = new String[2_000];
+		for (int i = 0; i < customers.length; i++) {
+			customers[i] = randomKanji(random, 4) + "商事";
+		}
+		String[] phrases = { "へ訪問し打ち合わせ。", "から見積り依頼あり。", "の担当者と電話で調整。", "へ製品デモを実施。",
+				"の納期について確認。", "に請求書を送付。" };
+
+		NgramIndex index = new NgramIndex();
+		long buildStart = System.nanoTime();
+		for (int i = 1; i <= reports; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int s = 0; s < 4; s++) {
+				text.append(customers[random.nextInt(customers.length)])
+						.append(phrases[random.nextInt(phrases.length)])
+						.append("品番 P-").append(random.nextInt(100_000)).append(' ');
+			}
+			int user = random.nextInt(users);
+			index.add(i, user, "sheet-" + (user / 20), text.toString());
+		}
+		long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+		List<String> queries = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			queries.add(customers[random.nextInt(customers.length)]);
+			queries.add("p-" + random.nextInt(100_000));
+		}
+		// ウォームアップ
+		for (String q : queries) {
+			index.candidates(q, null, null, 2_000);
+		}
+
+		long[] all = new long[queries.size()];
+		long[] user = new long[queries.size()];
+		long[] team = new long[queries.size()];
+		for (int i = 0; i < queries.size(); i++) {
+			String q = queries.get(i);
+			long t0 = System.nanoTime();
+			index.candidates(q, null, null, 2_000);
+			long t1 = System.nanoTime();
+			index.candidates(q, (long) random.nextInt(users), null, 2_000);
+			long t2 = System.nanoTime();
+			index.candidates(q, null, "sheet-" + random.nextInt(users / 20), 2_000);
+			long t3 = System.nanoTime();
+			all[i] = t1 - t0;
+			user[i] = t2 - t1;
+			team[i] = t3 - t2;
+		}
+
+		Runtime rt = Runtime.getRuntime();
+		System.out.printf("索引 %,d 件: 構築 %,d ms, ヒープ使用量 約 %,d MB%n",
+				index.size(), buildMillis, (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024));
+		System.out.printf("全件   p50 %s / p99 %s%n", micros(all, 50), micros(all, 99));
+		System.out.printf("本人   p50 %s / p99 %s%n", micros(user, 50), micros(user, 99));
+		System.out.printf("チーム p50 %s / p99 %s%n", micros(team, 50), micros(team, 99));
+		assertEquals(reports, index.size());
+	}
+
+	private static String randomKanji(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append((char) (0x4E00 + random.nextInt(2_000)));
+		}
+		return sb.toString();
+	}
+
+	private static String micros(long[] nanos, int percentile) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		int i = Math.min(sorted.length - 1, sorted.length * percentile / 100);
+		return String.format("%,d µs", sorted[i] / 1_000);
+	}
+}
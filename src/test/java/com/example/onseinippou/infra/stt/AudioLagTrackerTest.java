@@ -0,0 +1,44 @@
+package com.example.onseinippou.infra.stt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AudioLagTrackerTest {
+
+	/** LINEAR16 / 16kHz / モノラル. */
+	private static final int BYTES_PER_SECOND = 32_000;
+	/** 100ms 分の音声. */
+	private static final int FRAME = BYTES_PER_SECOND / 10;
+	private static final long MS = 1_000_000L;
+
+	@Test
+	@DisplayName("正常系: 結果の末尾を含むフレームの到着時刻から遅延を求める")
+	void lagIsMeasuredFromTheFrameContainingResultEnd() {
+		AudioLagTracker tracker = new AudioLagTracker(BYTES_PER_SECOND);
+		// 0-100ms の音声が 1000ms に、100-200ms が 1100ms に、200-300ms が 1200ms に届いた
+		tracker.onAudio(FRAME, 1_000 * MS);
+		tracker.onAudio(FRAME, 1_100 * MS);
+		tracker.onAudio(FRAME, 1_200 * MS);
+
+		// 150ms までの確定結果を 1500ms に受け取った → 100-200ms のフレームから 400ms
+		assertEquals(Duration.ofMillis(400), tracker.lag(Duration.ofMillis(150), 1_500 * MS));
+		// ちょうどフレームの境界（200ms）は、そのフレームに含める
+		assertEquals(Duration.ofMillis(500), tracker.lag(Duration.ofMillis(200), 1_600 * MS));
+		// 次の結果は残りのフレームから探す
+		assertEquals(Duration.ofMillis(600), tracker.lag(Duration.ofMillis(300), 1_800 * MS));
+	}
+
+	@Test
+	@DisplayName("境界値: 送信済みの音声を超えるオフセットは最後のフレームで、音声が無ければ null")
+	void lagBeyondSentAudioUsesTheLastFrame() {
+		AudioLagTracker tracker = new AudioLagTracker(BYTES_PER_SECOND);
+		assertNull(tracker.lag(Duration.ofMillis(100), 1_000 * MS));
+
+		tracker.onAudio(FRAME, 1_000 * MS);
+		assertEquals(Duration.ofMillis(300), tracker.lag(Duration.ofMillis(120), 1_300 * MS));
+	}
+}
@@ -0,0 +1,312 @@
+package com.example.onseinippou.infra.stt;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.cloud.speech.v1.LongRunningRecognizeMetadata;
+import com.google.cloud.speech.v1.LongRunningRecognizeRequest;
+import com.google.cloud.speech.v1.LongRunningRecognizeResponse;
+import com.google.cloud.speech.v1.SpeechGrpc;
+import com.google.cloud.speech.v1.SpeechRecognitionAlternative;
+import com.google.cloud.speech.v1.SpeechRecognitionResult;
+import com.google.cloud.speech.v1.StreamingRecognitionConfig;
+import com.google.cloud.speech.v1.StreamingRecognitionResult;
+import com.google.cloud.speech.v1.StreamingRecognizeRequest;
+import com.google.cloud.speech.v1.StreamingRecognizeResponse;
+import com.google.longrunning.Operation;
+import com.google.protobuf.Any;
+
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * ループバックで待ち受ける偽の Google Speech サーバー（StreamingRecognize / LongRunningRecognize）.
+ * SpeechToTextClient を app.speech.endpoint={@link #endpoint()}, app.speech.plaintext=true で向けると、
+ * 本物の gRPC の通信・フロー制御・ResponseObserver を通したテストができる.
+ * <ul>
+ * <li>台本: {@link #script(String...)} で積んだテキストを、音声を一定量（{@link #setAudioPerResult}）受け取るごとに順に返す.
+ * 確定結果の前に、同じ区間の中間結果を1件返す.</li>
+ * <li>応答遅延: すべての応答（結果・完了・エラー）を {@link #setResponseLatency} の後に、受け付けた順に返す.</li>
+ * <li>5分制限: ストリーム1本で受け取った音声が {@link #setStreamLimit} を超えると OUT_OF_RANGE で終了する.</li>
+ * <li>エラー注入: {@link #failNextStream} / {@link #failNextLongRunning} で次の呼び出しを指定のステータスで失敗させる.</li>
+ * </ul>
+ * LongRunningRecognize は完了済みのオペレーションを返すため、Operations（ポーリング）は実装しない.
+ */
+public class FakeSpeechServer implements AutoCloseable {
+
+	/** LINEAR16 / 16kHz / モノラル. */
+	public static final int BYTES_PER_SECOND = 32_000;
+	/** Google のストリーミング認識の上限. */
+	public static final Duration DEFAULT_STREAM_LIMIT = Duration.ofMinutes(5);
+
+	private final Server server;
+	/* 応答は1本のスレッドで、受け付けた順に返す（サーバー側の StreamObserver はスレッドセーフではない） */
+	private final ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor(
+			Thread.ofPlatform().name("fake-speech-responder").daemon().factory());
+
+	private final Queue<String> transcripts = new ConcurrentLinkedQueue<>();
+	private volatile Duration responseLatency = Duration.ZERO;
+	private volatile Duration audioPerResult = Duration.ofSeconds(1);
+	private volatile Duration streamLimit = DEFAULT_STREAM_LIMIT;
+	private final AtomicReference<Status> nextStreamError = new AtomicReference<>();
+	private final AtomicReference<Status> nextLongRunningError = new AtomicReference<>();
+
+	private final List<StreamingRecognitionConfig> streamingConfigs = new CopyOnWriteArrayList<>();
+	private final List<LongRunningRecognizeRequest> longRunningRequests = new CopyOnWriteArrayList<>();
+	private final AtomicInteger streamsStarted = new AtomicInteger();
+	private final AtomicLong receivedAudioBytes = new AtomicLong();
+
+	private FakeSpeechServer() throws IOException {
+		this.server = NettyServerBuilder.forAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+				.addService(new SpeechService())
+				.build()
+				.start();
+	}
+
+	/**
+	 * 空いているポートで起動する.
+	 */
+	public static FakeSpeechServer start() throws IOException {
+		return new FakeSpeechServer();
+	}
+
+	/** SpeechToTextClient の接続先（app.speech.endpoint）. */
+	public String endpoint() {
+		return "localhost:" + server.getPort();
+	}
+
+	/**
+	 * 返すテキストを台本の末尾に積む. 台本が尽きると、音声を受け取っても結果を返さない.
+	 */
+	public FakeSpeechServer script(String... lines) {
+		transcripts.addAll(List.of(lines));
+		return this;
+	}
+
+	public void setResponseLatency(Duration responseLatency) {
+		this.responseLatency = responseLatency;
+	}
+
+	/** 確定結果1件あたりの音声の長さ. */
+	public void setAudioPerResult(Duration audioPerResult) {
+		this.audioPerResult = audioPerResult;
+	}
+
+	/** ストリーム1本で受け付ける音声の長さの上限. */
+	public void setStreamLimit(Duration streamLimit) {
+		this.streamLimit = streamLimit;
+	}
+
+	/**
+	 * 次に開始されたストリームを、最初の音声を受け取った時点で指定のステータスで失敗させる.
+	 */
+	public void failNextStream(Status status) {
+		nextStreamError.set(status);
+	}
+
+	/**
+	 * 次の LongRunningRecognize を指定のステータスで失敗させる.
+	 */
+	public void failNextLongRunning(Status status) {
+		nextLongRunningError.set(status);
+	}
+
+	/** 受け取ったストリーミング認識の設定（ストリームごと）. */
+	public List<StreamingRecognitionConfig> streamingConfigs() {
+		return streamingConfigs;
+	}
+
+	/** 受け取った LongRunningRecognize のリクエスト. */
+	public List<LongRunningRecognizeRequest> longRunningRequests() {
+		return longRunningRequests;
+	}
+
+	/** 開始されたストリームの数. */
+	public int streamsStarted() {
+		return streamsStarted.get();
+	}
+
+	/** すべてのストリームで受け取った音声のバイト数. */
+	public long receivedAudioBytes() {
+		return receivedAudioBytes.get();
+	}
+
+	/**
+	 * 台本・設定・記録を初期状態に戻す（テストごとに呼ぶ）.
+	 */
+	public void reset() {
+		transcripts.clear();
+		responseLatency = Duration.ZERO;
+		audioPerResult = Duration.ofSeconds(1);
+		streamLimit = DEFAULT_STREAM_LIMIT;
+		nextStreamError.set(null);
+		nextLongRunningError.set(null);
+		streamingConfigs.clear();
+		longRunningRequests.clear();
+		streamsStarted.set(0);
+		receivedAudioBytes.set(0);
+	}
+
+	@Override
+	public void close() {
+		server.shutdownNow();
+		responder.shutdownNow();
+	}
+
+	/* 応答遅延の後に応答を返す. 遅延が同じなら受け付けた順に実行される */
+	private void respond(Runnable response) {
+		responder.schedule(response, responseLatency.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	private static long bytesOf(Duration audio) {
+		return audio.toMillis() * BYTES_PER_SECOND / 1000;
+	}
+
+	private static SpeechRecognitionAlternative alternative(String transcript) {
+		return SpeechRecognitionAlternative.newBuilder().setTranscript(transcript).setConfidence(0.9f).build();
+	}
+
+	private final class SpeechService extends SpeechGrpc.SpeechImplBase {
+
+		@Override
+		public StreamObserver<StreamingRecognizeRequest> streamingRecognize(
+				StreamObserver<StreamingRecognizeResponse> responses) {
+			streamsStarted.incrementAndGet();
+			return new StreamingCall(responses, nextStreamError.getAndSet(null));
+		}
+
+		@Override
+		public void longRunningRecognize(LongRunningRecognizeRequest request, StreamObserver<Operation> responses) {
+			longRunningRequests.add(request);
+			Status error = nextLongRunningError.getAndSet(null);
+			// 台本から音声の長さに応じた件数を取り出す（端数も1件）
+			long perResult = bytesOf(audioPerResult);
+			long results = (request.getAudio().getContent().size() + perResult - 1) / perResult;
+			LongRunningRecognizeResponse.Builder response = LongRunningRecognizeResponse.newBuilder();
+			for (long i = 0; i < results && !transcripts.isEmpty(); i++) {
+				response.addResults(SpeechRecognitionResult.newBuilder().addAlternatives(alternative(transcripts.poll())));
+			}
+			respond(() -> {
+				if (error != null) {
+					responses.onError(error.asRuntimeException());
+					return;
+				}
+				responses.onNext(Operation.newBuilder()
+						.setName("operations/" + longRunningRequests.size())
+						.setDone(true)
+						.setMetadata(Any.pack(LongRunningRecognizeMetadata.newBuilder().setProgressPercent(100).build()))
+						.setResponse(Any.pack(response.build()))
+						.build());
+				responses.onCompleted();
+			});
+		}
+	}
+
+	/* ストリーム1本分の状態. gRPC は同じ呼び出しのリクエストを順に渡すため、onNext / onCompleted は同時に呼ばれない */
+	private final class StreamingCall implements StreamObserver<StreamingRecognizeRequest> {
+		private final StreamObserver<StreamingRecognizeResponse> responses;
+		private final Status injectedError;
+		private long receivedBytes;
+		private long pendingBytes;
+		/* 完了・エラーを返した（または相手が取り消した）後は、以降のリクエストを無視する */
+		private boolean finished;
+
+		StreamingCall(StreamObserver<StreamingRecognizeResponse> responses, Status injectedError) {
+			this.responses = responses;
+			this.injectedError = injectedError;
+		}
+
+		@Override
+		public void onNext(StreamingRecognizeRequest request) {
+			if (finished) {
+				return;
+			}
+			if (request.hasStreamingConfig()) {
+				streamingConfigs.add(request.getStreamingConfig());
+				return;
+			}
+			int size = request.getAudioContent().size();
+			receivedAudioBytes.addAndGet(size);
+			if (injectedError != null) {
+				finish(injectedError);
+				return;
+			}
+			receivedBytes += size;
+			if (receivedBytes > bytesOf(streamLimit)) {
+				// 本物と同じく、上限を超えた時点でストリームを OUT_OF_RANGE で閉じる
+				finish(Status.OUT_OF_RANGE.withDescription(
+						"Exceeded maximum allowed stream duration of " + streamLimit.toSeconds() + " seconds."));
+				return;
+			}
+			pendingBytes += size;
+			long perResult = bytesOf(audioPerResult);
+			while (pendingBytes >= perResult) {
+				pendingBytes -= perResult;
+				respondResult(receivedBytes - pendingBytes);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			finished = true;
+		}
+
+		@Override
+		public void onCompleted() {
+			if (finished) {
+				return;
+			}
+			// 送信の終了を受けたら、残りの音声分の結果を返してから完了する
+			if (pendingBytes > 0) {
+				pendingBytes = 0;
+				respondResult(receivedBytes);
+			}
+			finished = true;
+			respond(responses::onCompleted);
+		}
+
+		private void finish(Status status) {
+			finished = true;
+			respond(() -> responses.onError(status.asRuntimeException()));
+		}
+
+		/* ストリーム先頭から endBytes までの音声に対して、中間結果と確定結果を返す */
+		private void respondResult(long endBytes) {
+			String transcript = transcripts.poll();
+			if (transcript == null) {
+				return;
+			}
+			Duration end = Duration.ofNanos(endBytes * 1_000_000_000L / BYTES_PER_SECOND);
+			respond(() -> {
+				responses.onNext(response(transcript.substring(0, transcript.length() / 2), false, end));
+				responses.onNext(response(transcript, true, end));
+			});
+		}
+
+		private StreamingRecognizeResponse response(String transcript, boolean isFinal, Duration end) {
+			return StreamingRecognizeResponse.newBuilder()
+					.addResults(StreamingRecognitionResult.newBuilder()
+							.addAlternatives(alternative(transcript))
+							.setIsFinal(isFinal)
+							.setStability(isFinal ? 0f : 0.8f)
+							.setResultEndTime(com.google.protobuf.Duration.newBuilder()
+									.setSeconds(end.getSeconds())
+									.setNanos(end.getNano())))
+					.build();
+		}
+	}
+}
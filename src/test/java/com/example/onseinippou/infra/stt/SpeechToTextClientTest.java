@@ -0,0 +1,173 @@
+package com.example.onseinippou.infra.stt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.onseinippou.infra.stt.SpeechToTextClient.AudioStreamObserver;
+import com.example.onseinippou.infra.stt.SpeechToTextClient.FinalResult;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.speech.v1.RecognitionConfig;
+import com.google.cloud.speech.v1.StreamingRecognitionConfig;
+
+import io.grpc.Status;
+
+/**
+ * SpeechToTextClient を設定（app.speech.*）で FakeSpeechServer に向け、本物の gRPC の通信を通して確かめる.
+ */
+@SpringJUnitConfig(SpeechToTextClient.class)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SpeechToTextClientTest {
+
+	/** 100ms 分の音声（LINEAR16 / 16kHz / モノラル）. */
+	private static final int FRAME_BYTES = FakeSpeechServer.BYTES_PER_SECOND / 10;
+	private static final Duration LATENCY = Duration.ofMillis(50);
+
+	private static FakeSpeechServer server;
+
+	@Autowired
+	private SpeechToTextClient client;
+
+	private Consumer<FinalResult> onResult;
+	private Runnable onIdleTimeout;
+	private Consumer<Throwable> onError;
+	private Runnable onStreamCompleted;
+
+	@DynamicPropertySource
+	static void speechEndpoint(DynamicPropertyRegistry registry) throws IOException {
+		server = FakeSpeechServer.start();
+		registry.add("app.speech.endpoint", server::endpoint);
+		registry.add("app.speech.plaintext", () -> "true");
+	}
+
+	@AfterAll
+	static void stopServer() {
+		server.close();
+	}
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		server.reset();
+		server.setResponseLatency(LATENCY);
+		onResult = mock(Consumer.class);
+		onIdleTimeout = mock(Runnable.class);
+		onError = mock(Consumer.class);
+		onStreamCompleted = mock(Runnable.class);
+	}
+
+	@Test
+	@DisplayName("正常系 1-1: 認識設定を送り、確定結果だけを遅延付きで受け取り、送信の終了で残りの結果と完了通知を受け取る")
+	void streamsAudioAndReceivesFinalResults() {
+		server.script("本日は", "晴れです。", "以上です。");
+
+		AudioStreamObserver stream = startStream();
+		// 2.5秒分 → 1秒ごとに2件、送信の終了で残りの0.5秒分が1件
+		sendAudio(stream, 25);
+		stream.closeStream();
+
+		verify(onStreamCompleted, timeout(5000)).run();
+		ArgumentCaptor<FinalResult> results = ArgumentCaptor.forClass(FinalResult.class);
+		verify(onResult, times(3)).accept(results.capture());
+		assertEquals(List.of("本日は", "晴れです。", "以上です。"),
+				results.getAllValues().stream().map(FinalResult::transcript).toList());
+		for (FinalResult result : results.getAllValues()) {
+			assertNotNull(result.lag());
+			assertTrue(result.lag().compareTo(LATENCY) >= 0, "遅延は応答遅延以上: " + result.lag());
+		}
+		verify(onIdleTimeout, never()).run();
+		verify(onError, never()).accept(any());
+
+		StreamingRecognitionConfig streamingConfig = server.streamingConfigs().get(0);
+		assertTrue(streamingConfig.getInterimResults());
+		RecognitionConfig config = streamingConfig.getConfig();
+		assertEquals(RecognitionConfig.AudioEncoding.LINEAR16, config.getEncoding());
+		assertEquals(16000, config.getSampleRateHertz());
+		assertEquals("ja-JP", config.getLanguageCode());
+		assertEquals(SpeechToTextClient.MODEL, config.getModel());
+		assertEquals(25L * FRAME_BYTES, server.receivedAudioBytes());
+	}
+
+	@Test
+	@DisplayName("正常系 1-2: ファイルの文字起こしで、長時間認識の結果を連結して返す")
+	void recognizesWavWithLongRunningRecognize(@TempDir Path dir) throws IOException {
+		server.script("一行目です。", "二行目です。");
+		Path wav = dir.resolve("audio.wav");
+		Files.write(wav, new byte[FakeSpeechServer.BYTES_PER_SECOND * 3 / 2]);
+
+		assertEquals("一行目です。二行目です。", client.recognizeFromWav(wav.toString()));
+		RecognitionConfig config = server.longRunningRequests().get(0).getConfig();
+		assertEquals(16000, config.getSampleRateHertz());
+		assertEquals(SpeechToTextClient.MODEL, config.getModel());
+	}
+
+	@Test
+	@DisplayName("異常系 2-1: ストリームの上限（5分制限）を超えると OUT_OF_RANGE を受け、エラーではなくタイムアウトとして通知する")
+	void outOfRangeIsReportedAsIdleTimeout() {
+		server.setStreamLimit(Duration.ofSeconds(1));
+
+		AudioStreamObserver stream = startStream();
+		sendAudio(stream, 12);
+
+		verify(onIdleTimeout, timeout(5000)).run();
+		verify(onError, never()).accept(any());
+		verify(onStreamCompleted, never()).run();
+	}
+
+	@Test
+	@DisplayName("異常系 2-2: 予期せぬエラーはエラーと完了の両方を通知する")
+	void unexpectedErrorIsReportedWithCompletion() {
+		server.failNextStream(Status.UNAVAILABLE.withDescription("injected"));
+
+		AudioStreamObserver stream = startStream();
+		sendAudio(stream, 1);
+
+		verify(onStreamCompleted, timeout(5000)).run();
+		ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+		verify(onError).accept(error.capture());
+		ApiException apiException = assertInstanceOf(ApiException.class, error.getValue());
+		assertEquals(StatusCode.Code.UNAVAILABLE, apiException.getStatusCode().getCode());
+		verify(onIdleTimeout, never()).run();
+	}
+
+	@Test
+	@DisplayName("異常系 2-3: 長時間認識の失敗は IllegalStateException になる")
+	void longRunningFailureIsWrapped(@TempDir Path dir) throws IOException {
+		server.failNextLongRunning(Status.INVALID_ARGUMENT.withDescription("injected"));
+		Path wav = dir.resolve("audio.wav");
+		Files.write(wav, new byte[FakeSpeechServer.BYTES_PER_SECOND]);
+
+		assertThrows(IllegalStateException.class, () -> client.recognizeFromWav(wav.toString()));
+	}
+
+	private AudioStreamObserver startStream() {
+		return client.startStreamingRecognize(onResult, onIdleTimeout, onError, onStreamCompleted);
+	}
+
+	private static void sendAudio(AudioStreamObserver stream, int frames) {
+		for (int i = 0; i < frames; i++) {
+			stream.sendAudio(new byte[FRAME_BYTES]);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.onseinippou.infra.stt;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.example.onseinippou.infra.stt.SpeechToTextClient.AudioStreamObserver;
+import com.example.onseinippou.infra.stt.SpeechToTextClient.FinalResult;
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.cloud.speech.v1.StreamingRecognizeRequest;
+import com.google.protobuf.ByteString;
+
+/**
+ * Google に接続せずにストリーミング認識を模擬する認識器（負荷試験用）.
+ * 音声を一定量受け取るごとに確定結果を1件、ストリームを閉じると残りの音声分の結果と完了通知を、
+ * それぞれ応答遅延の後に順番どおり返す. SpeechToTextClient#startStreamingRecognize の代わりに使う.
+ */
+public class StubRecognizer {
+
+	/** 確定結果1件のテキスト. */
+	public static final String SENTENCE = "本日の作業内容を報告します。";
+	/** LINEAR16 / 16kHz / モノラル. */
+	public static final int BYTES_PER_SECOND = 32_000;
+
+	/**
+	 * 認識器に音声フレームが届いたことを受け取るリスナー.
+	 */
+	@FunctionalInterface
+	public interface FrameListener {
+		void onFrame(ByteString audio, long arrivalNanos);
+	}
+
+	private final Duration responseLatency;
+	private final long bytesPerResult;
+	private final FrameListener frameListener;
+	private final Executor responses = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * @param responseLatency 結果・完了通知を返すまでの遅延.
+	 * @param audioPerResult 確定結果1件あたりの音声の長さ.
+	 * @param frameListener 音声フレームの到着を受け取るリスナー.
+	 */
+	public StubRecognizer(Duration responseLatency, Duration audioPerResult, FrameListener frameListener) {
+		this.responseLatency = responseLatency;
+		this.bytesPerResult = audioPerResult.toMillis() * BYTES_PER_SECOND / 1000;
+		this.frameListener = frameListener;
+	}
+
+	/**
+	 * 指定したバイト数の音声に対して返る確定結果の数.
+	 */
+	public long resultsFor(long audioBytes) {
+		return (audioBytes + bytesPerResult - 1) / bytesPerResult;
+	}
+
+	/**
+	 * ストリームを1本開始する.
+	 * @param onResult 確定結果のコールバック.
+	 * @param onStreamCompleted 完了通知のコールバック.
+	 * @return 音声を送るためのオブザーバー.
+	 */
+	public AudioStreamObserver start(Consumer<FinalResult> onResult, Runnable onStreamCompleted) {
+		AudioLagTracker lagTracker = new AudioLagTracker(BYTES_PER_SECOND);
+		return new AudioStreamObserver(new Stream(onResult, onStreamCompleted, lagTracker), lagTracker);
+	}
+
+	/* ストリーム1本分の状態. 同じセッションのメッセージは順に届くため、onNext / onCompleted は同時に呼ばれない */
+	private final class Stream implements ApiStreamObserver<StreamingRecognizeRequest> {
+		private final Consumer<FinalResult> onResult;
+		private final Runnable onStreamCompleted;
+		private final AudioLagTracker lagTracker;
+		private final Executor delayed;
+		private long receivedBytes;
+		private long pendingBytes;
+		/* 応答を順番どおりに返すため、前の応答の後に次の応答をつなぐ */
+		private CompletableFuture<Void> responseChain = CompletableFuture.completedFuture(null);
+
+		Stream(Consumer<FinalResult> onResult, Runnable onStreamCompleted, AudioLagTracker lagTracker) {
+			this.onResult = onResult;
+			this.onStreamCompleted = onStreamCompleted;
+			this.lagTracker = lagTracker;
+			this.delayed = CompletableFuture.delayedExecutor(responseLatency.toNanos(), TimeUnit.NANOSECONDS, responses);
+		}
+
+		@Override
+		public void onNext(StreamingRecognizeRequest request) {
+			ByteString audio = request.getAudioContent();
+			frameListener.onFrame(audio, System.nanoTime());
+			receivedBytes += audio.size();
+			pendingBytes += audio.size();
+			while (pendingBytes >= bytesPerResult) {
+				pendingBytes -= bytesPerResult;
+				respondResult(receivedBytes - pendingBytes);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+		}
+
+		@Override
+		public void onCompleted() {
+			if (pendingBytes > 0) {
+				pendingBytes = 0;
+				respondResult(receivedBytes);
+			}
+			responseChain = responseChain.thenRunAsync(onStreamCompleted, delayed);
+		}
+
+		/* 先頭から endBytes までの音声に対する確定結果を返す */
+		private void respondResult(long endBytes) {
+			Duration resultEnd = Duration.ofNanos(endBytes * 1_000_000_000L / BYTES_PER_SECOND);
+			responseChain = responseChain.thenRunAsync(
+					() -> onResult.accept(new FinalResult(SENTENCE, lagTracker.lag(resultEnd, System.nanoTime()))),
+					delayed);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.onseinippou.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BoundedPasswordEncoderTest {
+
+	private final PasswordHashingExecutor executor = new PasswordHashingExecutor(new SimpleMeterRegistry(), 1, 2);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	@DisplayName("正常系: 方式IDの無い旧形式のハッシュを照合でき、付け替え対象になる")
+	void matchesLegacyHashAndRequestsUpgrade() {
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(5);
+		DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+		delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegating, executor);
+
+		String legacy = new BCryptPasswordEncoder(4).encode("secret");
+		assertTrue(encoder.matches("secret", legacy));
+		assertFalse(encoder.matches("wrong", legacy));
+		assertTrue(encoder.upgradeEncoding(legacy));
+
+		String current = encoder.encode("secret");
+		assertTrue(current.startsWith("{bcrypt}$2a$05$"));
+		assertTrue(encoder.matches("secret", current));
+		assertFalse(encoder.upgradeEncoding(current));
+	}
+
+	@Test
+	@DisplayName("異常系: 待ち行列が満杯なら待たずに PasswordHashingBusyException になる")
+	void rejectsWhenQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		// スレッド1本を塞ぎ、待ち行列（2件）を埋める
+		Thread.ofVirtual().start(() -> executor.run(() -> {
+			started.countDown();
+			await(release);
+			return null;
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 2; i++) {
+			Thread.ofVirtual().start(() -> executor.run(() -> null));
+		}
+		// 2件とも待ち行列に入るまで待つ
+		while (executor.hasHeadroom()) {
+			Thread.sleep(10);
+		}
+
+		assertThrows(PasswordHashingBusyException.class, () -> executor.run(() -> "x"));
+		release.countDown();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.onseinippou.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * 朝のログイン集中を模して、OAuth2 ログイン時のユーザー取得・登録を MySQL で比べるベンチマーク. 通常のテストでは実行しない.
+ * <ul>
+ * <li>変更前: メールアドレスで検索し、無ければ INSERT（同時の初回ログインは一意制約違反で失敗する）.</li>
+ * <li>変更後: 最近ログインしたユーザーのキャッシュ → 検索 → 無ければ INSERT ... ON DUPLICATE KEY UPDATE して読み直す.</li>
+ * </ul>
+ * <pre>mvn test -Dtest=OAuth2LoginBenchmarkTest -Dbenchmark.jdbc-url=jdbc:mysql://localhost:3306/bench -Dbenchmark.user=root -Dbenchmark.password=...</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc-url", matches = ".+")
+class OAuth2LoginBenchmarkTest {
+
+	private static final int THREADS = 64;
+	private static final int LOGINS = 40_000;
+	private static final int EXISTING_USERS = 5_000;
+	/** 既存ユーザーに加えて、初回ログインするユーザー数. */
+	private static final int NEW_USERS = 1_000;
+
+	@FunctionalInterface
+	private interface Login {
+		void run(Connection c, String email) throws Exception;
+	}
+
+	@Test
+	@DisplayName("ベンチマーク: 同時ログイン時のレイテンシと失敗件数（検索＋INSERT vs キャッシュ＋UPSERT）")
+	void compareLoginPaths() throws Exception {
+		AtomicLong ids = new AtomicLong();
+		Result before = run("検索＋INSERT", ids, (c, email) -> {
+			if (findByEmail(c, email) == null) {
+				try (PreparedStatement ps = c.prepareStatement(
+						"insert into bench_users (id, email, role, created_at, updated_at) values (?, ?, 'ROLE_USER', ?, ?)")) {
+					bindInsert(ps, ids.incrementAndGet(), email);
+					ps.executeUpdate();
+				}
+			}
+		});
+
+		ConcurrentHashMap<String, Long> remembered = new ConcurrentHashMap<>();
+		Result after = run("キャッシュ＋UPSERT", ids, (c, email) -> {
+			if (remembered.containsKey(email)) {
+				return;
+			}
+			Long id = findByEmail(c, email);
+			if (id == null) {
+				try (PreparedStatement ps = c.prepareStatement("""
+						insert into bench_users (id, email, role, created_at, updated_at) values (?, ?, 'ROLE_USER', ?, ?)
+						on duplicate key update id = id""")) {
+					bindInsert(ps, ids.incrementAndGet(), email);
+					ps.executeUpdate();
+				}
+				id = findByEmail(c, email);
+			}
+			remembered.put(email, id);
+		});
+
+		System.out.println(before);
+		System.out.println(after);
+		assertEquals(0, after.failures);
+	}
+
+	private record Result(String name, long elapsedMillis, long p50Micros, long p99Micros, int failures) {
+		@Override
+		public String toString() {
+			return String.format("%-18s: %,6d ログイン/秒, p50 %,6d µs, p99 %,7d µs, 失敗 %d 件",
+					name, LOGINS * 1000L / Math.max(1, elapsedMillis), p50Micros, p99Micros, failures);
+		}
+	}
+
+	private static Result run(String name, AtomicLong ids, Login login) throws Exception {
+		String url = System.getProperty("benchmark.jdbc-url");
+		try (Connection c = connect(url)) {
+			setUp(c, ids);
+		}
+
+		long[] latencies = new long[LOGINS];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+		long started = System.nanoTime();
+		try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				workers.add(executor.submit(() -> {
+					try (Connection c = connect(url)) {
+						for (int i = next.getAndIncrement(); i < LOGINS; i = next.getAndIncrement()) {
+							String email = "user" + ThreadLocalRandom.current().nextInt(EXISTING_USERS + NEW_USERS) + "@example.com";
+							long start = System.nanoTime();
+							try {
+								login.run(c, email);
+							} catch (SQLIntegrityConstraintViolationException e) {
+								failures.incrementAndGet();
+							}
+							latencies[i] = System.nanoTime() - start;
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		}
+		long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+		Arrays.sort(latencies);
+		return new Result(name, elapsedMillis, latencies[LOGINS / 2] / 1_000, latencies[LOGINS * 99 / 100] / 1_000,
+				failures.get());
+	}
+
+	private static Connection connect(String url) throws Exception {
+		return DriverManager.getConnection(url, System.getProperty("benchmark.user"), System.getProperty("benchmark.password"));
+	}
+
+	private static void setUp(Connection c, AtomicLong ids) throws Exception {
+		try (Statement st = c.createStatement()) {
+			st.execute("drop table if exists bench_users");
+			st.execute("""
+					create table bench_users (id bigint primary key, email varchar(255) not null unique,
+					  role varchar(255) not null, sheet_id varchar(255), created_at datetime(6), updated_at datetime(6))""");
+		}
+		ids.set(0);
+		try (PreparedStatement ps = c.prepareStatement(
+				"insert into bench_users (id, email, role, created_at, updated_at) values (?, ?, 'ROLE_USER', ?, ?)")) {
+			for (int i = 0; i < EXISTING_USERS; i++) {
+				bindInsert(ps, ids.incrementAndGet(), "user" + i + "@example.com");
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	private static void bindInsert(PreparedStatement ps, long id, String email) throws Exception {
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		ps.setLong(1, id);
+		ps.setString(2, email);
+		ps.setTimestamp(3, now);
+		ps.setTimestamp(4, now);
+	}
+
+	private static Long findByEmail(Connection c, String email) throws Exception {
+		try (PreparedStatement ps = c.prepareStatement("select id, email, role, sheet_id from bench_users where email = ?")) {
+			ps.setString(1, email);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : null;
+			}
+		}
+	}
+}
@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -24,13 +25,18 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerA
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import com.example.onseinippou.domain.repository.ReportMetaRepository;
+import com.example.onseinippou.domain.repository.ReportOutboxRepository;
 import com.example.onseinippou.domain.repository.UserRepository;
 import com.example.onseinippou.infra.stt.SpeechToTextClient;
+import com.example.onseinippou.infra.stt.SpeechToTextClient.FinalResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @EnableAutoConfiguration(exclude = {
@@ -44,6 +50,9 @@ class AudioServiceTest {
 	@Autowired
 	private AudioService audioService;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@MockitoBean
 	private SpeechToTextClient mockSpeechToTextClient;
 
@@ -53,8 +62,11 @@ class AudioServiceTest {
 	@MockitoBean
 	private ReportMetaRepository reportMetaRepository;
 
+	@MockitoBean
+	private ReportOutboxRepository reportOutboxRepository;
+
 	@Captor
-	private ArgumentCaptor<Consumer<String>> onResultCaptor;
+	private ArgumentCaptor<Consumer<FinalResult>> onResultCaptor;
 	@Captor
 	private ArgumentCaptor<Runnable> onIdleTimeoutCaptor;
 	@Captor
@@ -102,8 +114,8 @@ class AudioServiceTest {
 	void happyPath_stopsAndFinalizesTranscription() throws Exception {
 		// 1. 【準備】セッションを開始し、テキストを蓄積させる
 		audioService.startStreamingTranscription(mockSession);
-		onResultCaptor.getValue().accept("こんにちは。");
-		onResultCaptor.getValue().accept("今日の天気は晴れです。");
+		onResultCaptor.getValue().accept(text("こんにちは。"));
+		onResultCaptor.getValue().accept(text("今日の天気は晴れです。"));
 
 		// 2. 【実行】停止要求
 		audioService.stopAndFinalizeTranscription(mockSession); // 新しい停止メソッド
@@ -138,7 +150,7 @@ class AudioServiceTest {
 		SpeechToTextClient.AudioStreamObserver mockObserver2 = mock(SpeechToTextClient.AudioStreamObserver.class);
 
 		// STTクライアントが呼ばれるたびに、異なるObserverを返すように設定し、Captorも複数対応
-		final List<Consumer<String>> capturedOnResultConsumers = new ArrayList<>();
+		final List<Consumer<FinalResult>> capturedOnResultConsumers = new ArrayList<>();
 		final List<Runnable> capturedOnStreamCompletedRunnables = new ArrayList<>();
 
 		when(mockSpeechToTextClient.startStreamingRecognize(any(Consumer.class), any(Runnable.class),
@@ -159,8 +171,8 @@ class AudioServiceTest {
 		audioService.startStreamingTranscription(mockSession2);
 
 		// 3. 【実行】手動で作成したリストを使って、各セッションのコールバックを呼び出す
-		capturedOnResultConsumers.get(0).accept("セッション1のテキスト。");
-		capturedOnResultConsumers.get(1).accept("セッション2のテキスト。");
+		capturedOnResultConsumers.get(0).accept(text("セッション1のテキスト。"));
+		capturedOnResultConsumers.get(1).accept(text("セッション2のテキスト。"));
 
 		// 4. 【実行】セッション1を停止し、完了をトリガー
 		audioService.stopAndFinalizeTranscription(mockSession1);
@@ -187,7 +199,7 @@ class AudioServiceTest {
 	void happyPath_sttIdleTimeoutTriggersSilentRecovery() throws Exception {
 		// 1. 【準備】セッションを開始し、テキストを蓄積させる
 		audioService.startStreamingTranscription(mockSession);
-		onResultCaptor.getValue().accept("最初のテキスト。");
+		onResultCaptor.getValue().accept(text("最初のテキスト。"));
 
 		// 2. 【実行】STTからのアイドルタイムアウトをシミュレート
 		onIdleTimeoutCaptor.getValue().run();
@@ -211,12 +223,69 @@ class AudioServiceTest {
 		// ここでは具体的なObserverインスタンスの検証は省略するが、概念として正しい
 	}
 
+	@Test
+	@DisplayName("正常系 1-5: 音声量・STTストリーム・最終化までの時間がメトリクスに記録される")
+	void happyPath_recordsPipelineMetrics() throws Exception {
+		double bytesIn = counter("transcription.audio.bytes", "direction", "in");
+		double bytesOut = counter("transcription.audio.bytes", "direction", "out");
+		double opened = counter("transcription.stt.streams", "event", "opened");
+		double rotated = counter("transcription.stt.streams", "event", "rotated");
+		long finalized = meterRegistry.get("transcription.finalize").timer().count();
+
+		// 1. 【実行】開始 → 音声2件 → アイドルタイムアウトで張り替え → 停止
+		audioService.startStreamingTranscription(mockSession);
+		audioService.processAudioChunk(mockSession, new byte[3200]);
+		audioService.processAudioChunk(mockSession, new byte[1600]);
+		onIdleTimeoutCaptor.getValue().run();
+		audioService.stopAndFinalizeTranscription(mockSession);
+		onStreamCompletedCaptor.getValue().run();
+
+		// 2. 【検証】
+		assertEquals(4800, counter("transcription.audio.bytes", "direction", "in") - bytesIn);
+		assertEquals(4800, counter("transcription.audio.bytes", "direction", "out") - bytesOut);
+		assertEquals(2, counter("transcription.stt.streams", "event", "opened") - opened);
+		assertEquals(1, counter("transcription.stt.streams", "event", "rotated") - rotated);
+		assertEquals(finalized + 1, meterRegistry.get("transcription.finalize").timer().count());
+	}
+
+	@Test
+	@DisplayName("正常系 1-6: 確定結果の遅延をメトリクスに記録し、設定で有効なら最終メッセージに統計を付ける")
+	void happyPath_reportsLagPerFinalResult() throws Exception {
+		long recorded = meterRegistry.get("transcription.lag").timer().count();
+		ReflectionTestUtils.setField(audioService, "reportLagToClient", true);
+		try {
+			// 1. 【実行】遅延付きの確定結果を2件受け取り、停止する
+			audioService.startStreamingTranscription(mockSession);
+			onResultCaptor.getValue().accept(new FinalResult("一文目。", Duration.ofMillis(300)));
+			onResultCaptor.getValue().accept(new FinalResult("二文目。", Duration.ofMillis(500)));
+			audioService.stopAndFinalizeTranscription(mockSession);
+			onStreamCompletedCaptor.getValue().run();
+		} finally {
+			ReflectionTestUtils.setField(audioService, "reportLagToClient", false);
+		}
+
+		// 2. 【検証】
+		assertEquals(recorded + 2, meterRegistry.get("transcription.lag").timer().count());
+		String expectedJson = "{\"transcript\": \"一文目。二文目。\", "
+				+ "\"lag\": {\"count\": 2, \"p50Ms\": 300, \"p95Ms\": 500, \"maxMs\": 500}}";
+		verify(mockSession, timeout(1000)).sendMessage(new TextMessage(expectedJson));
+	}
+
+	private double counter(String name, String tagKey, String tagValue) {
+		return meterRegistry.get(name).tag(tagKey, tagValue).counter().count();
+	}
+
+	/** 遅延を求められなかった確定結果. */
+	private static FinalResult text(String transcript) {
+		return new FinalResult(transcript, null);
+	}
+
 	@Test
 	@DisplayName("異常系 2-1: STT APIエラーで回復処理が開始され、トランスクリプトが引き継がれる")
 	void errorRecovery_whenSttApiFails_restartsSessionAndRetainsTranscript() throws Exception {
 		// 1. 【準備】セッションを開始し、テキストを蓄積させる
 		audioService.startStreamingTranscription(mockSession);
-		onResultCaptor.getValue().accept("エラー前のテキスト。");
+		onResultCaptor.getValue().accept(text("エラー前のテキスト。"));
 
 		// 2. 【実行】STT APIからエラーが来たことをシミュレート
 		onErrorCaptor.getValue().accept(new RuntimeException("Simulated STT API error"));
@@ -246,7 +315,7 @@ class AudioServiceTest {
 						any(Runnable.class)); // 引数に合わせて修正
 
 		// 回復後のストリームに、エラー前のテキストが引き継がれていることを検証 (例: Captor経由で確認)
-		// onResultCaptor.getAllValues().get(1).accept("回復後のテキスト。"); などで検証可能
+		// onResultCaptor.getAllValues().get(1).accept(text("回復後のテキスト。")); などで検証可能
 	}
 
 	@Test
@@ -267,7 +336,7 @@ class AudioServiceTest {
 		// 2. 【実行】
 		// まず、正常にセッションを開始する（この呼び出しでCaptorが値を捕獲する）
 		audioService.startStreamingTranscription(mockSession);
-		onResultCaptor.getValue().accept("回復前のテキスト。");
+		onResultCaptor.getValue().accept(text("回復前のテキスト。"));
 
 		// 次に、エラーを発生させて回復処理をトリガーする
 		// onErrorCaptor.getValue() は null ではなくなっているはず
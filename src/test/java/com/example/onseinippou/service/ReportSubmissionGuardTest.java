@@ -0,0 +1,123 @@
+package com.example.onseinippou.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.onseinippou.security.CurrentUserProvider;
+import com.example.onseinippou.security.UserSnapshot;
+import com.example.onseinippou.service.ReportService.SubmitResult;
+
+/**
+ * ReportSubmissionGuard の重複抑止（同時の再送・失敗後の再送・本文違い・DB の一意制約違反）を確かめる.
+ */
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class ReportSubmissionGuardTest {
+
+	private static final String TEXT = "本日の作業内容を報告します。";
+	private static final String KEY = "0b6f3c1e-6a2d-4f5e-9c41-2f7d8e9a1b3c";
+
+	private ReportService reportService;
+	private ReportSubmissionGuard guard;
+
+	@BeforeEach
+	void setUp() {
+		reportService = mock(ReportService.class);
+		CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+		when(currentUserProvider.getCurrentUserSnapshot())
+				.thenReturn(new UserSnapshot(1L, "taro@example.com", "ROLE_USER", "sheet-1"));
+		guard = new ReportSubmissionGuard(reportService, currentUserProvider);
+	}
+
+	@Test
+	@DisplayName("正常系 1-1: 処理中に同じキーで届いた再送は、最初の送信の結果を待って replayed=true で返す")
+	void concurrentDuplicateWaitsForFirstSubmission() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(reportService.submitReport(TEXT, KEY)).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return new SubmitResult(10L, false);
+		});
+
+		CompletableFuture<SubmitResult> first = CompletableFuture.supplyAsync(() -> guard.submit(TEXT, KEY));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<SubmitResult> retry = CompletableFuture.supplyAsync(() -> guard.submit(TEXT, KEY));
+		// 再送は最初の送信が終わるまで返らない
+		assertThrows(TimeoutException.class, () -> retry.get(200, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertEquals(new SubmitResult(10L, false), first.get(5, TimeUnit.SECONDS));
+		assertEquals(new SubmitResult(10L, true), retry.get(5, TimeUnit.SECONDS));
+		verify(reportService, times(1)).submitReport(TEXT, KEY);
+	}
+
+	@Test
+	@DisplayName("正常系 1-2: 送信済みのキーの再送は、登録せずにキャッシュの結果を返す")
+	void completedSubmissionIsReplayedFromCache() {
+		when(reportService.submitReport(TEXT, KEY)).thenReturn(new SubmitResult(10L, false));
+
+		guard.submit(TEXT, KEY);
+
+		assertEquals(new SubmitResult(10L, true), guard.submit(TEXT, KEY));
+		verify(reportService, times(1)).submitReport(TEXT, KEY);
+	}
+
+	@Test
+	@DisplayName("正常系 1-3: 最初の送信が失敗したキーは覚えず、再送で改めて登録する")
+	void failedSubmissionIsForgotten() {
+		when(reportService.submitReport(TEXT, KEY))
+				.thenThrow(new IllegalStateException("一時的な障害"))
+				.thenReturn(new SubmitResult(11L, false));
+
+		assertThrows(IllegalStateException.class, () -> guard.submit(TEXT, KEY));
+
+		assertEquals(new SubmitResult(11L, false), guard.submit(TEXT, KEY));
+		verify(reportService, times(2)).submitReport(TEXT, KEY);
+	}
+
+	@Test
+	@DisplayName("正常系 1-4: 別インスタンスが同じキーを先に登録していた（一意制約違反）場合は、先に登録された日報を返す")
+	void integrityViolationReturnsWinningRow() {
+		when(reportService.submitReport(TEXT, KEY)).thenThrow(new DataIntegrityViolationException("uk_report_meta_user_key"));
+		when(reportService.findSubmission(1L, KEY, TEXT)).thenReturn(Optional.of(new SubmitResult(12L, true)));
+
+		assertEquals(new SubmitResult(12L, true), guard.submit(TEXT, KEY));
+		// 引き当てた結果は以降の再送にも使う
+		assertEquals(new SubmitResult(12L, true), guard.submit(TEXT, KEY));
+		verify(reportService, times(1)).submitReport(TEXT, KEY);
+	}
+
+	@Test
+	@DisplayName("異常系 2-1: 同じキーで本文が異なる再送は IllegalArgumentException（400）になる")
+	void sameKeyWithDifferentTextIsRejected() {
+		when(reportService.submitReport(TEXT, KEY)).thenReturn(new SubmitResult(10L, false));
+		guard.submit(TEXT, KEY);
+
+		assertThrows(IllegalArgumentException.class, () -> guard.submit("別の日報です。", KEY));
+		verify(reportService, never()).submitReport(eq("別の日報です。"), any());
+	}
+
+	@Test
+	@DisplayName("異常系 2-2: 一意制約違反で先の日報も見つからない場合は、元の例外をそのまま投げる")
+	void integrityViolationWithoutWinningRowIsRethrown() {
+		DataIntegrityViolationException violation = new DataIntegrityViolationException("uk_report_meta_user_key");
+		when(reportService.submitReport(TEXT, KEY)).thenThrow(violation);
+		when(reportService.findSubmission(1L, KEY, TEXT)).thenReturn(Optional.empty());
+
+		assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> guard.submit(TEXT, KEY)));
+	}
+}